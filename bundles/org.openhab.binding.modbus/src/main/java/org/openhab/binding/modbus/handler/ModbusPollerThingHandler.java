@@ -22,7 +22,9 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.modbus.internal.AtomicStampedValue;
 import org.openhab.binding.modbus.internal.ModbusBindingConstantsInternal;
+import org.openhab.binding.modbus.internal.ModbusPollMerger;
 import org.openhab.binding.modbus.internal.config.ModbusPollerConfiguration;
+import org.openhab.binding.modbus.internal.handler.AbstractModbusEndpointThingHandler;
 import org.openhab.binding.modbus.internal.handler.ModbusDataThingHandler;
 import org.openhab.core.io.transport.modbus.AsyncModbusFailure;
 import org.openhab.core.io.transport.modbus.AsyncModbusReadResult;
@@ -189,6 +191,8 @@ public class ModbusPollerThingHandler extends BaseBridgeHandler {
     private @NonNullByDefault({}) ModbusPollerConfiguration config;
     private long cacheMillis;
     private volatile @Nullable PollTask pollTask;
+    private volatile @Nullable ModbusPollMerger pollMerger;
+    private volatile @Nullable ModbusPollMerger.Registration mergedPoll;
     private volatile @Nullable ModbusReadRequestBlueprint request;
     private volatile boolean disposed;
     private volatile List<ModbusDataThingHandler> childCallbacks = new CopyOnWriteArrayList<>();
@@ -313,7 +317,15 @@ public class ModbusPollerThingHandler extends BaseBridgeHandler {
             logger.debug("Unregistering polling from ModbusManager");
             comms.unregisterRegularPoll(localPollTask);
         }
+        ModbusPollMerger localPollMerger = this.pollMerger;
+        ModbusPollMerger.Registration localMergedPoll = this.mergedPoll;
+        if (localPollMerger != null && localMergedPoll != null) {
+            logger.debug("Unregistering polling from the poll merger of the endpoint");
+            localPollMerger.unregisterRegularPoll(localMergedPoll);
+        }
         this.pollTask = null;
+        this.pollMerger = null;
+        this.mergedPoll = null;
         request = null;
         comms = null;
         updateStatus(ThingStatus.OFFLINE);
@@ -328,7 +340,7 @@ public class ModbusPollerThingHandler extends BaseBridgeHandler {
     @SuppressWarnings("null")
     private synchronized void registerPollTask() throws EndpointNotInitializedException {
         logger.trace("registerPollTask()");
-        if (pollTask != null) {
+        if (pollTask != null || mergedPoll != null) {
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR);
             logger.debug("pollTask should be unregistered before registering a new one!");
             return;
@@ -358,9 +370,18 @@ public class ModbusPollerThingHandler extends BaseBridgeHandler {
                 localFunctionCode, config.getStart(), config.getLength(), config.getMaxTries());
         this.request = localRequest;
 
+        ModbusPollMerger localPollMerger = slaveEndpointThingHandler instanceof AbstractModbusEndpointThingHandler
+                ? ((AbstractModbusEndpointThingHandler<?, ?>) slaveEndpointThingHandler).getPollMerger()
+                : null;
         if (config.getRefresh() <= 0L) {
             logger.debug("Not registering polling with ModbusManager since refresh disabled");
             updateStatus(ThingStatus.ONLINE, ThingStatusDetail.NONE, "Not polling");
+        } else if (localPollMerger != null) {
+            logger.debug("Registering polling with the poll merger of the endpoint");
+            this.pollMerger = localPollMerger;
+            mergedPoll = localPollMerger.registerRegularPoll(localRequest, config.getRefresh(), callbackDelegator,
+                    callbackDelegator);
+            updateStatus(ThingStatus.ONLINE);
         } else {
             logger.debug("Registering polling with ModbusManager");
             pollTask = localComms.registerRegularPoll(localRequest, config.getRefresh(), 0, callbackDelegator,
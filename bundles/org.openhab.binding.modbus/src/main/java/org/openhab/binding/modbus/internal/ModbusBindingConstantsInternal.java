@@ -67,6 +67,8 @@ public class ModbusBindingConstantsInternal {
     public static final String READ_TYPE_DISCRETE_INPUT = "discrete";
     public static final String READ_TYPE_INPUT_REGISTER = "input";
 
+    public static final String CONFIG_MERGE_POLLS = "mergePolls";
+
     public static final Map<String, ModbusReadFunctionCode> READ_FUNCTION_CODES = new HashMap<>();
     static {
         READ_FUNCTION_CODES.put(READ_TYPE_COIL, ModbusReadFunctionCode.READ_COILS);
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.io.transport.modbus.AsyncModbusFailure;
+import org.openhab.core.io.transport.modbus.AsyncModbusReadResult;
+import org.openhab.core.io.transport.modbus.BitArray;
+import org.openhab.core.io.transport.modbus.ModbusCommunicationInterface;
+import org.openhab.core.io.transport.modbus.ModbusConstants;
+import org.openhab.core.io.transport.modbus.ModbusFailureCallback;
+import org.openhab.core.io.transport.modbus.ModbusReadCallback;
+import org.openhab.core.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.core.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.core.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.core.io.transport.modbus.PollTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the regular polls of an endpoint into fewer, larger reads.
+ *
+ * Polls with the same unit id, function code, maximum tries and poll period are compatible. Compatible polls whose
+ * ranges overlap or are adjacent are read together, as long as the merged read stays within the protocol limit of
+ * the function code. Ranges are never extended over gaps, so no register is read that was not polled before. Results
+ * and failures of a merged read are sliced back to the requests and callbacks of the individual polls.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusPollMerger {
+
+    /**
+     * A poll registered with the merger
+     */
+    public static class Registration {
+        private final ModbusReadRequestBlueprint request;
+        private final ModbusReadCallback resultCallback;
+        private final ModbusFailureCallback<ModbusReadRequestBlueprint> failureCallback;
+        private final long pollPeriodMillis;
+        private final List<Object> groupKey;
+
+        private Registration(ModbusReadRequestBlueprint request, long pollPeriodMillis,
+                ModbusReadCallback resultCallback, ModbusFailureCallback<ModbusReadRequestBlueprint> failureCallback) {
+            this.request = request;
+            this.resultCallback = resultCallback;
+            this.failureCallback = failureCallback;
+            this.pollPeriodMillis = pollPeriodMillis;
+            this.groupKey = List.of(request.getUnitID(), request.getFunctionCode(), request.getMaxTries(),
+                    pollPeriodMillis);
+        }
+
+        public ModbusReadRequestBlueprint getRequest() {
+            return request;
+        }
+
+        private int getStart() {
+            return request.getReference();
+        }
+
+        private int getEnd() {
+            return request.getReference() + request.getDataLength();
+        }
+    }
+
+    /**
+     * A read registered with the communication interface, covering one or more registrations
+     */
+    private class MergedPoll implements ModbusReadCallback, ModbusFailureCallback<ModbusReadRequestBlueprint> {
+        private final ModbusReadRequestBlueprint request;
+        private final List<Registration> registrations;
+        private @Nullable PollTask pollTask;
+
+        private MergedPoll(ModbusReadRequestBlueprint request, List<Registration> registrations) {
+            this.request = request;
+            this.registrations = registrations;
+        }
+
+        @Override
+        public void handle(AsyncModbusReadResult result) {
+            readCount.incrementAndGet();
+            for (Registration registration : registrations) {
+                resultCount.incrementAndGet();
+                try {
+                    registration.resultCallback.handle(slice(result, registration));
+                } catch (IllegalStateException e) {
+                    registration.failureCallback.handle(new AsyncModbusFailure<>(registration.request, e));
+                }
+            }
+        }
+
+        @Override
+        public void handle(AsyncModbusFailure<ModbusReadRequestBlueprint> failure) {
+            readCount.incrementAndGet();
+            for (Registration registration : registrations) {
+                resultCount.incrementAndGet();
+                registration.failureCallback.handle(new AsyncModbusFailure<>(registration.request, failure.getCause()));
+            }
+        }
+
+        private AsyncModbusReadResult slice(AsyncModbusReadResult result, Registration registration) {
+            if (registrations.size() == 1 && registration.request.equals(request)) {
+                return result;
+            }
+            int offset = registration.getStart() - request.getReference();
+            int length = registration.request.getDataLength();
+            if (result.getRegisters().isPresent()) {
+                byte[] bytes = result.getRegisters().get().getBytes();
+                if (bytes.length < (offset + length) * 2) {
+                    throw new IllegalStateException(String.format("Merged read %s returned only %d registers", request,
+                            bytes.length / 2));
+                }
+                return new AsyncModbusReadResult(registration.request,
+                        new ModbusRegisterArray(Arrays.copyOfRange(bytes, offset * 2, (offset + length) * 2)));
+            } else if (result.getBits().isPresent()) {
+                BitArray bits = result.getBits().get();
+                if (bits.size() < offset + length) {
+                    throw new IllegalStateException(
+                            String.format("Merged read %s returned only %d bits", request, bits.size()));
+                }
+                BitArray slicedBits = new BitArray(length);
+                for (int i = 0; i < length; i++) {
+                    slicedBits.setBit(i, bits.getBit(offset + i));
+                }
+                return new AsyncModbusReadResult(registration.request, slicedBits);
+            } else {
+                throw new IllegalStateException(String.format("Merged read %s returned no data", request));
+            }
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusPollMerger.class);
+
+    private final ModbusCommunicationInterface comms;
+    private final Map<List<Object>, List<Registration>> registrations = new HashMap<>();
+    private final Map<List<Object>, List<MergedPoll>> mergedPolls = new HashMap<>();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong resultCount = new AtomicLong();
+
+    public ModbusPollMerger(ModbusCommunicationInterface comms) {
+        this.comms = comms;
+    }
+
+    /**
+     * Registers a regular poll, see
+     * {@link ModbusCommunicationInterface#registerRegularPoll(ModbusReadRequestBlueprint, long, long, ModbusReadCallback, ModbusFailureCallback)}
+     *
+     * @return registration to pass to {@link #unregisterRegularPoll(Registration)}
+     */
+    public synchronized Registration registerRegularPoll(ModbusReadRequestBlueprint request, long pollPeriodMillis,
+            ModbusReadCallback resultCallback, ModbusFailureCallback<ModbusReadRequestBlueprint> failureCallback) {
+        Registration registration = new Registration(request, pollPeriodMillis, resultCallback, failureCallback);
+        registrations.computeIfAbsent(registration.groupKey, key -> new ArrayList<>()).add(registration);
+        plan(registration.groupKey, pollPeriodMillis);
+        return registration;
+    }
+
+    /**
+     * Unregisters a regular poll. No-op if the poll is not registered.
+     *
+     * @param registration the registration returned by {@link #registerRegularPoll}
+     */
+    public synchronized void unregisterRegularPoll(Registration registration) {
+        List<Registration> group = registrations.get(registration.groupKey);
+        if (group != null && group.remove(registration)) {
+            plan(registration.groupKey, registration.pollPeriodMillis);
+        }
+    }
+
+    /**
+     * Unregisters all polls
+     */
+    public synchronized void close() {
+        mergedPolls.values().forEach(this::unregister);
+        mergedPolls.clear();
+        registrations.clear();
+    }
+
+    /**
+     * @return number of reads executed on the bus
+     */
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * @return number of results and failures passed to the registered polls. The difference to
+     *         {@link #getReadCount()} is the number of reads saved by merging.
+     */
+    public long getResultCount() {
+        return resultCount.get();
+    }
+
+    /**
+     * @return number of reads currently registered with the communication interface
+     */
+    public synchronized int getMergedPollCount() {
+        return mergedPolls.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void plan(List<Object> groupKey, long pollPeriodMillis) {
+        List<MergedPoll> previous = mergedPolls.remove(groupKey);
+        if (previous != null) {
+            unregister(previous);
+        }
+        List<Registration> group = registrations.get(groupKey);
+        if (group == null || group.isEmpty()) {
+            registrations.remove(groupKey);
+            return;
+        }
+
+        List<Registration> sorted = new ArrayList<>(group);
+        sorted.sort(Comparator.comparingInt(Registration::getStart).thenComparingInt(Registration::getEnd));
+        ModbusReadRequestBlueprint first = sorted.get(0).request;
+        int maxLength = maxReadLength(first.getFunctionCode());
+
+        List<MergedPoll> planned = new ArrayList<>();
+        List<Registration> current = new ArrayList<>();
+        int start = 0;
+        int end = 0;
+        for (Registration registration : sorted) {
+            if (!current.isEmpty() && registration.getStart() <= end
+                    && Math.max(end, registration.getEnd()) - start <= maxLength) {
+                current.add(registration);
+                end = Math.max(end, registration.getEnd());
+                continue;
+            }
+            if (!current.isEmpty()) {
+                planned.add(mergedPoll(first, start, end, current));
+            }
+            current = new ArrayList<>();
+            current.add(registration);
+            start = registration.getStart();
+            end = registration.getEnd();
+        }
+        planned.add(mergedPoll(first, start, end, current));
+
+        for (MergedPoll mergedPoll : planned) {
+            mergedPoll.pollTask = comms.registerRegularPoll(mergedPoll.request, pollPeriodMillis, 0, mergedPoll,
+                    mergedPoll);
+        }
+        mergedPolls.put(groupKey, planned);
+        logger.debug("Polling {} requests of unit {} (function code {}, every {} ms) with {} reads", group.size(),
+                first.getUnitID(), first.getFunctionCode(), pollPeriodMillis, planned.size());
+    }
+
+    private MergedPoll mergedPoll(ModbusReadRequestBlueprint template, int start, int end,
+            List<Registration> registrations) {
+        ModbusReadRequestBlueprint request = registrations.size() == 1 ? registrations.get(0).request
+                : new ModbusReadRequestBlueprint(template.getUnitID(), template.getFunctionCode(), start, end - start,
+                        template.getMaxTries());
+        return new MergedPoll(request, registrations);
+    }
+
+    private void unregister(List<MergedPoll> polls) {
+        for (MergedPoll mergedPoll : polls) {
+            PollTask pollTask = mergedPoll.pollTask;
+            if (pollTask != null) {
+                comms.unregisterRegularPoll(pollTask);
+            }
+        }
+    }
+
+    private static int maxReadLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return ModbusConstants.MAX_BITS_READ_COUNT;
+            default:
+                return ModbusConstants.MAX_REGISTERS_READ_COUNT;
+        }
+    }
+}
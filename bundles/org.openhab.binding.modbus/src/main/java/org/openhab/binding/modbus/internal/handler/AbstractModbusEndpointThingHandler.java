@@ -16,7 +16,9 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.modbus.handler.EndpointNotInitializedException;
 import org.openhab.binding.modbus.handler.ModbusEndpointThingHandler;
+import org.openhab.binding.modbus.internal.ModbusBindingConstantsInternal;
 import org.openhab.binding.modbus.internal.ModbusConfigurationException;
+import org.openhab.binding.modbus.internal.ModbusPollMerger;
 import org.openhab.core.io.transport.modbus.ModbusCommunicationInterface;
 import org.openhab.core.io.transport.modbus.ModbusManager;
 import org.openhab.core.io.transport.modbus.endpoint.EndpointPoolConfiguration;
@@ -48,6 +50,7 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
     protected volatile @NonNullByDefault({}) EndpointPoolConfiguration poolConfiguration;
     private final Logger logger = LoggerFactory.getLogger(AbstractModbusEndpointThingHandler.class);
     private @NonNullByDefault({}) ModbusCommunicationInterface comms;
+    private volatile @Nullable ModbusPollMerger pollMerger;
 
     public AbstractModbusEndpointThingHandler(Bridge bridge, ModbusManager modbusManager) {
         super(bridge);
@@ -76,6 +79,7 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
                 }
                 try {
                     comms = modbusManager.newModbusCommunicationInterface(endpoint, poolConfiguration);
+                    pollMerger = isPollMergingEnabled() ? new ModbusPollMerger(comms) : null;
                     updateStatus(ThingStatus.ONLINE);
                 } catch (IllegalArgumentException e) {
                     updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
@@ -94,6 +98,10 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
     @Override
     public void dispose() {
         try {
+            ModbusPollMerger localPollMerger = pollMerger;
+            if (localPollMerger != null) {
+                localPollMerger.close();
+            }
             ModbusCommunicationInterface localComms = comms;
             if (localComms != null) {
                 localComms.close();
@@ -101,6 +109,7 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
         } catch (Exception e) {
             logger.warn("Error closing modbus communication interface", e);
         } finally {
+            pollMerger = null;
             comms = null;
         }
     }
@@ -110,6 +119,16 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
         return comms;
     }
 
+    /**
+     * Gets the {@link ModbusPollMerger} of the endpoint, which merges regular polls of pollers into fewer reads
+     *
+     * @return poll merger, or <code>null</code> if polls should be registered with the communication interface
+     *         directly
+     */
+    public @Nullable ModbusPollMerger getPollMerger() {
+        return pollMerger;
+    }
+
     @Nullable
     public E getEndpoint() {
         return endpoint;
@@ -119,10 +138,17 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
     public abstract int getSlaveId() throws EndpointNotInitializedException;
 
     /**
-     * Must be overriden by subclasses to initialize config, endpoint, and poolConfiguration
+     * Must be overridden by subclasses to initialize config, endpoint, and poolConfiguration
      */
     protected abstract void configure() throws ModbusConfigurationException;
 
+    /**
+     * Tells if regular polls of pollers should be merged, which both endpoint types configure alike
+     */
+    private boolean isPollMergingEnabled() {
+        return Boolean.TRUE.equals(getConfig().get(ModbusBindingConstantsInternal.CONFIG_MERGE_POLLS));
+    }
+
     /**
      * Format error message in case some other endpoint has been configured with different
      * {@link EndpointPoolConfiguration}
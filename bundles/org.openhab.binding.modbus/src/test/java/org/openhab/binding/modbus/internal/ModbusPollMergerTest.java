@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.modbus.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.io.transport.modbus.AsyncModbusFailure;
+import org.openhab.core.io.transport.modbus.AsyncModbusReadResult;
+import org.openhab.core.io.transport.modbus.BitArray;
+import org.openhab.core.io.transport.modbus.ModbusCommunicationInterface;
+import org.openhab.core.io.transport.modbus.ModbusFailureCallback;
+import org.openhab.core.io.transport.modbus.ModbusReadCallback;
+import org.openhab.core.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.core.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.core.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.core.io.transport.modbus.PollTask;
+
+/**
+ * Tests {@link ModbusPollMerger} against a simulated slave.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusPollMergerTest {
+    private static final int SLAVE_ID = 1;
+    private static final long REFRESH = 1000;
+
+    private final SimulatedSlave slave = new SimulatedSlave();
+    private final ModbusCommunicationInterface comms = mock(ModbusCommunicationInterface.class);
+    private final ModbusPollMerger merger = new ModbusPollMerger(comms);
+
+    /**
+     * Answers the polls registered with the communication interface from its register and coil banks
+     */
+    private static class SimulatedSlave {
+        private final int[] registers = new int[1000];
+        private final boolean[] coils = new boolean[1000];
+        private final Map<PollTask, RegisteredPoll> polls = new ConcurrentHashMap<>();
+        private int transactions = 0;
+        private boolean failing = false;
+
+        private SimulatedSlave() {
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = i;
+                coils[i] = i % 3 == 0;
+            }
+        }
+
+        private void pollAll() {
+            polls.values().forEach(this::poll);
+        }
+
+        private void poll(RegisteredPoll poll) {
+            transactions++;
+            ModbusReadRequestBlueprint request = poll.request;
+            if (failing) {
+                poll.failureCallback.handle(new AsyncModbusFailure<>(request, new Exception("simulated failure")));
+                return;
+            }
+            int start = request.getReference();
+            int length = request.getDataLength();
+            if (request.getFunctionCode() == ModbusReadFunctionCode.READ_COILS) {
+                BitArray bits = new BitArray(length);
+                for (int i = 0; i < length; i++) {
+                    bits.setBit(i, coils[start + i]);
+                }
+                poll.resultCallback.handle(new AsyncModbusReadResult(request, bits));
+            } else {
+                int[] values = new int[length];
+                System.arraycopy(registers, start, values, 0, length);
+                poll.resultCallback.handle(new AsyncModbusReadResult(request, new ModbusRegisterArray(values)));
+            }
+        }
+    }
+
+    private static class RegisteredPoll {
+        private final ModbusReadRequestBlueprint request;
+        private final ModbusReadCallback resultCallback;
+        private final ModbusFailureCallback<ModbusReadRequestBlueprint> failureCallback;
+
+        private RegisteredPoll(ModbusReadRequestBlueprint request, ModbusReadCallback resultCallback,
+                ModbusFailureCallback<ModbusReadRequestBlueprint> failureCallback) {
+            this.request = request;
+            this.resultCallback = resultCallback;
+            this.failureCallback = failureCallback;
+        }
+    }
+
+    /**
+     * Collects what a single poller receives
+     */
+    private static class Poller {
+        private final List<AsyncModbusReadResult> results = new ArrayList<>();
+        private final List<AsyncModbusFailure<ModbusReadRequestBlueprint>> failures = new ArrayList<>();
+        private final ModbusReadRequestBlueprint request;
+
+        private Poller(ModbusReadFunctionCode functionCode, int start, int length) {
+            this.request = new ModbusReadRequestBlueprint(SLAVE_ID, functionCode, start, length, 3);
+        }
+
+        private ModbusPollMerger.Registration register(ModbusPollMerger merger, long refresh) {
+            return merger.registerRegularPoll(request, refresh, results::add, failures::add);
+        }
+
+        private ModbusRegisterArray lastRegisters() {
+            assertThat(results.size(), is(not(0)));
+            AsyncModbusReadResult result = results.get(results.size() - 1);
+            assertThat(result.getRequest(), is(sameInstance(request)));
+            return result.getRegisters().get();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    public void setUp() {
+        when(comms.registerRegularPoll(any(), anyLong(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            PollTask task = mock(PollTask.class);
+            slave.polls.put(task, new RegisteredPoll(invocation.getArgument(0), invocation.getArgument(3),
+                    (ModbusFailureCallback<ModbusReadRequestBlueprint>) invocation.getArgument(4)));
+            return task;
+        });
+        when(comms.unregisterRegularPoll(any()))
+                .thenAnswer(invocation -> slave.polls.remove(invocation.getArgument(0)) != null);
+    }
+
+    private Poller holdingRegisters(int start, int length) {
+        return new Poller(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length);
+    }
+
+    @Test
+    public void adjacentAndOverlappingPollsAreReadTogether() {
+        Poller first = holdingRegisters(0, 10);
+        Poller second = holdingRegisters(10, 10);
+        Poller third = holdingRegisters(15, 10);
+        first.register(merger, REFRESH);
+        second.register(merger, REFRESH);
+        third.register(merger, REFRESH);
+
+        assertThat(slave.polls.size(), is(1));
+        slave.pollAll();
+
+        assertThat(slave.transactions, is(1));
+        assertThat(first.lastRegisters().size(), is(10));
+        assertThat(first.lastRegisters().getRegister(0), is(0));
+        assertThat(second.lastRegisters().size(), is(10));
+        assertThat(second.lastRegisters().getRegister(0), is(10));
+        assertThat(third.lastRegisters().size(), is(10));
+        assertThat(third.lastRegisters().getRegister(0), is(15));
+        assertThat(third.lastRegisters().getRegister(9), is(24));
+        assertThat(merger.getReadCount(), is(1L));
+        assertThat(merger.getResultCount(), is(3L));
+    }
+
+    @Test
+    public void incompatiblePollsAreNotMerged() {
+        holdingRegisters(0, 10).register(merger, REFRESH);
+        // gap between the ranges
+        holdingRegisters(11, 10).register(merger, REFRESH);
+        // other refresh
+        holdingRegisters(21, 10).register(merger, 2 * REFRESH);
+        // other function code
+        new Poller(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 10, 1).register(merger, REFRESH);
+
+        assertThat(slave.polls.size(), is(4));
+        assertThat(merger.getMergedPollCount(), is(4));
+    }
+
+    @Test
+    public void mergedReadStaysWithinProtocolLimit() {
+        Poller first = holdingRegisters(0, 100);
+        Poller second = holdingRegisters(100, 100);
+        first.register(merger, REFRESH);
+        second.register(merger, REFRESH);
+
+        assertThat(slave.polls.size(), is(2));
+        slave.pollAll();
+        assertThat(second.lastRegisters().getRegister(0), is(100));
+    }
+
+    @Test
+    public void unregisterSplitsMergedRead() {
+        Poller first = holdingRegisters(0, 10);
+        Poller second = holdingRegisters(10, 10);
+        Poller third = holdingRegisters(20, 10);
+        first.register(merger, REFRESH);
+        ModbusPollMerger.Registration registration = second.register(merger, REFRESH);
+        third.register(merger, REFRESH);
+        assertThat(slave.polls.size(), is(1));
+
+        merger.unregisterRegularPoll(registration);
+
+        assertThat(slave.polls.size(), is(2));
+        slave.pollAll();
+        assertThat(second.results.size(), is(0));
+        assertThat(third.lastRegisters().getRegister(0), is(20));
+
+        merger.close();
+        assertThat(slave.polls.size(), is(0));
+    }
+
+    @Test
+    public void failureIsReportedToAllPollers() {
+        Poller first = holdingRegisters(0, 10);
+        Poller second = holdingRegisters(10, 10);
+        first.register(merger, REFRESH);
+        second.register(merger, REFRESH);
+        slave.failing = true;
+
+        slave.pollAll();
+
+        assertThat(first.failures.size(), is(1));
+        assertThat(first.failures.get(0).getRequest(), is(sameInstance(first.request)));
+        assertThat(second.failures.size(), is(1));
+        assertThat(second.failures.get(0).getRequest(), is(sameInstance(second.request)));
+    }
+
+    @Test
+    public void coilsAreSliced() {
+        Poller first = new Poller(ModbusReadFunctionCode.READ_COILS, 0, 5);
+        Poller second = new Poller(ModbusReadFunctionCode.READ_COILS, 5, 5);
+        first.register(merger, REFRESH);
+        second.register(merger, REFRESH);
+
+        slave.pollAll();
+
+        assertThat(slave.transactions, is(1));
+        BitArray bits = second.results.get(0).getBits().get();
+        assertThat(bits.size(), is(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(bits.getBit(i), is((5 + i) % 3 == 0));
+        }
+    }
+}
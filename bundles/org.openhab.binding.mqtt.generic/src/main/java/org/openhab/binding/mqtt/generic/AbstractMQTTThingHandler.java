@@ -29,6 +29,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.mqtt.generic.values.OnOffValue;
 import org.openhab.binding.mqtt.generic.values.Value;
 import org.openhab.binding.mqtt.handler.AbstractBrokerHandler;
+import org.openhab.binding.mqtt.handler.PublishPipeline;
 import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.Bridge;
@@ -80,6 +81,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
     private final int subscribeTimeout;
 
     protected @Nullable MqttBrokerConnection connection;
+    protected @Nullable PublishPipeline publishPipeline;
 
     private AtomicBoolean messageReceived = new AtomicBoolean(false);
     private Map<String, @Nullable ChannelState> availabilityStates = new ConcurrentHashMap<>();
@@ -143,7 +145,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
             return;
         }
 
-        final CompletableFuture<Boolean> future = data.publishValue(command);
+        final CompletableFuture<Boolean> future = data.publishValue(command, publishPipeline);
         future.handle((v, ex) -> {
             if (ex != null) {
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, ex.getLocalizedMessage());
@@ -162,6 +164,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
             stop();
             connection = null;
+            publishPipeline = null;
             return;
         }
         if (bridgeStatusInfo.getStatus() != ThingStatus.ONLINE) {
@@ -187,6 +190,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
             return;
         }
         this.connection = connection;
+        this.publishPipeline = h.getPublishPipeline();
 
         // Start up (subscribe to MQTT topics). Limit with a timeout and catch exceptions.
         // We do not set the thing to ONLINE here in the AbstractBase, that is the responsibility of a derived
@@ -242,6 +246,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
             logger.warn("unsubscription on disposal failed for {}: ", thing.getUID(), e);
         }
         connection = null;
+        publishPipeline = null;
         super.dispose();
     }
 
@@ -20,18 +20,19 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.binding.mqtt.generic.values.Value;
+import org.openhab.binding.mqtt.handler.PublishPipeline;
 import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.core.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.TypeParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +63,8 @@ public class ChannelState implements MqttMessageSubscriber {
     private @Nullable ScheduledFuture<?> scheduledFuture;
     private CompletableFuture<@Nullable Void> future = CompletableFuture.completedFuture(null);
     private final Object futureLock = new Object();
+    private @Nullable IncomingMessageCache messageCache;
+    private @Nullable List<String> transformationsInKey;
 
     /**
      * Creates a new channel state.
@@ -93,6 +96,7 @@ public class ChannelState implements MqttMessageSubscriber {
      */
     public void addTransformation(ChannelStateTransformation transformation) {
         transformationsIn.add(transformation);
+        transformationsInKey = null;
     }
 
     public void addTransformation(String transformation, TransformationServiceProvider transformationServiceProvider) {
@@ -127,6 +131,16 @@ public class ChannelState implements MqttMessageSubscriber {
     public void clearTransformations() {
         transformationsIn.clear();
         transformationsOut.clear();
+        transformationsInKey = null;
+    }
+
+    /**
+     * Shares decoded and transformed incoming messages with other channel states subscribed to the same topic.
+     *
+     * @param messageCache The cache shared by the channel states, or null to process every message on its own
+     */
+    public void setMessageCache(@Nullable IncomingMessageCache messageCache) {
+        this.messageCache = messageCache;
     }
 
     /**
@@ -170,16 +184,13 @@ public class ChannelState implements MqttMessageSubscriber {
         }
 
         // String value: Apply transformations
-        String strValue = new String(payload, StandardCharsets.UTF_8);
-        for (ChannelStateTransformation t : transformationsIn) {
-            String transformedValue = t.processValue(strValue);
-            if (transformedValue != null) {
-                strValue = transformedValue;
-            } else {
-                logger.debug("Transformation '{}' returned null on '{}', discarding message", strValue, t.serviceName);
-                receivedOrTimeout();
-                return;
-            }
+        final IncomingMessageCache messageCache = this.messageCache;
+        String strValue = messageCache != null
+                ? messageCache.transform(payload, getTransformationsInKey(), this::applyTransformationsIn)
+                : applyTransformationsIn(new String(payload, StandardCharsets.UTF_8));
+        if (strValue == null) {
+            receivedOrTimeout();
+            return;
         }
 
         // Is trigger?: Special handling
@@ -189,7 +200,7 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
-        Command command = TypeParser.parseCommand(cachedValue.getSupportedCommandTypes(), strValue);
+        Command command = cachedValue.parseCommand(strValue);
         if (command == null) {
             logger.warn("Incoming payload '{}' not supported by type '{}'", strValue,
                     cachedValue.getClass().getSimpleName());
@@ -222,6 +233,30 @@ public class ChannelState implements MqttMessageSubscriber {
         receivedOrTimeout();
     }
 
+    private @Nullable String applyTransformationsIn(String value) {
+        String strValue = value;
+        for (ChannelStateTransformation t : transformationsIn) {
+            String transformedValue = t.processValue(strValue);
+            if (transformedValue != null) {
+                strValue = transformedValue;
+            } else {
+                logger.debug("Transformation '{}' returned null on '{}', discarding message", strValue, t.serviceName);
+                return null;
+            }
+        }
+        return strValue;
+    }
+
+    private List<String> getTransformationsInKey() {
+        List<String> key = transformationsInKey;
+        if (key == null) {
+            key = transformationsIn.stream().map(t -> t.serviceName + ":" + t.pattern)
+                    .collect(Collectors.toUnmodifiableList());
+            transformationsInKey = key;
+        }
+        return key;
+    }
+
     /**
      * Returns the state topic. Might be an empty string if this is a stateless channel (TRIGGER kind channel).
      */
@@ -348,6 +383,18 @@ public class ChannelState implements MqttMessageSubscriber {
      *         and exceptionally otherwise.
      */
     public CompletableFuture<Boolean> publishValue(Command command) {
+        return publishValue(command, null);
+    }
+
+    /**
+     * Publishes a value on MQTT. A command topic needs to be set in the configuration.
+     *
+     * @param command The command to send
+     * @param publishPipeline The publish pipeline of the broker, or null to publish on the connection directly
+     * @return A future that completes with true if the publishing worked and false if it is a readonly topic
+     *         or the message was dropped by the pipeline, and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> publishValue(Command command, @Nullable PublishPipeline publishPipeline) {
         cachedValue.update(command);
 
         Value mqttCommandValue = cachedValue;
@@ -399,6 +446,9 @@ public class ChannelState implements MqttMessageSubscriber {
 
         int qos = (config.qos != null) ? config.qos : connection.getQos();
 
+        if (publishPipeline != null) {
+            return publishPipeline.publish(config.commandTopic, commandString.getBytes(), qos, config.retained);
+        }
         return connection.publish(config.commandTopic, commandString.getBytes(), qos, config.retained);
     }
 
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Shares the decoding and the incoming transformations of an MQTT message between the {@link ChannelState}s of a
+ * thing that subscribed to the same topic.
+ *
+ * The broker connection hands the same payload array to all subscribers of a message. As long as the same array is
+ * processed, the decoded payload and the result of every transformation chain are reused. The next message replaces
+ * them.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class IncomingMessageCache {
+    private byte @Nullable [] payload;
+    private String decoded = "";
+    // transformation results by transformation chain, null if the chain discarded the message
+    private final Map<List<String>, @Nullable String> results = new HashMap<>();
+
+    /**
+     * Returns the transformed payload, transforming it only if no other channel state applied the same
+     * transformations to the same message before.
+     *
+     * @param payload The payload of the message
+     * @param transformationsKey The transformations of the chain, identifying it
+     * @param transformations The transformation chain, applied to the decoded payload
+     * @return The transformed payload, or null if the message is discarded
+     */
+    public @Nullable String transform(byte[] payload, List<String> transformationsKey,
+            Function<String, @Nullable String> transformations) {
+        String value;
+        synchronized (this) {
+            if (this.payload != payload) {
+                this.payload = payload;
+                decoded = new String(payload, StandardCharsets.UTF_8);
+                results.clear();
+            } else if (results.containsKey(transformationsKey)) {
+                return results.get(transformationsKey);
+            }
+            value = decoded;
+        }
+        // transformations may be slow, don't block other channel states meanwhile
+        String result = transformations.apply(value);
+        synchronized (this) {
+            if (this.payload == payload) {
+                results.put(transformationsKey, result);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.values;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.TypeParser;
+
+/**
+ * Parses MQTT values into the first matching type of a list of command types, with the same result as
+ * {@link TypeParser#parseCommand(List, String)}.
+ *
+ * The parser is prepared once per {@link Value}: enum types are looked up by name, {@link StringType} is created
+ * directly and numeric types are only tried for values that contain a digit, so that the common cases neither
+ * need reflection nor exceptions. All other types are parsed by their <code>valueOf</code> method, which is looked up
+ * once.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class CommandParser {
+    private final TypeParserStep[] steps;
+
+    /**
+     * Prepares a parser.
+     *
+     * @param commandTypes the command types, in the order they are tried
+     */
+    public CommandParser(List<Class<? extends Command>> commandTypes) {
+        steps = commandTypes.stream().map(CommandParser::createStep).toArray(TypeParserStep[]::new);
+    }
+
+    /**
+     * Parses a value.
+     *
+     * @param value the value
+     * @return the command of the first type that accepts the value, or null if none does
+     */
+    public @Nullable Command parse(String value) {
+        for (TypeParserStep step : steps) {
+            Command command = step.parse(value);
+            if (command != null) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private static TypeParserStep createStep(Class<? extends Command> type) {
+        if (type.isEnum()) {
+            Map<String, Command> constants = new HashMap<>();
+            for (Command constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+            return constants::get;
+        } else if (type == StringType.class) {
+            return StringType::new;
+        }
+        TypeParserStep valueOf = valueOfStep(type);
+        if (type == DecimalType.class || type == PercentType.class || type == QuantityType.class) {
+            return value -> containsDigit(value) ? valueOf.parse(value) : null;
+        }
+        return valueOf;
+    }
+
+    private static TypeParserStep valueOfStep(Class<? extends Command> type) {
+        Method valueOf;
+        try {
+            valueOf = type.getMethod("valueOf", String.class);
+        } catch (NoSuchMethodException e) {
+            return value -> null;
+        }
+        return value -> {
+            try {
+                return (Command) valueOf.invoke(type, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                return null;
+            }
+        };
+    }
+
+    private static boolean containsDigit(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface TypeParserStep {
+        @Nullable
+        Command parse(String value);
+    }
+}
@@ -53,11 +53,13 @@ import org.openhab.core.types.UnDefType;
 public abstract class Value {
     protected State state = UnDefType.UNDEF;
     protected final List<Class<? extends Command>> commandTypes;
+    private final CommandParser commandParser;
     private final String itemType;
 
     protected Value(String itemType, List<Class<? extends Command>> commandTypes) {
         this.itemType = itemType;
         this.commandTypes = commandTypes;
+        this.commandParser = new CommandParser(commandTypes);
     }
 
     /**
@@ -80,6 +82,16 @@ public abstract class Value {
         return commandTypes;
     }
 
+    /**
+     * Parses an incoming MQTT value into the first of the supported command types that accepts it.
+     *
+     * @param value The incoming value
+     * @return The command, or null if none of the supported command types accepts the value
+     */
+    public final @Nullable Command parseCommand(String value) {
+        return commandParser.parse(value);
+    }
+
     /**
      * Returns the item-type (one of {@link CoreItemFactory}).
      */
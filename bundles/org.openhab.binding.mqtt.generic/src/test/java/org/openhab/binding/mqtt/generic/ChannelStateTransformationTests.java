@@ -18,6 +18,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.openhab.binding.mqtt.generic.internal.handler.ThingChannelConstants.*;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import javax.naming.ConfigurationException;
@@ -30,10 +31,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.openhab.binding.mqtt.generic.internal.handler.GenericMQTTThingHandler;
+import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.binding.mqtt.handler.AbstractBrokerHandler;
 import org.openhab.core.config.core.Configuration;
 import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.core.io.transport.mqtt.MqttException;
+import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
@@ -120,4 +123,32 @@ public class ChannelStateTransformationTests {
         verify(callback).stateUpdated(eq(textChannelUID), argThat(arg -> "23.2".equals(arg.toString())));
         assertThat(channelConfig.getCache().getChannelState().toString(), is("23.2"));
     }
+
+    @Test
+    public void channelsOnSameTopicShareTransformedMessage() throws Exception {
+        when(jsonPathService.transform(jsonPathPattern, jsonPathJSON)).thenReturn("23.2");
+        ChannelStateUpdateListener listener = mock(ChannelStateUpdateListener.class);
+        IncomingMessageCache messageCache = new IncomingMessageCache();
+
+        ChannelState first = new ChannelState(ChannelConfigBuilder.create("state", null).build(), textChannelUID,
+                new TextValue(), listener);
+        ChannelState second = new ChannelState(ChannelConfigBuilder.create("state", null).build(),
+                new ChannelUID(testGenericThing, "othertext"), new TextValue(), listener);
+        for (ChannelState channelState : List.of(first, second)) {
+            channelState.addTransformation("JSONPATH:" + jsonPathPattern, transformationServiceProvider);
+            channelState.setMessageCache(messageCache);
+        }
+
+        byte[] payload = jsonPathJSON.getBytes();
+        first.processMessage("state", payload);
+        second.processMessage("state", payload);
+
+        verify(jsonPathService, times(1)).transform(jsonPathPattern, jsonPathJSON);
+        assertThat(first.getCache().getChannelState().toString(), is("23.2"));
+        assertThat(second.getCache().getChannelState().toString(), is("23.2"));
+
+        // the next message is transformed again
+        first.processMessage("state", jsonPathJSON.getBytes());
+        verify(jsonPathService, times(2)).transform(jsonPathPattern, jsonPathJSON);
+    }
 }
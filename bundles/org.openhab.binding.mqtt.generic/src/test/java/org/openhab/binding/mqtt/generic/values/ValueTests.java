@@ -17,6 +17,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.openhab.binding.mqtt.generic.mapping.ColorMode;
@@ -352,4 +353,21 @@ public class ValueTests {
                 null);
         assertThrows(IllegalArgumentException.class, () -> v.update(new DecimalType(9.0)));
     }
+
+    @Test
+    public void parseCommandMatchesTypeParser() {
+        List<Value> values = List.of(new TextValue(), new OnOffValue("fancyON", "fancyOff"), new OpenCloseValue(),
+                new NumberValue(null, null, null, null), new PercentageValue(null, null, null, null, null),
+                new RollershutterValue("fancyON", "fancyOff", "fancyStop"),
+                new ColorValue(ColorMode.RGB, null, null, 10), new DateTimeValue(), new LocationValue());
+        List<String> inputs = List.of("", "ON", "on", "OFF", "OPEN", "CLOSED", "UP", "STOP", "INCREASE", "fancyON",
+                "12", "-1.5", ".5", "5.", "1e3", "1e", "150", "+7", "23.2 °C", "10 %", "12abc", "abc", " 12",
+                "255,255,255", "52.5,13.4", "2021-01-05T22:45:12", "NaN");
+        for (Value v : values) {
+            for (String input : inputs) {
+                assertEquals(p(v, input), v.parseCommand(input),
+                        v.getClass().getSimpleName() + " parsing '" + input + "'");
+            }
+        }
+    }
 }
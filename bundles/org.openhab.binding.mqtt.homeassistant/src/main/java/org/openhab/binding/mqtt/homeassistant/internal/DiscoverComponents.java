@@ -68,6 +68,18 @@ public class DiscoverComponents implements MqttMessageSubscriber {
      */
     public static interface ComponentDiscovered {
         void componentDiscovered(HaID homeAssistantTopicID, AbstractComponent<?> component);
+
+        /**
+         * Checks if the given configuration is the one the listener already applied for this component. Unchanged
+         * configurations, like retained messages delivered again after a reconnect, are not parsed again.
+         *
+         * @param homeAssistantTopicID The location of the component
+         * @param config The configuration JSON string
+         * @return true if the configuration is known and unchanged
+         */
+        default boolean isConfigUnchanged(HaID homeAssistantTopicID, String config) {
+            return false;
+        }
     }
 
     /**
@@ -99,6 +111,11 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         AbstractComponent<?> component = null;
 
         if (config.length() > 0) {
+            ComponentDiscovered discoveredListener = this.discoveredListener;
+            if (discoveredListener != null && discoveredListener.isConfigUnchanged(haID, config)) {
+                logger.trace("HomeAssistant thing {} component {} is unchanged", haID.objectID, haID.component);
+                return;
+            }
             try {
                 component = ComponentFactory.createComponent(thingUID, haID, config, updateListener, tracker, scheduler,
                         gson, transformationServiceProvider);
@@ -66,6 +66,8 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     protected final Map<String, Set<HaID>> componentsPerThingID = new TreeMap<>();
     protected final Map<String, ThingUID> thingIDPerTopic = new TreeMap<>();
     protected final Map<String, DiscoveryResult> results = new ConcurrentHashMap<>();
+    // The last parsed configuration per config topic, retained configs are delivered again on every reconnect
+    private final Map<String, ParsedConfig> parsedConfigs = new ConcurrentHashMap<>();
 
     private @Nullable ScheduledFuture<?> future;
     private final Gson gson;
@@ -153,8 +155,7 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         HaID haID = new HaID(topic);
 
         try {
-            AbstractChannelConfiguration config = AbstractChannelConfiguration
-                    .fromString(new String(payload, StandardCharsets.UTF_8), gson);
+            AbstractChannelConfiguration config = getConfig(topic, new String(payload, StandardCharsets.UTF_8));
 
             final String thingID = config.getThingId(haID.objectID);
 
@@ -193,6 +194,15 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         }
     }
 
+    private AbstractChannelConfiguration getConfig(String topic, String payload) {
+        ParsedConfig parsed = parsedConfigs.get(topic);
+        if (parsed == null || !parsed.payload.equals(payload)) {
+            parsed = new ParsedConfig(payload, AbstractChannelConfiguration.fromString(payload, gson));
+            parsedConfigs.put(topic, parsed);
+        }
+        return parsed.config;
+    }
+
     protected void publishResults() {
         Collection<DiscoveryResult> localResults;
 
@@ -213,6 +223,7 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         if (!topic.endsWith("/config")) {
             return;
         }
+        parsedConfigs.remove(topic);
         if (thingIDPerTopic.containsKey(topic)) {
             ThingUID thingUID = thingIDPerTopic.remove(topic);
             final String thingID = thingUID.getId();
@@ -226,4 +237,14 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
             }
         }
     }
+
+    private static class ParsedConfig {
+        private final String payload;
+        private final AbstractChannelConfiguration config;
+
+        private ParsedConfig(String payload, AbstractChannelConfiguration config) {
+            this.payload = payload;
+            this.config = config;
+        }
+    }
 }
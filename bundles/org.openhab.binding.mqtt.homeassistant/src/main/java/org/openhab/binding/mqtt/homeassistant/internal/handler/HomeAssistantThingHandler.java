@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -90,6 +91,8 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
 
     private final Gson gson;
     protected final Map<String, AbstractComponent<?>> haComponents = new HashMap<>();
+    // The configuration JSON of all components in haComponents, by config topic
+    private final Map<String, String> appliedConfigs = new ConcurrentHashMap<>();
 
     protected HandlerConfiguration config = new HandlerConfiguration();
     private Set<HaID> discoveryHomeAssistantIDs = new HashSet<>();
@@ -158,6 +161,7 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
                     component = ComponentFactory.createComponent(thingUID, haID, channelConfigurationJSON, this, this,
                             scheduler, gson, transformationServiceProvider);
                     haComponents.put(component.getGroupUID().getId(), component);
+                    appliedConfigs.put(haID.getTopic("config"), channelConfigurationJSON);
                     component.addChannelTypes(channelTypeProvider);
                 } catch (ConfigurationException e) {
                     logger.error("Cannot not restore component {}: {}", thing, e.getMessage());
@@ -250,6 +254,15 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
         delayedProcessing.accept(component);
     }
 
+    /**
+     * Callback of {@link DiscoverComponents}. A retained configuration that is delivered again, e.g. after a broker
+     * reconnect, is neither parsed nor does it rebuild the channels of its component.
+     */
+    @Override
+    public boolean isConfigUnchanged(HaID homeAssistantTopicID, String config) {
+        return config.equals(appliedConfigs.get(homeAssistantTopicID.getTopic("config")));
+    }
+
     /**
      * Callback of {@link DelayedBatchProcessing}.
      * Add all newly discovered components to the Thing and start the components.
@@ -262,9 +275,11 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
             return;
         }
 
+        boolean changed = false;
         synchronized (haComponents) { // sync whenever discoverComponents is started
             for (AbstractComponent<?> discovered : discoveredComponentsList) {
                 AbstractComponent<?> known = haComponents.get(discovered.getGroupUID().getId());
+                appliedConfigs.put(discovered.getHaID().getTopic("config"), discovered.getChannelConfigurationJson());
                 // Is component already known?
                 if (known != null) {
                     if (discovered.getConfigHash() != known.getConfigHash()) {
@@ -276,6 +291,7 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
                         continue;
                     }
                 }
+                changed = true;
 
                 // Add channel and group types to the types registry
                 discovered.addChannelTypes(channelTypeProvider);
@@ -293,7 +309,9 @@ public class HomeAssistantThingHandler extends AbstractMQTTThingHandler
             }
         }
 
-        updateThingType();
+        if (changed) {
+            updateThingType();
+        }
     }
 
     @Override
@@ -154,6 +154,29 @@ public class HomeAssistantThingHandlerTests extends AbstractHomeAssistantTests {
         verify(channelTypeProvider, times(2)).removeChannelGroupType(any());
     }
 
+    @Test
+    public void testUnchangedConfigIsNotProcessedAgain() {
+        thingHandler.initialize();
+        MQTT_TOPICS.forEach(t -> {
+            verify(bridgeConnection, timeout(SUBSCRIBE_TIMEOUT)).subscribe(eq(t), any());
+        });
+
+        var configTopic = "homeassistant/climate/0x847127fffe11dd6a_climate_zigbee2mqtt/config";
+        thingHandler.discoverComponents.processMessage(configTopic,
+                getResourceAsByteArray("component/configTS0601ClimateThermostat.json"));
+        thingHandler.delayedProcessing.forceProcessNow();
+        verify(thingHandler, times(1)).componentDiscovered(any(), any());
+        verify(channelTypeProvider, times(1)).setChannelGroupType(any(), any());
+
+        // A retained config delivered again is skipped
+        thingHandler.discoverComponents.processMessage(configTopic,
+                getResourceAsByteArray("component/configTS0601ClimateThermostat.json"));
+        thingHandler.delayedProcessing.forceProcessNow();
+        verify(thingHandler, times(1)).componentDiscovered(any(), any());
+        verify(channelTypeProvider, times(1)).setChannelGroupType(any(), any());
+        assertThat(haThing.getChannels().size(), CoreMatchers.is(6));
+    }
+
     @Test
     public void testProcessMessageFromUnsupportedComponent() {
         thingHandler.initialize();
@@ -56,6 +56,7 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
 
     protected @Nullable MqttBrokerConnection connection;
     protected CompletableFuture<MqttBrokerConnection> connectionFuture = new CompletableFuture<>();
+    protected @Nullable PublishPipeline publishPipeline;
 
     public AbstractBrokerHandler(Bridge thing) {
         super(thing);
@@ -81,6 +82,14 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         return connection;
     }
 
+    /**
+     * Returns the outbound publish pipeline of the connection, if publish limits are configured. Things should
+     * publish through it instead of the connection.
+     */
+    public @Nullable PublishPipeline getPublishPipeline() {
+        return publishPipeline;
+    }
+
     /**
      * Does nothing in the base implementation.
      */
@@ -117,6 +117,11 @@ public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallba
 
     @Override
     public void dispose() {
+        final PublishPipeline publishPipeline = this.publishPipeline;
+        if (publishPipeline != null) {
+            publishPipeline.close();
+            this.publishPipeline = null;
+        }
         try {
             if (connection != null) {
                 publish(config.shutdownTopic, config.shutdownMessage, config.shutdownRetain).get(1000,
@@ -240,6 +245,9 @@ public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallba
         final MqttBrokerConnection connection = createBrokerConnection();
         assignSSLContextProvider(config, connection, this);
         this.connection = connection;
+        if (config.maxPublishRate > 0 || config.maxInFlight > 0) {
+            publishPipeline = new PublishPipeline(connection, scheduler, config.maxPublishRate, config.maxInFlight);
+        }
 
         super.initialize();
     }
@@ -37,6 +37,10 @@ public class BrokerHandlerConfig extends MqttBrokerConnectionConfig {
 
     public boolean enableDiscovery = true;
 
+    // Outbound publish limits, 0 means no limit
+    public int maxPublishRate = 0;
+    public int maxInFlight = 0;
+
     // Birth message parameters
     public @Nullable String birthTopic;
     public @Nullable String birthMessage;
@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Outbound publish queue of a broker connection.
+ *
+ * Publishes are sent in the order of their topics' first arrival. A publish to a topic that still has a message
+ * waiting replaces that message (latest value wins), and both callers get the result of the publish that is
+ * eventually sent. The number of publishes per second and the number of unacknowledged QoS 1/2 publishes can be
+ * limited. A publish is sent right away as long as neither limit is reached.
+ *
+ * The counters of the pipeline are logged at debug level every minute in which they changed.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class PublishPipeline {
+    static final int MAX_PENDING_TOPICS = 1000;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long STATISTICS_INTERVAL_SECONDS = 60;
+
+    private final Logger logger = LoggerFactory.getLogger(PublishPipeline.class);
+
+    private final MqttBrokerConnection connection;
+    private final ScheduledExecutorService scheduler;
+    private final long sendInterval;
+    private final int maxInFlight;
+
+    private final Map<String, PendingPublish> pending = new LinkedHashMap<>();
+    private long nextSendTime = System.nanoTime() - NANOS_PER_SECOND;
+    private int inFlight = 0;
+    private boolean drainScheduled = false;
+    private boolean closed = false;
+
+    private long publishedCount = 0;
+    private long mergedCount = 0;
+    private long droppedCount = 0;
+    private long loggedCount = 0;
+    private final @Nullable ScheduledFuture<?> statisticsJob;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param connection The connection to publish on
+     * @param scheduler Used to send delayed publishes
+     * @param maxPublishRate Maximum number of publishes per second, 0 for no limit
+     * @param maxInFlight Maximum number of QoS 1 and 2 publishes waiting for their acknowledgement, 0 for no limit
+     */
+    public PublishPipeline(MqttBrokerConnection connection, ScheduledExecutorService scheduler, int maxPublishRate,
+            int maxInFlight) {
+        this.connection = connection;
+        this.scheduler = scheduler;
+        this.sendInterval = maxPublishRate > 0 ? NANOS_PER_SECOND / maxPublishRate : 0;
+        this.maxInFlight = maxInFlight;
+        ScheduledFuture<?> job = null;
+        if (logger.isDebugEnabled()) {
+            try {
+                job = scheduler.scheduleWithFixedDelay(this::logStatistics, STATISTICS_INTERVAL_SECONDS,
+                        STATISTICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Cannot schedule the statistics of the publish queue of {}", connection.getHost());
+            }
+        }
+        this.statisticsJob = job;
+    }
+
+    /**
+     * Queues a message for publishing, see {@link MqttBrokerConnection#publish(String, byte[], int, boolean)}.
+     *
+     * @return A future that completes with the result of the publish, with false if the message was dropped
+     */
+    public CompletableFuture<Boolean> publish(String topic, byte[] payload, int qos, boolean retain) {
+        CompletableFuture<Boolean> future;
+        synchronized (this) {
+            PendingPublish publish = pending.get(topic);
+            if (publish != null) {
+                publish.payload = payload;
+                publish.qos = qos;
+                publish.retain = retain;
+                mergedCount++;
+                return publish.future;
+            }
+            if (closed || pending.size() >= MAX_PENDING_TOPICS) {
+                droppedCount++;
+                logger.debug("Publish queue of {} is full, dropping message to topic '{}'", connection.getHost(),
+                        topic);
+                return CompletableFuture.completedFuture(false);
+            }
+            publish = new PendingPublish(topic, payload, qos, retain);
+            pending.put(topic, publish);
+            future = publish.future;
+        }
+        drain();
+        return future;
+    }
+
+    /**
+     * Stops the pipeline. Waiting messages are dropped and their futures complete with false.
+     */
+    public void close() {
+        ScheduledFuture<?> job = statisticsJob;
+        if (job != null) {
+            job.cancel(false);
+        }
+        List<PendingPublish> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(pending.values());
+            pending.clear();
+            droppedCount += dropped.size();
+            logger.debug("Closed publish queue of {}: {} published, {} merged, {} dropped", connection.getHost(),
+                    publishedCount, mergedCount, droppedCount);
+        }
+        dropped.forEach(publish -> publish.future.complete(false));
+    }
+
+    /**
+     * @return Number of messages sent to the broker
+     */
+    public synchronized long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * @return Number of messages that replaced a waiting message to the same topic
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return Number of messages dropped because the queue was full or closed
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return Number of topics with a message waiting to be sent
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return Number of QoS 1 and 2 messages sent but not yet acknowledged
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    private synchronized void logStatistics() {
+        long count = publishedCount + mergedCount + droppedCount;
+        if (closed || count == loggedCount) {
+            return;
+        }
+        loggedCount = count;
+        logger.debug("Publish queue of {}: {} published, {} merged, {} dropped, {} waiting, {} in flight",
+                connection.getHost(), publishedCount, mergedCount, droppedCount, pending.size(), inFlight);
+    }
+
+    private void drain() {
+        List<PendingPublish> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            Iterator<PendingPublish> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                PendingPublish publish = iterator.next();
+                if (sendInterval > 0 && nextSendTime - now > 0) {
+                    scheduleDrain(nextSendTime - now);
+                    break;
+                }
+                // QoS 0 messages are never acknowledged and may pass
+                if (publish.qos > 0 && maxInFlight > 0 && inFlight >= maxInFlight) {
+                    continue;
+                }
+                iterator.remove();
+                if (sendInterval > 0) {
+                    // allows a burst of one second worth of publishes after an idle period
+                    nextSendTime = Math.max(nextSendTime, now - NANOS_PER_SECOND + sendInterval) + sendInterval;
+                }
+                if (publish.qos > 0) {
+                    inFlight++;
+                }
+                publishedCount++;
+                ready.add(publish);
+            }
+        }
+        ready.forEach(this::send);
+    }
+
+    private void send(PendingPublish publish) {
+        connection.publish(publish.topic, publish.payload, publish.qos, publish.retain).whenComplete((result, e) -> {
+            if (publish.qos > 0) {
+                synchronized (this) {
+                    inFlight--;
+                    if (!pending.isEmpty()) {
+                        scheduleDrain(0);
+                    }
+                }
+            }
+            if (e != null) {
+                publish.future.completeExceptionally(e);
+            } else {
+                publish.future.complete(result);
+            }
+        });
+    }
+
+    private synchronized void scheduleDrain(long delay) {
+        if (drainScheduled || closed) {
+            return;
+        }
+        drainScheduled = true;
+        try {
+            scheduler.schedule(() -> {
+                synchronized (this) {
+                    drainScheduled = false;
+                }
+                drain();
+            }, delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            drainScheduled = false;
+        }
+    }
+
+    private static class PendingPublish {
+        private final String topic;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private byte[] payload;
+        private int qos;
+        private boolean retain;
+
+        private PendingPublish(String topic, byte[] payload, int qos, boolean retain) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.openhab.core.io.transport.mqtt.MqttBrokerConnection;
+
+/**
+ * Test cases for {@link PublishPipeline}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.WARN)
+public class PublishPipelineTest {
+    private static final int TIMEOUT = 2000;
+
+    private @Mock MqttBrokerConnection connection;
+
+    private ScheduledExecutorService scheduler;
+    private final List<CompletableFuture<Boolean>> publishes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        when(connection.publish(anyString(), any(), anyInt(), anyBoolean())).thenAnswer(invocation -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            synchronized (publishes) {
+                publishes.add(future);
+            }
+            return future;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void acknowledge(int index) {
+        synchronized (publishes) {
+            publishes.get(index).complete(true);
+        }
+    }
+
+    @Test
+    public void queuedMessagesToSameTopicAreMerged() throws Exception {
+        PublishPipeline pipeline = new PublishPipeline(connection, scheduler, 0, 1);
+
+        CompletableFuture<Boolean> first = pipeline.publish("light/set", bytes("10"), 1, false);
+        CompletableFuture<Boolean> second = pipeline.publish("light/set", bytes("20"), 1, false);
+        CompletableFuture<Boolean> third = pipeline.publish("light/set", bytes("30"), 1, false);
+
+        verify(connection).publish(eq("light/set"), eq(bytes("10")), eq(1), eq(false));
+        assertThat(pipeline.getInFlightCount(), is(1));
+        assertThat(pipeline.getPendingCount(), is(1));
+        assertThat(pipeline.getMergedCount(), is(1L));
+
+        acknowledge(0);
+        assertThat(first.get(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        verify(connection, timeout(TIMEOUT)).publish(eq("light/set"), eq(bytes("30")), eq(1), eq(false));
+
+        acknowledge(1);
+        assertThat(second.get(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        assertThat(third.get(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        verify(connection, never()).publish(eq("light/set"), eq(bytes("20")), anyInt(), anyBoolean());
+        assertThat(pipeline.getPublishedCount(), is(2L));
+        assertThat(pipeline.getInFlightCount(), is(0));
+    }
+
+    @Test
+    public void qos0MessagesAreNotLimitedByInFlightMessages() {
+        PublishPipeline pipeline = new PublishPipeline(connection, scheduler, 0, 1);
+
+        pipeline.publish("a", bytes("1"), 1, false);
+        pipeline.publish("b", bytes("1"), 1, false);
+        pipeline.publish("c", bytes("1"), 0, false);
+
+        verify(connection).publish(eq("a"), any(), anyInt(), anyBoolean());
+        verify(connection).publish(eq("c"), any(), anyInt(), anyBoolean());
+        verify(connection, never()).publish(eq("b"), any(), anyInt(), anyBoolean());
+        assertThat(pipeline.getPendingCount(), is(1));
+    }
+
+    @Test
+    public void publishRateIsLimited() {
+        PublishPipeline pipeline = new PublishPipeline(connection, scheduler, 2, 0);
+
+        // the first second worth of publishes is sent right away
+        pipeline.publish("a", bytes("1"), 0, false);
+        pipeline.publish("b", bytes("1"), 0, false);
+        pipeline.publish("c", bytes("1"), 0, false);
+
+        verify(connection, times(2)).publish(anyString(), any(), anyInt(), anyBoolean());
+        assertThat(pipeline.getPendingCount(), is(1));
+
+        verify(connection, timeout(TIMEOUT)).publish(eq("c"), any(), anyInt(), anyBoolean());
+        assertThat(pipeline.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void closeDropsQueuedMessages() throws Exception {
+        PublishPipeline pipeline = new PublishPipeline(connection, scheduler, 0, 1);
+
+        pipeline.publish("a", bytes("1"), 1, false);
+        CompletableFuture<Boolean> queued = pipeline.publish("b", bytes("1"), 1, false);
+        pipeline.close();
+
+        assertThat(queued.get(TIMEOUT, TimeUnit.MILLISECONDS), is(false));
+        assertThat(pipeline.publish("c", bytes("1"), 0, false).get(TIMEOUT, TimeUnit.MILLISECONDS), is(false));
+        assertThat(pipeline.getDroppedCount(), is(2L));
+    }
+}
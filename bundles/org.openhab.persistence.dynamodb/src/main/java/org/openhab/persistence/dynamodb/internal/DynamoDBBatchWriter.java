@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+/**
+ * Aggregates DTOs and writes them using BatchWriteItem requests.
+ *
+ * Pending DTOs are written as soon as a full batch is available, and at the latest after the configured interval.
+ *
+ * Every DTO holds a permit from the time it is added until it is written or given up, which bounds the number of
+ * DTOs queued, in flight and waiting for a retry. When all permits are taken, new DTOs are either dropped or the
+ * storing thread is blocked, depending on the {@link OverflowPolicy}.
+ *
+ * Items left unprocessed by DynamoDB, and batches rejected due to throttling, are retried with exponential backoff
+ * and full jitter. The number of concurrent requests adapts to the available write capacity: it is halved whenever
+ * DynamoDB throttles and grows by one with every fully processed request.
+ *
+ * Writes to a table that does not exist yet fall back to {@link TableCreatingPutItem}, which creates the table.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class DynamoDBBatchWriter {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    /**
+     * Maximum number of items in a single BatchWriteItem request, as defined by DynamoDB
+     */
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private static final int MAX_CONCURRENT_REQUESTS = 8;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Logger logger = LoggerFactory.getLogger(DynamoDBBatchWriter.class);
+
+    private final DynamoDBPersistenceService service;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final int maxPending;
+    private final OverflowPolicy overflowPolicy;
+    private final Semaphore pendingPermits;
+    // one queue per DTO class, since both classes may be stored in the same table
+    private final Queue<DynamoDBBigDecimalItem> numberQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<DynamoDBStringItem> stringQueue = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() is not constant time
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong droppedSinceLog = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong writtenTotal = new AtomicLong();
+
+    // guarded by this
+    private int activeRequests;
+    private int concurrencyLimit = MAX_CONCURRENT_REQUESTS;
+
+    /**
+     * Creates and starts a batch writer.
+     *
+     * @param service the persistence service, providing the client and tables
+     * @param batchSize maximum number of DTOs per request, at most {@link #MAX_BATCH_SIZE}
+     * @param interval maximum time in milliseconds a DTO stays queued
+     * @param maxPending maximum number of DTOs queued, in flight or waiting for a retry
+     * @param overflowPolicy what to do with new DTOs when the maximum is reached
+     */
+    public DynamoDBBatchWriter(DynamoDBPersistenceService service, int batchSize, long interval, int maxPending,
+            OverflowPolicy overflowPolicy) {
+        this.service = service;
+        this.executor = service.getExecutor();
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.maxPending = maxPending;
+        this.overflowPolicy = overflowPolicy;
+        this.pendingPermits = new Semaphore(maxPending);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("dynamodb-batch"));
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a DTO for writing.
+     *
+     * @param dto the DTO
+     */
+    public void add(DynamoDBItem<?> dto) {
+        if (!pendingPermits.tryAcquire()) {
+            triggerFlush();
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                try {
+                    pendingPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped(dto);
+                    return;
+                }
+            } else {
+                dropped(dto);
+                return;
+            }
+        }
+        if (enqueue(dto) >= batchSize) {
+            triggerFlush();
+        }
+    }
+
+    /**
+     * Sends the queued DTOs, as many requests as the current concurrency limit allows.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        long dropped = droppedSinceLog.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("Too many pending writes, dropped {} states ({} in total)", dropped, droppedTotal.get());
+        }
+        boolean sent;
+        do {
+            // both queues get their turn in every round
+            boolean numbersSent = flushNext(DynamoDBBigDecimalItem.class, numberQueue);
+            boolean stringsSent = flushNext(DynamoDBStringItem.class, stringQueue);
+            sent = numbersSent || stringsSent;
+        } while (sent);
+    }
+
+    /**
+     * Stops the writer and waits for all pending DTOs to be written.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Pending retries did not finish within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+            flush();
+            if (pendingPermits.tryAcquire(maxPending, SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                pendingPermits.release(maxPending);
+            } else {
+                logger.warn("{} states were not written within {} seconds and are lost", getPendingCount(),
+                        SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of DTOs queued, in flight or waiting for a retry
+     */
+    public int getPendingCount() {
+        return maxPending - pendingPermits.availablePermits();
+    }
+
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenTotal.get();
+    }
+
+    /**
+     * @return current limit of concurrent requests, reduced while DynamoDB throttles writes
+     */
+    public synchronized int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * @return number of queued DTOs, including the new one
+     */
+    private int enqueue(DynamoDBItem<?> dto) {
+        if (dto instanceof DynamoDBBigDecimalItem) {
+            numberQueue.add((DynamoDBBigDecimalItem) dto);
+        } else {
+            stringQueue.add((DynamoDBStringItem) dto);
+        }
+        return queuedCount.incrementAndGet();
+    }
+
+    private boolean isQueueEmpty() {
+        return queuedCount.get() == 0;
+    }
+
+    /**
+     * Sends the next batch of the given queue, if the concurrency limit allows another request.
+     *
+     * @return true if a request was sent
+     */
+    private <T extends DynamoDBItem<?>> boolean flushNext(Class<T> dtoClass, Queue<T> queue) {
+        if (queue.isEmpty()) {
+            return false;
+        }
+        synchronized (this) {
+            if (activeRequests >= concurrencyLimit) {
+                // flushed again when one of the active requests completes
+                return false;
+            }
+            activeRequests++;
+        }
+        List<T> batch = drain(queue);
+        if (batch.isEmpty()) {
+            requestCompleted();
+            return false;
+        }
+        send(dtoClass, batch, 0);
+        return true;
+    }
+
+    /**
+     * Takes the next batch from the queue. A request must not contain the same key twice, so only the last of
+     * several DTOs with the same item name and timestamp is kept.
+     */
+    private <T extends DynamoDBItem<?>> List<T> drain(Queue<T> queue) {
+        Map<String, T> batch = new LinkedHashMap<>();
+        T dto;
+        while (batch.size() < batchSize && (dto = queue.poll()) != null) {
+            queuedCount.decrementAndGet();
+            if (batch.put(dto.getName() + '/' + dto.getTime().toInstant().toEpochMilli(), dto) != null) {
+                pendingPermits.release();
+            }
+        }
+        return new ArrayList<>(batch.values());
+    }
+
+    private <T extends DynamoDBItem<?>> void send(Class<T> dtoClass, List<T> batch, int attempt) {
+        DynamoDbEnhancedAsyncClient client = service.getClient();
+        if (client == null) {
+            giveUp(batch, "client is not available");
+            requestCompleted();
+            return;
+        }
+        final DynamoDbAsyncTable<T> table;
+        final CompletableFuture<BatchWriteResult> future;
+        Instant start = Instant.now();
+        try {
+            table = service.getTable(dtoClass);
+            WriteBatch.Builder<T> writeBatch = WriteBatch.builder(dtoClass).mappedTableResource(table);
+            batch.forEach(writeBatch::addPutItem);
+            future = client.batchWriteItem(BatchWriteItemEnhancedRequest.builder().addWriteBatch(writeBatch.build())
+                    .build());
+        } catch (RuntimeException e) {
+            giveUp(batch, e.getClass().getSimpleName() + " " + e.getMessage());
+            requestCompleted();
+            return;
+        }
+
+        future.whenCompleteAsync((result, exception) -> {
+            try {
+                if (exception == null) {
+                    List<T> unprocessed = result.unprocessedPutItemsForTable(table);
+                    int written = batch.size() - unprocessed.size();
+                    writtenTotal.addAndGet(written);
+                    pendingPermits.release(written);
+                    logger.trace("BatchWriteItem: {} of {} states written to table '{}' in {} ms (attempt {})",
+                            written, batch.size(), table.tableName(),
+                            Duration.between(start, Instant.now()).toMillis(), attempt + 1);
+                    if (unprocessed.isEmpty()) {
+                        increaseConcurrency();
+                    } else {
+                        // DynamoDB returns unprocessed items when the write capacity is exceeded
+                        decreaseConcurrency();
+                        retry(dtoClass, unprocessed, attempt);
+                    }
+                } else {
+                    Throwable cause = exception.getCause() == null ? exception : exception.getCause();
+                    if (cause instanceof ResourceNotFoundException) {
+                        putCreatingTable(batch, table);
+                    } else if (cause instanceof ProvisionedThroughputExceededException
+                            || cause instanceof RequestLimitExceededException) {
+                        decreaseConcurrency();
+                        retry(dtoClass, batch, attempt);
+                    } else if (cause instanceof SdkException && ((SdkException) cause).retryable()) {
+                        retry(dtoClass, batch, attempt);
+                    } else {
+                        giveUp(batch, cause.getClass().getSimpleName() + " " + cause.getMessage());
+                    }
+                }
+            } finally {
+                requestCompleted();
+            }
+        }, executor);
+    }
+
+    private <T extends DynamoDBItem<?>> void retry(Class<T> dtoClass, List<T> batch, int attempt) {
+        if (attempt + 1 >= MAX_ATTEMPTS) {
+            giveUp(batch, "still throttled after " + MAX_ATTEMPTS + " attempts");
+            return;
+        }
+        // exponential backoff with full jitter
+        long maxDelay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        logger.debug("BatchWriteItem: retrying {} states in {} ms", batch.size(), delay);
+        try {
+            scheduler.schedule(() -> {
+                synchronized (this) {
+                    activeRequests++;
+                }
+                send(dtoClass, batch, attempt + 1);
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // writer is stopping, queue the states again for the final flush
+            batch.forEach(this::enqueue);
+        }
+    }
+
+    private <T extends DynamoDBItem<?>> void putCreatingTable(List<T> dtos, DynamoDbAsyncTable<T> table) {
+        for (T dto : dtos) {
+            try {
+                new TableCreatingPutItem<T>(service, dto, table).putItemAsync().whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        writtenTotal.incrementAndGet();
+                    }
+                    pendingPermits.release();
+                });
+            } catch (IllegalStateException e) {
+                giveUp(List.of(dto), e.getMessage());
+            }
+        }
+    }
+
+    private void giveUp(List<? extends DynamoDBItem<?>> batch, String reason) {
+        logger.warn("BatchWriteItem: failed (final), {} states are lost: {}", batch.size(), reason);
+        droppedTotal.addAndGet(batch.size());
+        pendingPermits.release(batch.size());
+    }
+
+    private void requestCompleted() {
+        synchronized (this) {
+            activeRequests--;
+        }
+        if (!isQueueEmpty()) {
+            triggerFlush();
+        }
+    }
+
+    private synchronized void increaseConcurrency() {
+        if (concurrencyLimit < MAX_CONCURRENT_REQUESTS) {
+            concurrencyLimit++;
+            logger.debug("BatchWriteItem: write capacity available, allowing {} concurrent requests",
+                    concurrencyLimit);
+        }
+    }
+
+    private synchronized void decreaseConcurrency() {
+        int newLimit = Math.max(1, concurrencyLimit / 2);
+        if (newLimit != concurrencyLimit) {
+            concurrencyLimit = newLimit;
+            logger.debug("BatchWriteItem: throttled by DynamoDB, allowing {} concurrent requests", concurrencyLimit);
+        }
+    }
+
+    private void triggerFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void dropped(DynamoDBItem<?> dto) {
+        droppedTotal.incrementAndGet();
+        if (droppedSinceLog.getAndIncrement() == 0) {
+            logger.warn("Too many pending writes, dropping states (first was for item '{}')", dto.getName());
+        }
+    }
+}
@@ -13,6 +13,7 @@
 package org.openhab.persistence.dynamodb.internal;
 
 import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -49,6 +50,9 @@ public class DynamoDBConfig {
     public static final String DEFAULT_TABLE_NAME = "openhab";
     public static final long DEFAULT_READ_CAPACITY_UNITS = 1;
     public static final long DEFAULT_WRITE_CAPACITY_UNITS = 1;
+    public static final int DEFAULT_BATCH_SIZE = DynamoDBBatchWriter.MAX_BATCH_SIZE;
+    public static final int DEFAULT_BATCH_INTERVAL = 1000;
+    public static final int DEFAULT_MAX_PENDING_WRITES = 10000;
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBConfig.class);
 
     private long readCapacityUnits;
@@ -60,6 +64,10 @@ public class DynamoDBConfig {
     private String table;
     private String tablePrefixLegacy;
     private @Nullable Integer expireDays;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int batchInterval = DEFAULT_BATCH_INTERVAL;
+    private int maxPendingWrites = DEFAULT_MAX_PENDING_WRITES;
+    private DynamoDBBatchWriter.OverflowPolicy overflowPolicy = DynamoDBBatchWriter.OverflowPolicy.DROP;
 
     /**
      *
@@ -166,31 +174,72 @@ public class DynamoDBConfig {
                 }
             }
 
+            final int batchSize = getIntValue(config, "batchSize", DEFAULT_BATCH_SIZE);
+            if (batchSize < 0 || batchSize > DynamoDBBatchWriter.MAX_BATCH_SIZE) {
+                LOGGER.error("batchSize should be between 0 and {}", DynamoDBBatchWriter.MAX_BATCH_SIZE);
+                return null;
+            }
+            final int batchInterval = getIntValue(config, "batchInterval", DEFAULT_BATCH_INTERVAL);
+            final int maxPendingWrites = getIntValue(config, "maxPendingWrites", DEFAULT_MAX_PENDING_WRITES);
+            if (batchInterval <= 0 || maxPendingWrites <= 0) {
+                LOGGER.error("batchInterval and maxPendingWrites should be positive integers");
+                return null;
+            }
+            final DynamoDBBatchWriter.OverflowPolicy overflowPolicy;
+            String overflowPolicyParam = (String) config.get("overflowPolicy");
+            if (overflowPolicyParam == null || overflowPolicyParam.isBlank()) {
+                overflowPolicy = DynamoDBBatchWriter.OverflowPolicy.DROP;
+            } else {
+                overflowPolicy = DynamoDBBatchWriter.OverflowPolicy
+                        .valueOf(overflowPolicyParam.trim().toUpperCase(Locale.ROOT));
+            }
+
+            final DynamoDBConfig dbConfig;
             switch (tableRevision) {
                 case NEW:
                     LOGGER.debug("Using new DynamoDB table schema");
-                    return DynamoDBConfig.newSchema(region, credentials, retryMode.map(AwsRetryPolicy::forRetryMode),
-                            table, readCapacityUnits, writeCapacityUnits, expireDays);
+                    dbConfig = DynamoDBConfig.newSchema(region, credentials,
+                            retryMode.map(AwsRetryPolicy::forRetryMode), table, readCapacityUnits, writeCapacityUnits,
+                            expireDays);
+                    break;
                 case LEGACY:
                     LOGGER.warn(
                             "Using legacy DynamoDB table schema. It is recommended to transition to new schema by defining 'table' parameter and not configuring 'tablePrefix'");
-                    return DynamoDBConfig.legacySchema(region, credentials, retryMode.map(AwsRetryPolicy::forRetryMode),
-                            tablePrefixLegacy, readCapacityUnits, writeCapacityUnits);
+                    dbConfig = DynamoDBConfig.legacySchema(region, credentials,
+                            retryMode.map(AwsRetryPolicy::forRetryMode), tablePrefixLegacy, readCapacityUnits,
+                            writeCapacityUnits);
+                    break;
                 case MAYBE_LEGACY:
                     LOGGER.debug(
                             "Unclear whether we should use new legacy DynamoDB table schema. It is recommended to explicitly define new 'table' parameter. The correct table schema will be detected at runtime.");
-                    return DynamoDBConfig.maybeLegacySchema(region, credentials,
+                    dbConfig = DynamoDBConfig.maybeLegacySchema(region, credentials,
                             retryMode.map(AwsRetryPolicy::forRetryMode), table, tablePrefixLegacy, readCapacityUnits,
                             writeCapacityUnits, expireDays);
+                    break;
                 default:
                     throw new IllegalStateException("Unhandled enum. Bug");
             }
+            dbConfig.batchSize = batchSize;
+            dbConfig.batchInterval = batchInterval;
+            dbConfig.maxPendingWrites = maxPendingWrites;
+            dbConfig.overflowPolicy = overflowPolicy;
+            return dbConfig;
         } catch (Exception e) {
             LOGGER.error("Error with configuration: {} {}", e.getClass().getSimpleName(), e.getMessage());
             return null;
         }
     }
 
+    private static int getIntValue(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String && !((String) value).isBlank()) {
+            return Integer.parseInt(((String) value).trim());
+        }
+        return defaultValue;
+    }
+
     private static DynamoDBConfig newSchema(Region region, AwsCredentials credentials,
             Optional<RetryPolicy> retryPolicy, String table, long readCapacityUnits, long writeCapacityUnits,
             @Nullable Integer expireDays) {
@@ -261,4 +310,25 @@ public class DynamoDBConfig {
     public @Nullable Integer getExpireDays() {
         return expireDays;
     }
+
+    /**
+     * Get the maximum number of states written in one BatchWriteItem request
+     *
+     * @return batch size, or 0 when every state is written with its own PutItem request
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchInterval() {
+        return batchInterval;
+    }
+
+    public int getMaxPendingWrites() {
+        return maxPendingWrites;
+    }
+
+    public DynamoDBBatchWriter.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
 }
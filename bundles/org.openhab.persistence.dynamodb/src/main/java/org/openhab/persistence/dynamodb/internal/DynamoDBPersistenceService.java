@@ -110,6 +110,7 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     private boolean isProperlyConfigured;
     private @Nullable DynamoDBConfig dbConfig;
     private @Nullable DynamoDBTableNameResolver tableNameResolver;
+    private @Nullable DynamoDBBatchWriter batchWriter;
     private final ExecutorService executor = ThreadPoolManager.getPool(DYNAMODB_THREADPOOL_NAME);
     private static final Duration TIMEOUT_API_CALL = Duration.ofSeconds(60);
     private static final Duration TIMEOUT_API_CALL_ATTEMPT = Duration.ofSeconds(5);
@@ -151,6 +152,16 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         return endpointOverride;
     }
 
+    @Nullable
+    DynamoDbEnhancedAsyncClient getClient() {
+        return client;
+    }
+
+    @Nullable
+    DynamoDBBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     @Nullable
     DynamoDbAsyncClient getLowLevelClient() {
         return lowLevelClient;
@@ -172,6 +183,7 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
 
     @Activate
     public void activate(final @Nullable BundleContext bundleContext, final Map<String, Object> config) {
+        stopBatchWriter();
         disconnect();
         DynamoDBConfig localDbConfig = dbConfig = DynamoDBConfig.fromConfig(config);
         if (localDbConfig == null) {
@@ -191,6 +203,11 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
             return;
         }
 
+        if (localDbConfig.getBatchSize() > 0) {
+            batchWriter = new DynamoDBBatchWriter(this, localDbConfig.getBatchSize(), localDbConfig.getBatchInterval(),
+                    localDbConfig.getMaxPendingWrites(), localDbConfig.getOverflowPolicy());
+        }
+
         isProperlyConfigured = true;
         logger.debug("dynamodb persistence service activated");
     }
@@ -199,9 +216,18 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     public void deactivate() {
         logger.debug("dynamodb persistence service deactivated");
         logIfManyQueuedTasks();
+        stopBatchWriter();
         disconnect();
     }
 
+    private void stopBatchWriter() {
+        DynamoDBBatchWriter localBatchWriter = batchWriter;
+        if (localBatchWriter != null) {
+            localBatchWriter.stop();
+            batchWriter = null;
+        }
+    }
+
     /**
      * Initializes Dynamo DB client and determines schema
      *
@@ -271,7 +297,7 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         }
     }
 
-    private <T extends DynamoDBItem<?>> DynamoDbAsyncTable<T> getTable(Class<T> dtoClass) {
+    <T extends DynamoDBItem<?>> DynamoDbAsyncTable<T> getTable(Class<T> dtoClass) {
         DynamoDbEnhancedAsyncClient localClient = client;
         DynamoDBTableNameResolver localTableNameResolver = tableNameResolver;
         if (!ensureClient() || localClient == null || localTableNameResolver == null) {
@@ -521,58 +547,76 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         // We 'copy' the item for local use. copyItem also normalizes the unit with NumberItems.
         final GenericItem copiedItem = copyItem(itemTemplate, item, effectiveName, null);
 
+        DynamoDBTableNameResolver localTableNameResolver = tableNameResolver;
+        if (localTableNameResolver != null && localTableNameResolver.isFullyResolved()) {
+            // Common case: convert and queue right away instead of handing every store over to the executor
+            try {
+                storeResolved(item, copiedItem, effectiveName, time);
+            } catch (RuntimeException e) {
+                logger.error("Unexcepted error", e);
+            }
+            return;
+        }
         resolveTableSchema().thenAcceptAsync(resolved -> {
             if (!resolved) {
                 logger.warn("Table schema not resolved, not storing item {}.", copiedItem.getName());
                 return;
             }
-
-            DynamoDbEnhancedAsyncClient localClient = client;
-            DynamoDbAsyncClient localLowlevelClient = lowLevelClient;
-            DynamoDBConfig localConfig = dbConfig;
-            DynamoDBTableNameResolver localTableNameResolver = tableNameResolver;
-            if (!isProperlyConfigured || localClient == null || localLowlevelClient == null || localConfig == null
-                    || localTableNameResolver == null) {
-                logger.warn("Not ready to store (config error?), not storing item {}.", item.getName());
-                return;
-            }
-
-            Integer expireDays = localConfig.getExpireDays();
-
-            final DynamoDBItem<?> dto;
-            switch (localTableNameResolver.getTableSchema()) {
-                case NEW:
-                    dto = AbstractDynamoDBItem.fromStateNew(copiedItem, time, expireDays);
-                    break;
-                case LEGACY:
-                    dto = AbstractDynamoDBItem.fromStateLegacy(copiedItem, time);
-                    break;
-                default:
-                    throw new IllegalStateException("Unexpected. Bug");
-            }
-            logger.trace("store() called with item {} {} '{}', which was converted to DTO {}",
-                    copiedItem.getClass().getSimpleName(), effectiveName, copiedItem.getState(), dto);
-            dto.accept(new DynamoDBItemVisitor<TableCreatingPutItem<? extends DynamoDBItem<?>>>() {
-
-                @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(
-                        DynamoDBBigDecimalItem dynamoBigDecimalItem) {
-                    return new TableCreatingPutItem<DynamoDBBigDecimalItem>(DynamoDBPersistenceService.this,
-                            dynamoBigDecimalItem, getTable(DynamoDBBigDecimalItem.class));
-                }
-
-                @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(DynamoDBStringItem dynamoStringItem) {
-                    return new TableCreatingPutItem<DynamoDBStringItem>(DynamoDBPersistenceService.this,
-                            dynamoStringItem, getTable(DynamoDBStringItem.class));
-                }
-            }).putItemAsync();
+            storeResolved(item, copiedItem, effectiveName, time);
         }, executor).exceptionally(e -> {
             logger.error("Unexcepted error", e);
             return null;
         });
     }
 
+    private void storeResolved(Item item, GenericItem copiedItem, String effectiveName, ZonedDateTime time) {
+        DynamoDbEnhancedAsyncClient localClient = client;
+        DynamoDbAsyncClient localLowlevelClient = lowLevelClient;
+        DynamoDBConfig localConfig = dbConfig;
+        DynamoDBTableNameResolver localTableNameResolver = tableNameResolver;
+        if (!isProperlyConfigured || localClient == null || localLowlevelClient == null || localConfig == null
+                || localTableNameResolver == null) {
+            logger.warn("Not ready to store (config error?), not storing item {}.", item.getName());
+            return;
+        }
+
+        Integer expireDays = localConfig.getExpireDays();
+
+        final DynamoDBItem<?> dto;
+        switch (localTableNameResolver.getTableSchema()) {
+            case NEW:
+                dto = AbstractDynamoDBItem.fromStateNew(copiedItem, time, expireDays);
+                break;
+            case LEGACY:
+                dto = AbstractDynamoDBItem.fromStateLegacy(copiedItem, time);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected. Bug");
+        }
+        logger.trace("store() called with item {} {} '{}', which was converted to DTO {}",
+                copiedItem.getClass().getSimpleName(), effectiveName, copiedItem.getState(), dto);
+        DynamoDBBatchWriter localBatchWriter = batchWriter;
+        if (localBatchWriter != null) {
+            localBatchWriter.add(dto);
+            return;
+        }
+        dto.accept(new DynamoDBItemVisitor<TableCreatingPutItem<? extends DynamoDBItem<?>>>() {
+
+            @Override
+            public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(
+                    DynamoDBBigDecimalItem dynamoBigDecimalItem) {
+                return new TableCreatingPutItem<DynamoDBBigDecimalItem>(DynamoDBPersistenceService.this,
+                        dynamoBigDecimalItem, getTable(DynamoDBBigDecimalItem.class));
+            }
+
+            @Override
+            public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(DynamoDBStringItem dynamoStringItem) {
+                return new TableCreatingPutItem<DynamoDBStringItem>(DynamoDBPersistenceService.this,
+                        dynamoStringItem, getTable(DynamoDBStringItem.class));
+            }
+        }).putItemAsync();
+    }
+
     private Item getEffectiveItem(Item item) {
         final Item effectiveItem;
         if (item instanceof GroupItem) {
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+
+/**
+ * Stores more states than fit into a single BatchWriteItem request, for numbers and strings sharing one table.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class BatchWriteIntegrationTest extends BaseIntegrationTest {
+
+    public static final boolean LEGACY_MODE = false;
+    private static final int STATE_COUNT = 60;
+
+    private static @Nullable ZonedDateTime storeStart;
+
+    @SuppressWarnings("null")
+    @BeforeAll
+    public static void populateData() throws InterruptedException {
+        storeStart = ZonedDateTime.now();
+
+        NumberItem numberItem = (NumberItem) ITEMS.get("number");
+        StringItem stringItem = (StringItem) ITEMS.get("string");
+        for (int i = 0; i < STATE_COUNT; i++) {
+            numberItem.setState(new DecimalType(i));
+            stringItem.setState(new StringType("state" + i));
+            // Add some delay to enforce different timestamps in ms accuracy
+            Thread.sleep(2);
+            service.store(numberItem);
+            service.store(stringItem);
+        }
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testAllStatesAreWritten() {
+        waitForAssert(() -> {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < STATE_COUNT; i++) {
+                expected.add(new DecimalType(i).toString());
+            }
+            assertEquals(expected, queryStates("number"));
+        });
+        waitForAssert(() -> {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < STATE_COUNT; i++) {
+                expected.add("state" + i);
+            }
+            assertEquals(expected, queryStates("string"));
+        });
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testNothingIsDropped() {
+        DynamoDBBatchWriter batchWriter = service.getBatchWriter();
+        assertNotNull(batchWriter);
+        waitForAssert(() -> {
+            assertEquals(0, batchWriter.getPendingCount());
+            assertEquals(2 * STATE_COUNT, batchWriter.getWrittenCount());
+        });
+        assertEquals(0, batchWriter.getDroppedCount());
+    }
+
+    @SuppressWarnings("null")
+    private List<String> queryStates(String itemName) {
+        FilterCriteria criteria = new FilterCriteria();
+        criteria.setItemName(itemName);
+        criteria.setBeginDate(storeStart);
+        criteria.setOrdering(Ordering.ASCENDING);
+        criteria.setPageSize(1000);
+        List<String> states = new ArrayList<>();
+        for (HistoricItem historicItem : service.query(criteria)) {
+            states.add(historicItem.getState().toString());
+        }
+        return states;
+    }
+}
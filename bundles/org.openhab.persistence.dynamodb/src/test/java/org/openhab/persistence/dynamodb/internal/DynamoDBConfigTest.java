@@ -246,4 +246,35 @@ public class DynamoDBConfigTest {
         assertEquals(Optional.empty(), fromConfig.getRetryPolicy().map(RetryPolicy::retryMode));
         assertEquals(ExpectedTableSchema.MAYBE_LEGACY, fromConfig.getTableRevision());
     }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testBatchSettingsDefaults() throws Exception {
+        DynamoDBConfig fromConfig = DynamoDBConfig
+                .fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1", "secretKey", "secret1"));
+        assertEquals(25, fromConfig.getBatchSize());
+        assertEquals(1000, fromConfig.getBatchInterval());
+        assertEquals(10000, fromConfig.getMaxPendingWrites());
+        assertEquals(DynamoDBBatchWriter.OverflowPolicy.DROP, fromConfig.getOverflowPolicy());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testBatchSettings() throws Exception {
+        DynamoDBConfig fromConfig = DynamoDBConfig.fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1",
+                "secretKey", "secret1", "batchSize", "10", "batchInterval", "200", "maxPendingWrites", "50",
+                "overflowPolicy", "block"));
+        assertEquals(10, fromConfig.getBatchSize());
+        assertEquals(200, fromConfig.getBatchInterval());
+        assertEquals(50, fromConfig.getMaxPendingWrites());
+        assertEquals(DynamoDBBatchWriter.OverflowPolicy.BLOCK, fromConfig.getOverflowPolicy());
+    }
+
+    @Test
+    public void testInvalidBatchSettings() throws Exception {
+        assertNull(DynamoDBConfig.fromConfig(
+                mapFrom("region", "eu-west-1", "accessKey", "access1", "secretKey", "secret1", "batchSize", "26")));
+        assertNull(DynamoDBConfig.fromConfig(mapFrom("region", "eu-west-1", "accessKey", "access1", "secretKey",
+                "secret1", "overflowPolicy", "wait")));
+    }
 }
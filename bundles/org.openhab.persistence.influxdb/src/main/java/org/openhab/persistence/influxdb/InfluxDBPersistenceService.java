@@ -12,9 +12,14 @@
  */
 package org.openhab.persistence.influxdb;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -23,10 +28,15 @@ import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.OpenHAB;
 import org.openhab.core.config.core.ConfigurableService;
+import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.MetadataRegistry;
+import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.RollershutterItem;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
@@ -35,15 +45,18 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
+import org.openhab.persistence.influxdb.internal.InfluxDBBatchWriter;
 import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBHistoricItem;
 import org.openhab.persistence.influxdb.internal.InfluxDBPersistentItemInfo;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
+import org.openhab.persistence.influxdb.internal.InfluxDBSpillBuffer;
 import org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
 import org.openhab.persistence.influxdb.internal.ItemToStorePointCreator;
 import org.openhab.persistence.influxdb.internal.RepositoryFactory;
+import org.openhab.persistence.influxdb.internal.StreamingQueryResult;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -73,8 +86,8 @@ import org.slf4j.LoggerFactory;
  *         branch from Dominik Vorreiter
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class,
-        QueryablePersistenceService.class }, configurationPid = "org.openhab.influxdb", //
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class,
+        InfluxDBPersistenceService.class }, configurationPid = "org.openhab.influxdb", //
         property = Constants.SERVICE_PID + "=org.openhab.influxdb")
 @ConfigurableService(category = "persistence", label = "InfluxDB Persistence Service", description_uri = InfluxDBPersistenceService.CONFIG_URI)
 public class InfluxDBPersistenceService implements QueryablePersistenceService {
@@ -84,6 +97,9 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     protected static final String CONFIG_URI = "persistence:influxdb";
 
+    private static final String SPILL_FOLDER = OpenHAB.getUserDataFolder() + File.separator + "persistence"
+            + File.separator + "influxdb" + File.separator + "spill";
+
     // External dependencies
     private final ItemRegistry itemRegistry;
     private final MetadataRegistry metadataRegistry;
@@ -94,6 +110,7 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
     // Relax rules because can only be null if component is not active
     private @NonNullByDefault({}) ItemToStorePointCreator itemToStorePointCreator;
     private @NonNullByDefault({}) InfluxDBRepository influxDBRepository;
+    private @NonNullByDefault({}) InfluxDBBatchWriter batchWriter;
 
     @Activate
     public InfluxDBPersistenceService(final @Reference ItemRegistry itemRegistry,
@@ -113,6 +130,8 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             itemToStorePointCreator = new ItemToStorePointCreator(configuration, metadataRegistry);
             influxDBRepository = createInfluxDBRepository();
             influxDBRepository.connect();
+            batchWriter = new InfluxDBBatchWriter(influxDBRepository, configuration.getBatchSize(),
+                    configuration.getFlushInterval(), configuration.getMaxQueueSize(), createSpillBuffer());
         } else {
             logger.error("Cannot load configuration, persistence service wont work");
         }
@@ -125,12 +144,30 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         return RepositoryFactory.createRepository(configuration);
     }
 
+    private @Nullable InfluxDBSpillBuffer createSpillBuffer() {
+        int spillMaxSize = configuration.getSpillMaxSize();
+        if (spillMaxSize <= 0) {
+            return null;
+        }
+        try {
+            return new InfluxDBSpillBuffer(Path.of(SPILL_FOLDER), spillMaxSize * 1024L * 1024L);
+        } catch (IOException e) {
+            logger.warn("Cannot create spill buffer in {}, unwritten points will be kept in memory only: {}",
+                    SPILL_FOLDER, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Disconnect from database when service is deactivated
      */
     @Deactivate
     public void deactivate() {
         logger.debug("InfluxDB persistence service deactivated");
+        if (batchWriter != null) {
+            batchWriter.stop();
+            batchWriter = null;
+        }
         if (influxDBRepository != null) {
             influxDBRepository.disconnect();
             influxDBRepository = null;
@@ -206,7 +243,7 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             InfluxPoint point = itemToStorePointCreator.convert(item, alias);
             if (point != null) {
                 logger.trace("Storing item {} in InfluxDB point {}", item, point);
-                influxDBRepository.write(point);
+                batchWriter.add(point);
             } else {
                 logger.trace("Ignoring item {} as is cannot be converted to a InfluxDB point", item);
             }
@@ -217,6 +254,23 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
+        return query(filter, false);
+    }
+
+    /**
+     * Queries like {@link #query(FilterCriteria)}, optionally letting the database average the values of numeric items
+     * in time windows, so that a time range query returns at most the configured number of values. Downsampling is
+     * meant for displaying values, e.g. in charts, calculations like maximumSince need the stored values.
+     *
+     * @param filter the filter
+     * @param downsample true to downsample the values if queryMaxPoints is configured
+     * @return the matching, possibly downsampled values
+     */
+    public Iterable<HistoricItem> query(FilterCriteria filter, boolean downsample) {
+        return executeQuery(filter, downsample ? calculateAggregationWindow(filter) : null);
+    }
+
+    private Iterable<HistoricItem> executeQuery(FilterCriteria filter, @Nullable Duration aggregationWindow) {
         logger.debug("Got a query for historic points!");
 
         if (influxDBRepository != null && influxDBRepository.isConnected()) {
@@ -226,8 +280,12 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
                     filter.getBeginDate(), filter.getEndDate(), filter.getPageSize(), filter.getPageNumber());
 
             String query = RepositoryFactory.createQueryCreator(configuration, metadataRegistry).createQuery(filter,
-                    configuration.getRetentionPolicy());
+                    configuration.getRetentionPolicy(), aggregationWindow);
             logger.trace("Query {}", query);
+            if (configuration.isQueryStreaming()) {
+                Iterable<InfluxRow> rows = influxDBRepository.queryStreaming(query);
+                return () -> new HistoricItemIterator(rows.iterator());
+            }
             List<InfluxRow> results = influxDBRepository.query(query);
             return results.stream().map(this::mapRow2HistoricItem).collect(Collectors.toList());
         } else {
@@ -236,12 +294,69 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    /**
+     * Chooses the window in which values are averaged by the server, so that a time range query returns at most
+     * the configured number of values. Only unpaged queries of numeric items without a value filter are downsampled.
+     *
+     * @return the window length, or null if the raw values are to be returned
+     */
+    private @Nullable Duration calculateAggregationWindow(FilterCriteria filter) {
+        int maxPoints = configuration.getQueryMaxPoints();
+        ZonedDateTime beginDate = filter.getBeginDate();
+        String itemName = filter.getItemName();
+        if (maxPoints <= 0 || beginDate == null || itemName == null || filter.getPageSize() != Integer.MAX_VALUE
+                || filter.getState() != null || !isNumericItem(itemName)) {
+            return null;
+        }
+        ZonedDateTime endDate = filter.getEndDate();
+        long rangeSeconds = Duration.between(beginDate, endDate != null ? endDate : ZonedDateTime.now()).getSeconds();
+        long windowSeconds = (rangeSeconds + maxPoints - 1) / maxPoints;
+        // averaging windows of a second or less does not reduce the result noticeably
+        return windowSeconds > 1 ? Duration.ofSeconds(windowSeconds) : null;
+    }
+
+    private boolean isNumericItem(String itemName) {
+        Item item = itemRegistry.get(itemName);
+        if (item instanceof GroupItem) {
+            item = ((GroupItem) item).getBaseItem();
+        }
+        return item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem;
+    }
+
     private HistoricItem mapRow2HistoricItem(InfluxRow row) {
         State state = InfluxDBStateConvertUtils.objectToState(row.getValue(), row.getItemName(), itemRegistry);
         return new InfluxDBHistoricItem(row.getItemName(), state,
                 ZonedDateTime.ofInstant(row.getTime(), ZoneId.systemDefault()));
     }
 
+    /**
+     * Maps the rows of a streaming query. Closing it before all values were read cancels the query.
+     */
+    private class HistoricItemIterator implements Iterator<HistoricItem>, AutoCloseable {
+        private final Iterator<InfluxRow> rows;
+
+        private HistoricItemIterator(Iterator<InfluxRow> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public HistoricItem next() {
+            return mapRow2HistoricItem(rows.next());
+        }
+
+        @Override
+        public void close() {
+            if (rows instanceof StreamingQueryResult) {
+                ((StreamingQueryResult) rows).close();
+            }
+        }
+    }
+
     @Override
     public List<PersistenceStrategy> getDefaultStrategies() {
         return List.of(PersistenceStrategy.Globals.RESTORE, PersistenceStrategy.Globals.CHANGE);
@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues points and writes them to InfluxDB in batches.
+ *
+ * Pending points are written as soon as the configured batch size is reached, and at the latest after the configured
+ * flush interval. The in-memory queue is bounded. Batches that cannot be written, and the oldest points of a full
+ * queue, are moved to the optional {@link InfluxDBSpillBuffer}; they are replayed before any new points once the
+ * server accepts writes again. Without a spill buffer, failed batches are kept in the queue for the next attempt and
+ * new points are dropped while the queue is full.
+ *
+ * Spilling and flushing are serialised on the writer's lock, so points reach InfluxDB in the order they were added.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBBatchWriter {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(InfluxDBBatchWriter.class);
+
+    private final InfluxDBRepository repository;
+    private final int batchSize;
+    private final @Nullable InfluxDBSpillBuffer spillBuffer;
+    private final BlockingDeque<InfluxPoint> queue;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong droppedSinceFlush = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong writtenTotal = new AtomicLong();
+    private boolean writeFailing = false;
+
+    /**
+     * Creates and starts a batch writer.
+     *
+     * @param repository repository the points are written to
+     * @param batchSize maximum number of points written at once
+     * @param flushInterval maximum time in milliseconds a point stays queued
+     * @param maxQueueSize maximum number of points kept in memory
+     * @param spillBuffer buffer for points that cannot be written, or null to keep them in memory only
+     */
+    public InfluxDBBatchWriter(InfluxDBRepository repository, int batchSize, long flushInterval, int maxQueueSize,
+            @Nullable InfluxDBSpillBuffer spillBuffer) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.spillBuffer = spillBuffer;
+        this.queue = new LinkedBlockingDeque<>(maxQueueSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("influxdb-batch"));
+        executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a point for writing.
+     *
+     * @param point the point
+     */
+    public void add(InfluxPoint point) {
+        if (!queue.offerLast(point)) {
+            InfluxDBSpillBuffer currentSpillBuffer = spillBuffer;
+            if (currentSpillBuffer == null) {
+                dropped(point);
+                return;
+            }
+            // a running flush may have drained points which are older than the ones spilled now, wait for it
+            synchronized (this) {
+                if (!queue.offerLast(point) && (!spillOldest(currentSpillBuffer) || !queue.offerLast(point))) {
+                    dropped(point);
+                    return;
+                }
+            }
+        }
+        if (queue.size() >= batchSize) {
+            triggerFlush();
+        }
+    }
+
+    /**
+     * Replays the spill buffer and writes all queued points.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        long dropped = droppedSinceFlush.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("Write queue was full, dropped {} points ({} in total)", dropped, droppedTotal.get());
+        }
+
+        long timerStart = System.currentTimeMillis();
+        long writtenBefore = writtenTotal.get();
+        InfluxDBSpillBuffer currentSpillBuffer = spillBuffer;
+        if (currentSpillBuffer != null && currentSpillBuffer.getPointCount() > 0) {
+            int backlog = currentSpillBuffer.getPointCount();
+            if (!currentSpillBuffer.replay(this::writeBatch)) {
+                return;
+            }
+            logger.info("Replayed {} spilled points to InfluxDB", backlog);
+        }
+
+        List<InfluxPoint> batch;
+        while (!(batch = drain()).isEmpty()) {
+            if (!writeBatch(batch)) {
+                keepFailedBatch(batch);
+                break;
+            }
+        }
+        long written = writtenTotal.get() - writtenBefore;
+        if (written > 0) {
+            logger.debug("Wrote {} points in {} ms, {} points queued, {} points in backlog", written,
+                    System.currentTimeMillis() - timerStart, getQueueSize(), getBacklogSize());
+        }
+    }
+
+    /**
+     * Stops the writer and writes all queued points. Points that still cannot be written are moved to the spill
+     * buffer if there is one, otherwise they are lost.
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Pending write did not finish within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            List<InfluxPoint> remaining = new ArrayList<>(queue.size());
+            queue.drainTo(remaining);
+            InfluxDBSpillBuffer currentSpillBuffer = spillBuffer;
+            if (!remaining.isEmpty() && (currentSpillBuffer == null || !currentSpillBuffer.append(remaining))) {
+                logger.warn("Discarding {} points which could not be written to InfluxDB", remaining.size());
+                droppedTotal.addAndGet(remaining.size());
+            }
+        }
+    }
+
+    /**
+     * @return number of points waiting in memory
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of points waiting in the spill buffer
+     */
+    public int getBacklogSize() {
+        InfluxDBSpillBuffer currentSpillBuffer = spillBuffer;
+        return currentSpillBuffer != null ? currentSpillBuffer.getPointCount() : 0;
+    }
+
+    /**
+     * @return number of points dropped since the writer was started
+     */
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    /**
+     * @return number of points written since the writer was started
+     */
+    public long getWrittenCount() {
+        return writtenTotal.get();
+    }
+
+    private List<InfluxPoint> drain() {
+        List<InfluxPoint> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        queue.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    private boolean writeBatch(List<InfluxPoint> batch) {
+        boolean success;
+        try {
+            success = repository.write(batch);
+        } catch (RuntimeException e) {
+            logger.debug("Writing {} points failed: {}", batch.size(), e.getMessage());
+            success = false;
+        }
+        if (success) {
+            writtenTotal.addAndGet(batch.size());
+            if (writeFailing) {
+                writeFailing = false;
+                logger.info("InfluxDB accepts writes again");
+            }
+        } else if (!writeFailing) {
+            writeFailing = true;
+            logger.warn("Writing to InfluxDB failed, {} points are queued and {} points are in backlog",
+                    getQueueSize() + batch.size(), getBacklogSize());
+        }
+        return success;
+    }
+
+    private void keepFailedBatch(List<InfluxPoint> batch) {
+        InfluxDBSpillBuffer currentSpillBuffer = spillBuffer;
+        if (currentSpillBuffer != null && currentSpillBuffer.append(batch)) {
+            return;
+        }
+        // put the batch back in front of the queue, in its original order
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            InfluxPoint point = batch.get(i);
+            if (!queue.offerFirst(point)) {
+                dropped(point);
+            }
+        }
+    }
+
+    private boolean spillOldest(InfluxDBSpillBuffer currentSpillBuffer) {
+        List<InfluxPoint> oldest = drain();
+        if (currentSpillBuffer.append(oldest)) {
+            return true;
+        }
+        keepFailedBatch(oldest);
+        return false;
+    }
+
+    private void triggerFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // writer is stopping, the remaining points are written by stop()
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void dropped(InfluxPoint point) {
+        droppedTotal.incrementAndGet();
+        if (droppedSinceFlush.getAndIncrement() == 0) {
+            logger.warn("Write queue is full, dropping points (first was {})", point);
+        }
+    }
+}
@@ -40,6 +40,13 @@ public class InfluxDBConfiguration {
     public static final String ADD_CATEGORY_TAG_PARAM = "addCategoryTag";
     public static final String ADD_LABEL_TAG_PARAM = "addLabelTag";
     public static final String ADD_TYPE_TAG_PARAM = "addTypeTag";
+    public static final String BATCH_SIZE_PARAM = "batchSize";
+    public static final String FLUSH_INTERVAL_PARAM = "flushInterval";
+    public static final String MAX_QUEUE_SIZE_PARAM = "maxQueueSize";
+    public static final String GZIP_PARAM = "gzip";
+    public static final String SPILL_MAX_SIZE_PARAM = "spillMaxSize";
+    public static final String QUERY_MAX_POINTS_PARAM = "queryMaxPoints";
+    public static final String QUERY_STREAMING_PARAM = "queryStreaming";
     public static InfluxDBConfiguration NO_CONFIGURATION = new InfluxDBConfiguration(Collections.emptyMap());
     private final Logger logger = LoggerFactory.getLogger(InfluxDBConfiguration.class);
     private final String url;
@@ -55,6 +62,15 @@ public class InfluxDBConfiguration {
     private final boolean addTypeTag;
     private final boolean addLabelTag;
 
+    private final int batchSize;
+    private final int flushInterval;
+    private final int maxQueueSize;
+    private final boolean gzip;
+    private final int spillMaxSize;
+
+    private final int queryMaxPoints;
+    private final boolean queryStreaming;
+
     public InfluxDBConfiguration(Map<String, Object> config) {
         url = (String) config.getOrDefault(URL_PARAM, "http://127.0.0.1:8086");
         user = (String) config.getOrDefault(USER_PARAM, "openhab");
@@ -68,6 +84,15 @@ public class InfluxDBConfiguration {
         addCategoryTag = getConfigBooleanValue(config, ADD_CATEGORY_TAG_PARAM, false);
         addLabelTag = getConfigBooleanValue(config, ADD_LABEL_TAG_PARAM, false);
         addTypeTag = getConfigBooleanValue(config, ADD_TYPE_TAG_PARAM, false);
+
+        batchSize = Math.max(1, getConfigIntValue(config, BATCH_SIZE_PARAM, 1000));
+        flushInterval = Math.max(100, getConfigIntValue(config, FLUSH_INTERVAL_PARAM, 1000));
+        maxQueueSize = Math.max(batchSize, getConfigIntValue(config, MAX_QUEUE_SIZE_PARAM, 10000));
+        gzip = getConfigBooleanValue(config, GZIP_PARAM, false);
+        spillMaxSize = Math.max(0, getConfigIntValue(config, SPILL_MAX_SIZE_PARAM, 0));
+
+        queryMaxPoints = Math.max(0, getConfigIntValue(config, QUERY_MAX_POINTS_PARAM, 0));
+        queryStreaming = getConfigBooleanValue(config, QUERY_STREAMING_PARAM, false);
     }
 
     private static boolean getConfigBooleanValue(Map<String, Object> config, String key, boolean defaultValue) {
@@ -81,6 +106,20 @@ public class InfluxDBConfiguration {
         }
     }
 
+    private int getConfigIntValue(Map<String, Object> config, String key, int defaultValue) {
+        Object object = config.get(key);
+        if (object instanceof Number) {
+            return ((Number) object).intValue();
+        } else if (object instanceof String && !((String) object).isBlank()) {
+            try {
+                return Integer.parseInt(((String) object).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid value {} for {}, using {}", object, key, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     private InfluxDBVersion parseInfluxVersion(@Nullable String value) {
         try {
             return Optional.ofNullable(value).map(InfluxDBVersion::valueOf).orElse(InfluxDBVersion.UNKNOWN);
@@ -157,6 +196,40 @@ public class InfluxDBConfiguration {
         return addLabelTag;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * @return maximum size of the spill buffer in megabytes, 0 if spilling is disabled
+     */
+    public int getSpillMaxSize() {
+        return spillMaxSize;
+    }
+
+    /**
+     * @return maximum number of values returned for a time range query, 0 if values are never downsampled
+     */
+    public int getQueryMaxPoints() {
+        return queryMaxPoints;
+    }
+
+    public boolean isQueryStreaming() {
+        return queryStreaming;
+    }
+
     public String getUser() {
         return user;
     }
@@ -175,7 +248,10 @@ public class InfluxDBConfiguration {
                 + password.length() + " chars" + '\'' + ", token='" + token.length() + " chars" + '\''
                 + ", databaseName='" + databaseName + '\'' + ", retentionPolicy='" + retentionPolicy + '\''
                 + ", version=" + version + ", replaceUnderscore=" + replaceUnderscore + ", addCategoryTag="
-                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + '}';
+                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + ", batchSize="
+                + batchSize + ", flushInterval=" + flushInterval + ", maxQueueSize=" + maxQueueSize + ", gzip=" + gzip
+                + ", spillMaxSize=" + spillMaxSize + ", queryMaxPoints=" + queryMaxPoints + ", queryStreaming="
+                + queryStreaming + '}';
         return sb;
     }
 
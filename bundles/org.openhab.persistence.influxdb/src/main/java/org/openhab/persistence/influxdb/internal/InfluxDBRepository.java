@@ -66,9 +66,20 @@ public interface InfluxDBRepository {
     List<InfluxRow> query(String query);
 
     /**
-     * Write point to database
+     * Executes query, reading the results from the server while they are iterated
      *
-     * @param influxPoint Point to write
+     * Every iteration executes the query again.
+     *
+     * @param query Query
+     * @return Query results
+     */
+    Iterable<InfluxRow> queryStreaming(String query);
+
+    /**
+     * Write points to database in a single request
+     *
+     * @param influxPoints Points to write
+     * @return True if the points were written, false if they were rejected or the server is unreachable
      */
-    void write(InfluxPoint influxPoint);
+    boolean write(List<InfluxPoint> influxPoints);
 }
@@ -0,0 +1,345 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded on-disk buffer for points that could not be written to InfluxDB.
+ *
+ * Every spilled batch is stored in its own segment file, so a replay that fails half way only has to keep the segments
+ * which were not written yet. Segments are written to a temporary file first and then moved into place, so a crash
+ * never leaves a partially written segment behind. The buffer survives restarts: existing segments are picked up again
+ * when it is created.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBSpillBuffer {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // marks the segment layout, segments of another layout are discarded
+    private static final int SEGMENT_FORMAT = 0x4F485332;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_DECIMAL = 5;
+
+    private final Logger logger = LoggerFactory.getLogger(InfluxDBSpillBuffer.class);
+
+    private final Path directory;
+    private final long maxSize;
+
+    private long size;
+    private int pointCount;
+    private long nextSegment;
+
+    /**
+     * Creates the buffer and loads the segments left over from a previous run.
+     *
+     * @param directory directory holding the segment files
+     * @param maxSize maximum size of all segments in bytes
+     * @throws IOException if the directory cannot be created or read
+     */
+    public InfluxDBSpillBuffer(Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        for (Path segment : listSegments()) {
+            try (DataInputStream in = openSegment(segment)) {
+                pointCount += readPointCount(in);
+                size += Files.size(segment);
+                nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Discarding unreadable spill segment {}: {}", segment, e.getMessage());
+                Files.deleteIfExists(segment);
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path temp : stream) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        if (pointCount > 0) {
+            logger.info("Found {} points ({} bytes) spilled by a previous run, they will be replayed", pointCount,
+                    size);
+        }
+    }
+
+    /**
+     * Appends a batch of points to the buffer.
+     *
+     * @param points points to store
+     * @return true if the points were stored, false if the buffer is full or cannot be written
+     */
+    public synchronized boolean append(List<InfluxPoint> points) {
+        if (points.isEmpty()) {
+            return true;
+        }
+        if (size >= maxSize) {
+            return false;
+        }
+        Path segment = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX));
+        Path temp = directory.resolve(segment.getFileName() + TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SEGMENT_FORMAT);
+                out.writeInt(points.size());
+                for (InfluxPoint point : points) {
+                    writePoint(out, point);
+                }
+            }
+            long segmentSize = Files.size(temp);
+            if (size + segmentSize > maxSize) {
+                Files.delete(temp);
+                return false;
+            }
+            Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+            nextSegment++;
+            size += segmentSize;
+            pointCount += points.size();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot spill {} points to {}: {}", points.size(), directory, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Hands the buffered segments, oldest first, to the given writer and removes every segment that was written.
+     *
+     * @param writer writes a batch of points and returns whether it succeeded
+     * @return true if the buffer is empty afterwards, false if the writer failed
+     */
+    public synchronized boolean replay(Predicate<List<InfluxPoint>> writer) {
+        List<Path> segments;
+        try {
+            segments = listSegments();
+        } catch (IOException e) {
+            logger.warn("Cannot list spill segments in {}: {}", directory, e.getMessage());
+            return false;
+        }
+        for (Path segment : segments) {
+            long segmentSize;
+            List<InfluxPoint> points;
+            try {
+                segmentSize = Files.size(segment);
+                points = readSegment(segment);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Discarding unreadable spill segment {}: {}", segment, e.getMessage());
+                deleteSegment(segment, 0, 0);
+                continue;
+            }
+            if (!writer.test(points)) {
+                return false;
+            }
+            deleteSegment(segment, segmentSize, points.size());
+        }
+        return true;
+    }
+
+    /**
+     * @return number of points in the buffer
+     */
+    public synchronized int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return size of the buffer in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private void deleteSegment(Path segment, long segmentSize, int segmentPoints) {
+        try {
+            if (segmentSize == 0) {
+                segmentSize = Files.size(segment);
+            }
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            logger.warn("Cannot delete spill segment {}: {}", segment, e.getMessage());
+        }
+        size = Math.max(0, size - segmentSize);
+        pointCount = Math.max(0, pointCount - segmentPoints);
+        if (segmentPoints == 0) {
+            // the number of points of an unreadable segment is unknown, recount what is left
+            recount();
+        }
+    }
+
+    private void recount() {
+        int count = 0;
+        try {
+            for (Path segment : listSegments()) {
+                try (DataInputStream in = openSegment(segment)) {
+                    count += readPointCount(in);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Cannot recount spill segments: {}", e.getMessage());
+        }
+        pointCount = count;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        // segment numbers are zero padded, so the name order is the write order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static DataInputStream openSegment(Path segment) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)));
+    }
+
+    private static int readPointCount(DataInputStream in) throws IOException {
+        int format = in.readInt();
+        if (format != SEGMENT_FORMAT) {
+            throw new IOException("Unknown segment format " + Integer.toHexString(format));
+        }
+        return in.readInt();
+    }
+
+    private static List<InfluxPoint> readSegment(Path segment) throws IOException {
+        try (DataInputStream in = openSegment(segment)) {
+            int count = readPointCount(in);
+            List<InfluxPoint> points = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                points.add(readPoint(in));
+            }
+            return points;
+        }
+    }
+
+    private static void writePoint(DataOutputStream out, InfluxPoint point) throws IOException {
+        writeString(out, point.getMeasurementName());
+        // full precision, points may have been created with a precision below milliseconds
+        Instant time = point.getTime();
+        out.writeLong(time.getEpochSecond());
+        out.writeInt(time.getNano());
+        writeValue(out, point.getValue());
+        Map<String, String> tags = point.getTags();
+        out.writeInt(tags.size());
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writeString(out, tag.getKey());
+            writeString(out, tag.getValue());
+        }
+    }
+
+    private static InfluxPoint readPoint(DataInputStream in) throws IOException {
+        InfluxPoint.Builder builder = InfluxPoint.newBuilder(readString(in))
+                .withTime(Instant.ofEpochSecond(in.readLong(), in.readInt())).withValue(readValue(in));
+        int tagCount = in.readInt();
+        for (int i = 0; i < tagCount; i++) {
+            builder.withTag(readString(in), readString(in));
+        }
+        return builder.build();
+    }
+
+    private static void writeValue(DataOutputStream out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            out.writeByte(TYPE_DECIMAL);
+            writeString(out, value.toString());
+        } else {
+            throw new UnnexpectedConditionException("Not expected value type");
+        }
+    }
+
+    private static @Nullable Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_DECIMAL:
+                return new BigDecimal(readString(in));
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    // DataOutputStream.writeUTF is limited to 64k, which is not enough for e.g. image item values
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands rows received by an asynchronous client query over to the thread iterating the result.
+ *
+ * The client callbacks push rows into a small bounded queue, so the response is only read as fast as it is
+ * consumed. A consumer that stops iterating early calls {@link #close()}, which releases a blocked client thread at
+ * once and makes the client cancel the query. Consumers that only see an {@link Iterable}, like the callers of
+ * persistence queries, cannot close it. If the consumer stops reading without closing the result, the remaining rows
+ * are discarded and the query is cancelled once no row could be handed over for a few seconds, so the client thread
+ * is only held briefly.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class StreamingQueryResult implements Iterator<InfluxRow>, AutoCloseable {
+    private static final int QUEUE_SIZE = 1000;
+    // a consumer reads rows as fast as they are mapped, waiting longer means it stopped reading
+    private static final long DEFAULT_PRODUCER_TIMEOUT_MILLIS = 5000;
+    private static final long CONSUMER_TIMEOUT_SECONDS = 60;
+
+    private static final Object END = new Object();
+
+    private final Logger logger = LoggerFactory.getLogger(StreamingQueryResult.class);
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final long producerTimeoutMillis;
+    private volatile boolean abandoned = false;
+    private @Nullable Object next;
+    private boolean ended = false;
+
+    public StreamingQueryResult() {
+        this(DEFAULT_PRODUCER_TIMEOUT_MILLIS);
+    }
+
+    // Visible for testing
+    StreamingQueryResult(long producerTimeoutMillis) {
+        this.producerTimeoutMillis = producerTimeoutMillis;
+    }
+
+    /**
+     * Called by the client for every received row.
+     *
+     * @param row the row
+     * @return false if the consumer abandoned the result and the query should be cancelled
+     */
+    public boolean push(InfluxRow row) {
+        if (abandoned) {
+            return false;
+        }
+        try {
+            if (!queue.offer(row, producerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.debug("Query result is not consumed, discarding the remaining rows");
+                abandoned = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned = true;
+        }
+        return !abandoned;
+    }
+
+    /**
+     * Called by the client when all rows were received.
+     */
+    public void complete() {
+        end(END);
+    }
+
+    /**
+     * Called by the client when the query failed.
+     *
+     * @param error the cause
+     */
+    public void fail(Throwable error) {
+        end(error);
+    }
+
+    private void end(Object marker) {
+        if (abandoned) {
+            return;
+        }
+        try {
+            if (!queue.offer(marker, producerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                abandoned = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned = true;
+        }
+    }
+
+    /**
+     * Called by the consumer when it does not read the remaining rows. Discards the queued rows, so a client thread
+     * waiting for room continues, and makes the following {@link #push(InfluxRow)} return false.
+     */
+    @Override
+    public void close() {
+        abandoned = true;
+        ended = true;
+        next = null;
+        queue.clear();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        // the producer does not add rows after it gave up waiting for the consumer
+        boolean discarded = abandoned;
+        Object element;
+        try {
+            element = discarded ? queue.poll() : queue.poll(CONSUMER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            element = null;
+        }
+        if (element instanceof InfluxRow) {
+            next = element;
+            return true;
+        }
+        close();
+        if (element == null && discarded) {
+            logger.warn("Query result was not read in time and has been discarded, result is incomplete");
+        } else if (element == null) {
+            logger.warn("Query did not return rows within {} seconds, result is incomplete", CONSUMER_TIMEOUT_SECONDS);
+        } else if (element instanceof Throwable) {
+            logger.warn("Query failed, result is incomplete: {}", ((Throwable) element).getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    public InfluxRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        InfluxRow row = (InfluxRow) next;
+        next = null;
+        return row;
+    }
+}
@@ -16,6 +16,8 @@ import static org.influxdb.querybuilder.BuiltQuery.QueryBuilder.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils.stateToObject;
 
+import java.time.Duration;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.influxdb.dto.Query;
@@ -49,16 +51,23 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Duration aggregationWindow) {
         final String tableName;
         final String itemName = criteria.getItemName();
         boolean hasCriteriaName = itemName != null;
 
         tableName = calculateTableName(itemName);
 
-        Select select = select().column("\"" + COLUMN_VALUE_NAME_V1 + "\"::field")
-                .column("\"" + TAG_ITEM_NAME + "\"::tag")
-                .fromRaw(null, fullQualifiedTableName(retentionPolicy, tableName, hasCriteriaName));
+        Select select;
+        if (aggregationWindow != null) {
+            // tags cannot be selected together with an aggregation, the item name is returned as group tag instead
+            select = select().mean(COLUMN_VALUE_NAME_V1).as(COLUMN_VALUE_NAME_V1).fromRaw(null,
+                    fullQualifiedTableName(retentionPolicy, tableName, hasCriteriaName));
+        } else {
+            select = select().column("\"" + COLUMN_VALUE_NAME_V1 + "\"::field")
+                    .column("\"" + TAG_ITEM_NAME + "\"::tag")
+                    .fromRaw(null, fullQualifiedTableName(retentionPolicy, tableName, hasCriteriaName));
+        }
 
         Where where = select.where();
 
@@ -81,6 +90,10 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
                     stateToObject(criteria.getState())));
         }
 
+        if (aggregationWindow != null) {
+            select = select.groupBy(time(aggregationWindow.getSeconds(), "s"), TAG_ITEM_NAME);
+        }
+
         if (criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING) {
             select = select.orderBy(desc());
         } else if (criteria.getOrdering() == FilterCriteria.Ordering.ASCENDING) {
@@ -30,6 +30,7 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.influxdb.InfluxDB;
 import org.influxdb.InfluxDBFactory;
+import org.influxdb.dto.BatchPoints;
 import org.influxdb.dto.Point;
 import org.influxdb.dto.Pong;
 import org.influxdb.dto.Query;
@@ -38,6 +39,7 @@ import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
+import org.openhab.persistence.influxdb.internal.StreamingQueryResult;
 import org.openhab.persistence.influxdb.internal.UnnexpectedConditionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +54,8 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(InfluxDB1RepositoryImpl.class);
     private InfluxDBConfiguration configuration;
     @Nullable
@@ -72,7 +76,9 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
                 configuration.getPassword());
         createdClient.setDatabase(configuration.getDatabaseName());
         createdClient.setRetentionPolicy(configuration.getRetentionPolicy());
-        createdClient.enableBatch(200, 100, TimeUnit.MILLISECONDS);
+        if (configuration.isGzip()) {
+            createdClient.enableGzip();
+        }
         this.client = createdClient;
         return checkConnectionStatus();
     }
@@ -115,13 +121,22 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
     }
 
     @Override
-    public void write(InfluxPoint point) {
+    public boolean write(List<InfluxPoint> points) {
         final InfluxDB currentClient = this.client;
         if (currentClient != null) {
-            Point clientPoint = convertPointToClientFormat(point);
-            currentClient.write(configuration.getDatabaseName(), configuration.getRetentionPolicy(), clientPoint);
+            BatchPoints.Builder batchPoints = BatchPoints.database(configuration.getDatabaseName())
+                    .retentionPolicy(configuration.getRetentionPolicy());
+            points.forEach(point -> batchPoints.point(convertPointToClientFormat(point)));
+            try {
+                currentClient.write(batchPoints.build());
+                return true;
+            } catch (RuntimeException e) {
+                logger.debug("Writing {} points failed: {}", points.size(), e.getMessage());
+                return false;
+            }
         } else {
-            logger.warn("Write point {} ignored due to client isn't connected", point);
+            logger.warn("Write of {} points ignored due to client isn't connected", points.size());
+            return false;
         }
     }
 
@@ -160,7 +175,42 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         }
     }
 
-    private List<InfluxRow> convertClientResutToRepository(List<QueryResult.Result> results) {
+    @Override
+    public Iterable<InfluxRow> queryStreaming(String query) {
+        return () -> {
+            StreamingQueryResult result = new StreamingQueryResult();
+            final InfluxDB currentClient = client;
+            if (currentClient != null) {
+                Query parsedQuery = new Query(query, configuration.getDatabaseName());
+                try {
+                    currentClient.query(parsedQuery, QUERY_CHUNK_SIZE, (cancellable, chunk) -> {
+                        if (chunk.hasError()) {
+                            result.fail(new IllegalStateException(chunk.getError()));
+                            cancellable.cancel();
+                            return;
+                        }
+                        for (InfluxRow row : convertClientResutToRepository(chunk.getResults())) {
+                            if (!result.push(row)) {
+                                cancellable.cancel();
+                                break;
+                            }
+                        }
+                    }, result::complete, result::fail);
+                } catch (RuntimeException e) {
+                    result.fail(e);
+                }
+            } else {
+                logger.warn("Returning empty list because queryAPI isn't present");
+                result.complete();
+            }
+            return result;
+        };
+    }
+
+    private List<InfluxRow> convertClientResutToRepository(@Nullable List<QueryResult.Result> results) {
+        if (results == null) {
+            return Collections.emptyList();
+        }
         List<InfluxRow> rows = new ArrayList<>();
         for (QueryResult.Result result : results) {
             List<QueryResult.Series> seriess = result.getSeries();
@@ -196,15 +246,22 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
                             if (valueColumn == null || timestampColumn == null) {
                                 throw new IllegalStateException("missing column");
                             }
+                            // grouped (downsampled) results carry the item name as series tag
+                            Map<String, String> seriesTags = series.getTags();
+                            String taggedItemName = seriesTags != null ? seriesTags.get(TAG_ITEM_NAME) : null;
+                            String seriesName = taggedItemName != null ? taggedItemName : series.getName();
                             for (int i = 0; i < valuess.size(); i++) {
-                                Double rawTime = (Double) Objects.requireNonNull(valuess.get(i).get(timestampColumn));
-                                Instant time = Instant.ofEpochMilli(rawTime.longValue());
+                                Instant time = parseTime(Objects.requireNonNull(valuess.get(i).get(timestampColumn)));
                                 @Nullable
                                 Object value = valuess.get(i).get(valueColumn);
+                                if (value == null) {
+                                    // empty window of a downsampled result
+                                    continue;
+                                }
                                 var currentI = i;
                                 String itemName = Optional.ofNullable(itemNameColumn)
                                         .flatMap(inc -> Optional.ofNullable((String) valuess.get(currentI).get(inc)))
-                                        .orElse(series.getName());
+                                        .orElse(seriesName);
                                 logger.trace("adding historic item {}: time {} value {}", itemName, time, value);
                                 rows.add(new InfluxRow(time, itemName, value));
                             }
@@ -216,6 +273,15 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         return rows;
     }
 
+    private Instant parseTime(Object rawTime) {
+        // chunked queries cannot request an epoch precision and return RFC3339 timestamps
+        if (rawTime instanceof Number) {
+            return Instant.ofEpochMilli(((Number) rawTime).longValue());
+        } else {
+            return Instant.parse(rawTime.toString());
+        }
+    }
+
     @Override
     public Map<String, Integer> getStoredItemsCount() {
         return Collections.emptyMap();
@@ -17,9 +17,11 @@ import static com.influxdb.query.dsl.functions.restriction.Restrictions.tag;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils.stateToObject;
 
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.items.MetadataRegistry;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
@@ -49,7 +51,7 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Duration aggregationWindow) {
         Flux flux = Flux.from(retentionPolicy);
 
         RangeFlux range = flux.range();
@@ -87,6 +89,12 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
             flux = flux.filter(restrictions);
         }
 
+        if (aggregationWindow != null) {
+            // label windows with their start like InfluxQL does, and skip empty windows instead of returning nulls
+            flux = flux.expression("aggregateWindow(every: " + aggregationWindow.getSeconds()
+                    + "s, fn: mean, timeSrc: \"" + COLUMN_START_NAME_V2 + "\", createEmpty: false)");
+        }
+
         flux = applyOrderingAndPageSize(criteria, flux);
 
         return flux.toString();
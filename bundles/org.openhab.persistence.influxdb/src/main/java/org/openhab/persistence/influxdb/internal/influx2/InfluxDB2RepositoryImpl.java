@@ -29,6 +29,7 @@ import org.openhab.persistence.influxdb.internal.InfluxDBConstants;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
+import org.openhab.persistence.influxdb.internal.StreamingQueryResult;
 import org.openhab.persistence.influxdb.internal.UnnexpectedConditionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,10 +38,12 @@ import com.influxdb.client.InfluxDBClient;
 import com.influxdb.client.InfluxDBClientFactory;
 import com.influxdb.client.InfluxDBClientOptions;
 import com.influxdb.client.QueryApi;
-import com.influxdb.client.WriteApi;
+import com.influxdb.client.WriteApiBlocking;
 import com.influxdb.client.domain.Ready;
 import com.influxdb.client.domain.WritePrecision;
 import com.influxdb.client.write.Point;
+import com.influxdb.exceptions.InfluxException;
+import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
 
 /**
@@ -57,7 +60,7 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     @Nullable
     private QueryApi queryAPI;
     @Nullable
-    private WriteApi writeAPI;
+    private WriteApiBlocking writeAPI;
 
     public InfluxDB2RepositoryImpl(InfluxDBConfiguration configuration) {
         this.configuration = configuration;
@@ -91,10 +94,13 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         InfluxDBClientOptions clientOptions = optionsBuilder.build();
 
         final InfluxDBClient createdClient = InfluxDBClientFactory.create(clientOptions);
+        if (configuration.isGzip()) {
+            createdClient.enableGzip();
+        }
         this.client = createdClient;
         logger.debug("Succesfully connected to InfluxDB. Instance ready={}", createdClient.ready());
         queryAPI = createdClient.getQueryApi();
-        writeAPI = createdClient.getWriteApi();
+        writeAPI = createdClient.getWriteApiBlocking();
         return checkConnectionStatus();
     }
 
@@ -134,17 +140,26 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     }
 
     /**
-     * Write point to database
+     * Write points to database
      *
-     * @param point
+     * @param points
+     * @return True if the points were written, otherwise false
      */
     @Override
-    public void write(InfluxPoint point) {
-        final WriteApi currentWriteAPI = writeAPI;
+    public boolean write(List<InfluxPoint> points) {
+        final WriteApiBlocking currentWriteAPI = writeAPI;
         if (currentWriteAPI != null) {
-            currentWriteAPI.writePoint(convertPointToClientFormat(point));
+            try {
+                currentWriteAPI.writePoints(
+                        points.stream().map(this::convertPointToClientFormat).collect(Collectors.toList()));
+                return true;
+            } catch (InfluxException e) {
+                logger.debug("Writing {} points failed: {}", points.size(), e.getMessage());
+                return false;
+            }
         } else {
-            logger.warn("Write point {} ignored due to writeAPI isn't present", point);
+            logger.warn("Write of {} points ignored due to writeAPI isn't present", points.size());
+            return false;
         }
     }
 
@@ -187,20 +202,47 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    /**
+     * Executes Flux query, reading the records while they are iterated
+     *
+     * @param query Query
+     * @return Query results
+     */
+    @Override
+    public Iterable<InfluxRow> queryStreaming(String query) {
+        return () -> {
+            StreamingQueryResult result = new StreamingQueryResult();
+            final QueryApi currentQueryAPI = queryAPI;
+            if (currentQueryAPI != null) {
+                currentQueryAPI.query(query, (cancellable, record) -> {
+                    if (!result.push(mapRecordToRow(record))) {
+                        cancellable.cancel();
+                    }
+                }, result::fail, result::complete);
+            } else {
+                logger.warn("Returning empty result because queryAPI isn't present");
+                result.complete();
+            }
+            return result;
+        };
+    }
+
     private List<InfluxRow> convertClientResutToRepository(List<FluxTable> clientResult) {
         return clientResult.stream().flatMap(this::mapRawResultToHistoric).collect(Collectors.toList());
     }
 
     private Stream<InfluxRow> mapRawResultToHistoric(FluxTable rawRow) {
-        return rawRow.getRecords().stream().map(r -> {
-            String itemName = (String) r.getValueByKey(InfluxDBConstants.TAG_ITEM_NAME);
-            if (itemName == null) { // use measurement name if item is not tagged
-                itemName = r.getMeasurement();
-            }
-            Object value = r.getValueByKey(COLUMN_VALUE_NAME_V2);
-            Instant time = (Instant) r.getValueByKey(COLUMN_TIME_NAME_V2);
-            return new InfluxRow(time, itemName, value);
-        });
+        return rawRow.getRecords().stream().map(this::mapRecordToRow);
+    }
+
+    private InfluxRow mapRecordToRow(FluxRecord r) {
+        String itemName = (String) r.getValueByKey(InfluxDBConstants.TAG_ITEM_NAME);
+        if (itemName == null) { // use measurement name if item is not tagged
+            itemName = r.getMeasurement();
+        }
+        Object value = r.getValueByKey(COLUMN_VALUE_NAME_V2);
+        Instant time = (Instant) r.getValueByKey(COLUMN_TIME_NAME_V2);
+        return new InfluxRow(time, itemName, value);
     }
 
     /**
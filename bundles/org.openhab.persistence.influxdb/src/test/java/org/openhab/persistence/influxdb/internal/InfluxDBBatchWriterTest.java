@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the {@link InfluxDBBatchWriter} and {@link InfluxDBSpillBuffer}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBBatchWriterTest {
+    private static final long LONG_INTERVAL = 3600000;
+
+    private @TempDir @NonNullByDefault({}) Path tempDir;
+
+    private final FakeRepository repository = new FakeRepository();
+    private @Nullable InfluxDBBatchWriter writer;
+
+    @AfterEach
+    public void after() {
+        InfluxDBBatchWriter currentWriter = writer;
+        if (currentWriter != null) {
+            currentWriter.stop();
+        }
+    }
+
+    private InfluxDBBatchWriter createWriter(int batchSize, int maxQueueSize,
+            @Nullable InfluxDBSpillBuffer spillBuffer) {
+        InfluxDBBatchWriter createdWriter = new InfluxDBBatchWriter(repository, batchSize, LONG_INTERVAL,
+                maxQueueSize, spillBuffer);
+        writer = createdWriter;
+        return createdWriter;
+    }
+
+    private static InfluxPoint point(long time, Object value) {
+        return InfluxPoint.newBuilder("measurement").withTime(Instant.ofEpochMilli(time)).withValue(value)
+                .withTag(InfluxDBConstants.TAG_ITEM_NAME, "item").build();
+    }
+
+    @Test
+    public void pointsAreWrittenInBatches() {
+        InfluxDBBatchWriter batchWriter = createWriter(2, 100, null);
+        // keep the writer thread from flushing in between
+        synchronized (batchWriter) {
+            for (int i = 0; i < 5; i++) {
+                batchWriter.add(point(i, i));
+            }
+            assertThat(batchWriter.getQueueSize(), is(5));
+        }
+
+        batchWriter.flush();
+
+        assertThat(repository.batches.size(), is(3));
+        assertThat(repository.batches.get(0).size(), is(2));
+        assertThat(repository.batches.get(2).size(), is(1));
+        assertThat(batchWriter.getWrittenCount(), is(5L));
+        assertThat(batchWriter.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void failedBatchIsKeptInMemoryWithoutSpillBuffer() {
+        InfluxDBBatchWriter batchWriter = createWriter(10, 100, null);
+        repository.available = false;
+        batchWriter.add(point(1, 1));
+        batchWriter.flush();
+
+        assertThat(batchWriter.getQueueSize(), is(1));
+
+        repository.available = true;
+        batchWriter.flush();
+
+        assertThat(batchWriter.getQueueSize(), is(0));
+        assertThat(repository.batches.size(), is(1));
+    }
+
+    @Test
+    public void newPointsAreDroppedWhenQueueIsFullWithoutSpillBuffer() {
+        InfluxDBBatchWriter batchWriter = createWriter(10, 2, null);
+        repository.available = false;
+        synchronized (batchWriter) {
+            batchWriter.add(point(1, 1));
+            batchWriter.add(point(2, 2));
+            batchWriter.add(point(3, 3));
+            assertThat(batchWriter.getDroppedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void failedBatchIsSpilledAndReplayedFirst() throws IOException {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        InfluxDBBatchWriter batchWriter = createWriter(10, 100, spillBuffer);
+        repository.available = false;
+        batchWriter.add(point(1, 1));
+        batchWriter.flush();
+
+        assertThat(batchWriter.getQueueSize(), is(0));
+        assertThat(batchWriter.getBacklogSize(), is(1));
+
+        repository.available = true;
+        batchWriter.add(point(2, 2));
+        batchWriter.flush();
+
+        assertThat(batchWriter.getBacklogSize(), is(0));
+        assertThat(repository.batches.size(), is(2));
+        assertThat(repository.batches.get(0).get(0).getTime(), is(Instant.ofEpochMilli(1)));
+        assertThat(repository.batches.get(1).get(0).getTime(), is(Instant.ofEpochMilli(2)));
+    }
+
+    @Test
+    public void oldestPointsAreSpilledWhenQueueIsFull() throws IOException {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        InfluxDBBatchWriter batchWriter = createWriter(2, 2, spillBuffer);
+        repository.available = false;
+        synchronized (batchWriter) {
+            batchWriter.add(point(1, 1));
+            batchWriter.add(point(2, 2));
+            batchWriter.add(point(3, 3));
+
+            assertThat(batchWriter.getQueueSize(), is(1));
+            assertThat(batchWriter.getBacklogSize(), is(2));
+            assertThat(batchWriter.getDroppedCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void spillingWaitsForRunningFlushToKeepOrder() throws Exception {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        InfluxDBBatchWriter batchWriter = createWriter(2, 2, spillBuffer);
+        repository.available = false;
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        repository.blockNextWrite(writeStarted, releaseWrite);
+
+        // the full batch triggers a flush, which drains points 1 and 2 and blocks while writing them
+        batchWriter.add(point(1, 1));
+        batchWriter.add(point(2, 2));
+        assertThat(writeStarted.await(5, TimeUnit.SECONDS), is(true));
+
+        // point 5 finds the queue full and has to spill points 3 and 4
+        Thread adder = new Thread(() -> {
+            batchWriter.add(point(3, 3));
+            batchWriter.add(point(4, 4));
+            batchWriter.add(point(5, 5));
+        });
+        adder.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (adder.getState() != Thread.State.BLOCKED && adder.isAlive()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        releaseWrite.countDown();
+        adder.join(5000);
+
+        repository.available = true;
+        batchWriter.flush();
+
+        List<Long> times = repository.batches.stream().flatMap(List::stream)
+                .map(point -> point.getTime().toEpochMilli()).collect(Collectors.toList());
+        assertThat(times, is(List.of(1L, 2L, 3L, 4L, 5L)));
+    }
+
+    @Test
+    public void spillBufferKeepsFullTimePrecision() throws IOException {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        Instant time = Instant.ofEpochSecond(1650000000, 123456789);
+        spillBuffer.append(List.of(InfluxPoint.newBuilder("measurement").withTime(time).withValue(1).build()));
+
+        List<InfluxPoint> replayed = new ArrayList<>();
+        spillBuffer.replay(replayed::addAll);
+
+        assertThat(replayed.get(0).getTime(), is(time));
+    }
+
+    @Test
+    public void spillBufferSurvivesRestartAndKeepsValueTypes() throws IOException {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        spillBuffer.append(List.of(point(1, "text"), point(2, new BigDecimal("21.5")), point(3, 1), point(4, true)));
+        spillBuffer.append(List.of(point(5, 2.5)));
+
+        InfluxDBSpillBuffer reopened = new InfluxDBSpillBuffer(tempDir, 1024 * 1024);
+        assertThat(reopened.getPointCount(), is(5));
+
+        List<InfluxPoint> replayed = new ArrayList<>();
+        assertThat(reopened.replay(replayed::addAll), is(true));
+
+        assertThat(reopened.getPointCount(), is(0));
+        assertThat(replayed.size(), is(5));
+        assertThat(replayed.get(0).getValue(), is("text"));
+        assertThat(replayed.get(1).getValue(), is(new BigDecimal("21.5")));
+        assertThat(replayed.get(2).getValue(), is(1L));
+        assertThat(replayed.get(3).getValue(), is(true));
+        assertThat(replayed.get(4).getValue(), is(2.5));
+        assertThat(replayed.get(4).getTags(), is(Map.of(InfluxDBConstants.TAG_ITEM_NAME, "item")));
+    }
+
+    @Test
+    public void spillBufferIsBounded() throws IOException {
+        InfluxDBSpillBuffer spillBuffer = new InfluxDBSpillBuffer(tempDir, 100);
+        List<InfluxPoint> points = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(point(i, i));
+        }
+
+        assertThat(spillBuffer.append(points), is(false));
+        assertThat(spillBuffer.getPointCount(), is(0));
+    }
+
+    private static class FakeRepository implements InfluxDBRepository {
+        private final List<List<InfluxPoint>> batches = new ArrayList<>();
+        private volatile boolean available = true;
+        private @Nullable CountDownLatch writeStarted;
+        private @Nullable CountDownLatch releaseWrite;
+
+        /**
+         * Lets the next write block until it is released, and then fail
+         */
+        private synchronized void blockNextWrite(CountDownLatch writeStarted, CountDownLatch releaseWrite) {
+            this.writeStarted = writeStarted;
+            this.releaseWrite = releaseWrite;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean connect() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean checkConnectionStatus() {
+            return available;
+        }
+
+        @Override
+        public Map<String, Integer> getStoredItemsCount() {
+            return Map.of();
+        }
+
+        @Override
+        public List<InfluxRow> query(String query) {
+            return List.of();
+        }
+
+        @Override
+        public Iterable<InfluxRow> queryStreaming(String query) {
+            return List.of();
+        }
+
+        @Override
+        public synchronized boolean write(List<InfluxPoint> influxPoints) {
+            CountDownLatch started = writeStarted;
+            CountDownLatch release = releaseWrite;
+            if (started != null && release != null) {
+                writeStarted = null;
+                releaseWrite = null;
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+            if (!available) {
+                return false;
+            }
+            batches.add(new ArrayList<>(influxPoints));
+            return true;
+        }
+    }
+}
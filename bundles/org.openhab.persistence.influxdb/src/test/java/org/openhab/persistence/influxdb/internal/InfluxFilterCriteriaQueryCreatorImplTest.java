@@ -12,10 +12,12 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -120,6 +122,29 @@ public class InfluxFilterCriteriaQueryCreatorImplTest {
         assertThat(queryV2, equalTo(expectedQueryV2));
     }
 
+    @Test
+    public void testAggregatedRangeCriteria() {
+        FilterCriteria criteria = createBaseCriteria();
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime tomorrow = now.plus(1, ChronoUnit.DAYS);
+        criteria.setBeginDate(now);
+        criteria.setEndDate(tomorrow);
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Duration.ofMinutes(5));
+        assertThat(queryV1, containsString("MEAN("));
+        assertThat(queryV1, containsString(String.format("FROM origin.sampleItem WHERE time >= '%s' AND time <= '%s'",
+                now.toInstant(), tomorrow.toInstant())));
+        assertThat(queryV1, containsString("GROUP BY time(300s)"));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, Duration.ofMinutes(5));
+        String expectedQueryV2 = String.format("from(bucket:\"origin\")\n\t" + "|> range(start:%s, stop:%s)\n\t"
+                + "|> filter(fn: (r) => r[\"_measurement\"] == \"sampleItem\")\n\t"
+                + "|> keep(columns:[\"_measurement\", \"_time\", \"_value\"])\n\t"
+                + "|> aggregateWindow(every: 300s, fn: mean, timeSrc: \"_start\", createEmpty: false)",
+                INFLUX2_DATE_FORMATTER.format(now.toInstant()), INFLUX2_DATE_FORMATTER.format(tomorrow.toInstant()));
+        assertThat(queryV2, equalTo(expectedQueryV2));
+    }
+
     @Test
     public void testValueOperator() {
         FilterCriteria criteria = createBaseCriteria();
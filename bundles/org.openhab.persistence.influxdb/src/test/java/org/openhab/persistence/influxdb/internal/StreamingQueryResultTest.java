@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link StreamingQueryResult}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class StreamingQueryResultTest {
+
+    private static InfluxRow row(long time) {
+        return new InfluxRow(Instant.ofEpochMilli(time), "item", time);
+    }
+
+    @Test
+    public void rowsAreHandedOverInOrder() {
+        StreamingQueryResult result = new StreamingQueryResult();
+        result.push(row(1));
+        result.push(row(2));
+        result.complete();
+
+        assertThat(result.next().getTime(), is(Instant.ofEpochMilli(1)));
+        assertThat(result.next().getTime(), is(Instant.ofEpochMilli(2)));
+        assertThat(result.hasNext(), is(false));
+    }
+
+    @Test
+    public void failureEndsResult() {
+        StreamingQueryResult result = new StreamingQueryResult();
+        result.push(row(1));
+        result.fail(new IllegalStateException("query failed"));
+
+        assertThat(result.hasNext(), is(true));
+        result.next();
+        assertThat(result.hasNext(), is(false));
+    }
+
+    @Test
+    public void closeReleasesBlockedProducer() throws Exception {
+        StreamingQueryResult result = new StreamingQueryResult();
+        CompletableFuture<Boolean> producer = CompletableFuture.supplyAsync(() -> {
+            long time = 0;
+            while (result.push(row(time++))) {
+                // fills the queue until the producer blocks, and continues once the result is closed
+            }
+            return true;
+        });
+        result.next();
+
+        result.close();
+
+        assertThat(producer.get(5, TimeUnit.SECONDS), is(true));
+        assertThat(result.hasNext(), is(false));
+    }
+
+    @Test
+    public void unreadResultReleasesProducerAfterTimeout() throws Exception {
+        StreamingQueryResult result = new StreamingQueryResult(100);
+        CompletableFuture<Long> producer = CompletableFuture.supplyAsync(() -> {
+            long time = 0;
+            while (result.push(row(time))) {
+                time++;
+            }
+            return time;
+        });
+        result.next();
+
+        // the consumer neither reads nor closes the result, as callers of an Iterable do
+        long pushed = producer.get(5, TimeUnit.SECONDS);
+
+        long read = 1;
+        while (result.hasNext()) {
+            result.next();
+            read++;
+        }
+        assertThat(read, is(pushed));
+    }
+}
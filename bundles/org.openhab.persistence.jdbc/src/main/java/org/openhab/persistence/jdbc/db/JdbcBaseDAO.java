@@ -14,13 +14,21 @@ package org.openhab.persistence.jdbc.db;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.measure.Quantity;
@@ -84,6 +92,17 @@ public class JdbcBaseDAO {
     protected String sqlGetItemTables;
     protected String sqlCreateItemTable;
     protected String sqlInsertItemValue;
+    // number of value placeholders in sqlInsertItemValue, e.g. two for an upsert that sets the value again
+    protected int sqlInsertItemValueCount;
+
+    protected static final String STATEMENT_INSERT = "insert";
+    protected static final String STATEMENT_INSERT_WITH_TIME = "insertWithTime";
+
+    // rows read at once by paged queries
+    protected int queryPageSize = 10000;
+
+    // statements built from the SQL templates, per item table
+    private final Map<String, Map<String, String>> tableSqlCache = new ConcurrentHashMap<>();
 
     /********
      * INIT *
@@ -143,6 +162,7 @@ public class JdbcBaseDAO {
         sqlGetItemTables = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema='#jdbcUriDatabaseName#' AND NOT table_name='#itemsManageTable#'";
         sqlCreateItemTable = "CREATE TABLE IF NOT EXISTS #tableName# (time #tablePrimaryKey# NOT NULL, value #dbType#, PRIMARY KEY(time))";
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        sqlInsertItemValueCount = 2;
     }
 
     /**
@@ -317,6 +337,7 @@ public class JdbcBaseDAO {
         if (!vol.isEmpty()) {
             String sql = updateItemTableNamesProvider(vol);
             Yank.execute(sql, null);
+            tableSqlCache.clear();
         }
     }
 
@@ -330,29 +351,98 @@ public class JdbcBaseDAO {
 
     public void doStoreItemValue(Item item, State itemState, ItemVO vo) {
         ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
-                new String[] { "#tableName#", "#tablePrimaryValue#" },
-                new String[] { storedVO.getTableName(), sqlTypes.get("tablePrimaryValue") });
-        Object[] params = new Object[] { storedVO.getValue(), storedVO.getValue() };
+        String sql = getTableSql(storedVO, STATEMENT_INSERT,
+                () -> insertItemValueSql(storedVO, sqlTypes.get("tablePrimaryValue")));
+        Object[] params = insertItemValueParams(storedVO, null);
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, storedVO.getValue());
         Yank.execute(sql, params);
     }
 
     public void doStoreItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) {
+        doStoreItemValue(doPrepareItemValue(item, itemState, vo, date));
+    }
+
+    /**
+     * Converts the state of an item into the value to be stored, without storing it yet. The returned value object
+     * carries the timestamp of the value and can be stored later using {@link #doStoreItemValues(List)}.
+     */
+    public ItemVO doPrepareItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) {
         ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
-                new String[] { "#tableName#", "#tablePrimaryValue#" }, new String[] { storedVO.getTableName(), "?" });
-        java.sql.Timestamp timestamp = new java.sql.Timestamp(date.toInstant().toEpochMilli());
-        Object[] params = new Object[] { storedVO.getValue(), timestamp, storedVO.getValue() };
-        logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, timestamp, storedVO.getValue());
-        Yank.execute(sql, params);
+        storedVO.setTime(new Date(date.toInstant().toEpochMilli()));
+        return storedVO;
+    }
+
+    /**
+     * Stores a single value prepared by {@link #doPrepareItemValue(Item, State, ItemVO, ZonedDateTime)}.
+     *
+     * @return true if the value has been stored
+     */
+    public boolean doStoreItemValue(ItemVO vo) {
+        String sql = storeItemValuesSqlProvider(vo);
+        Object[] params = storeItemValuesParamsProvider(vo);
+        logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, vo.getTime(), vo.getValue());
+        return Yank.execute(sql, params) > 0;
+    }
+
+    /**
+     * Stores several values prepared by {@link #doPrepareItemValue(Item, State, ItemVO, ZonedDateTime)} as one JDBC
+     * batch. All values have to belong to the same item table.
+     *
+     * @return true if the batch has been executed, false if it failed. Depending on the database, some of the values
+     *         may have been stored nevertheless.
+     */
+    public boolean doStoreItemValues(List<ItemVO> vol) {
+        if (vol.isEmpty()) {
+            return true;
+        }
+        String sql = storeItemValuesSqlProvider(vol.get(0));
+        Object[][] params = new Object[vol.size()][];
+        for (int i = 0; i < vol.size(); i++) {
+            params[i] = storeItemValuesParamsProvider(vol.get(i));
+        }
+        logger.debug("JDBC::doStoreItemValues sql={} rows={}", sql, params.length);
+        // Yank logs SQL errors and returns null
+        return Yank.executeBatch(sql, params) != null;
+    }
+
+    /**
+     * Returns the query for the current time as the database stores it for values without an explicit time, see
+     * {@link #doGetDatabaseClockOffset()}.
+     */
+    protected String currentTimeQuery() {
+        return "SELECT " + sqlTypes.get("tablePrimaryValue");
+    }
+
+    /**
+     * Determines the difference between the time the database stores for values without an explicit time (the
+     * tablePrimaryValue SQL type, e.g. NOW()) and the local clock, as seen through JDBC. Adding it to the time a value
+     * has been received gives the timestamp the database would have stored if the value had been written right away.
+     * This includes differences of the clocks and of the time zones of the database session and the JVM.
+     *
+     * @return the offset in milliseconds, or null if the database time could not be read
+     */
+    public @Nullable Long doGetDatabaseClockOffset() {
+        long before = System.currentTimeMillis();
+        Object dbTime = Yank.queryScalar(currentTimeQuery(), Object.class, null);
+        long after = System.currentTimeMillis();
+        if (dbTime == null) {
+            logger.debug("JDBC::doGetDatabaseClockOffset: query '{}' returned no time", currentTimeQuery());
+            return null;
+        }
+        try {
+            return objectAsDate(dbTime).toInstant().toEpochMilli() - (before + after) / 2;
+        } catch (IllegalArgumentException e) {
+            logger.warn("JDBC::doGetDatabaseClockOffset: cannot read the database time: {}", e.getMessage());
+            return null;
+        }
     }
 
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name, ZoneId timeZone) {
         String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name, timeZone);
+        Object[] params = resolveTimeFilterParams(filter, timeZone);
         logger.debug("JDBC::doGetHistItemFilterQuery sql={}", sql);
-        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        List<Object[]> m = Yank.queryObjectArrays(sql, params);
         if (m == null) {
             logger.debug("JDBC::doGetHistItemFilterQuery Query failed. Returning an empty list.");
             return List.of();
@@ -364,24 +454,46 @@ public class JdbcBaseDAO {
                 .collect(Collectors.<HistoricItem> toList());
     }
 
+    /**
+     * Queries the values of an item lazily. The values are read in pages of {@link #getQueryPageSize()} rows when
+     * iterating the result, continuing after the time of the last value read (keyset pagination), so only one page is
+     * held in memory at a time.
+     *
+     * The filter must not be paged itself.
+     */
+    public Iterable<HistoricItem> doGetHistItemFilterQueryPaged(Item item, FilterCriteria filter,
+            int numberDecimalcount, String table, String name, ZoneId timeZone) {
+        return () -> new HistoricItemPageIterator(item, filter, numberDecimalcount, table, name, timeZone);
+    }
+
     public void doDeleteItemValues(FilterCriteria filter, String table, ZoneId timeZone) {
         String sql = histItemFilterDeleteProvider(filter, table, timeZone);
+        Object[] params = resolveTimeFilterParams(filter, timeZone);
         logger.debug("JDBC::doDeleteItemValues sql={}", sql);
-        Yank.execute(sql, null);
+        Yank.execute(sql, params);
     }
 
     /*************
      * Providers *
      *************/
-    static final DateTimeFormatter JDBC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
     protected String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName, ZoneId timeZone) {
         logger.debug(
                 "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
                 filter, numberDecimalcount, table, simpleName);
+        return histItemQueryProvider(resolveTimeFilter(filter, timeZone), filter, numberDecimalcount, table,
+                simpleName);
+    }
 
-        String filterString = resolveTimeFilter(filter, timeZone);
+    /**
+     * Returns the query for the values of an item table.
+     *
+     * @param timeFilter the WHERE clause selecting the time range, may be empty
+     * @param filter the filter providing the ordering and paging, its dates are ignored
+     */
+    protected String histItemQueryProvider(String timeFilter, FilterCriteria filter, int numberDecimalcount,
+            String table, String simpleName) {
+        String filterString = timeFilter;
         filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC";
         if (filter.getPageSize() != Integer.MAX_VALUE) {
             filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
@@ -408,21 +520,53 @@ public class JdbcBaseDAO {
         return deleteString;
     }
 
+    /**
+     * Returns the WHERE clause for the time range of the filter. The dates are bound as parameters, see
+     * {@link #resolveTimeFilterParams(FilterCriteria, ZoneId)}, so the SQL only depends on which dates are set.
+     */
     protected String resolveTimeFilter(FilterCriteria filter, ZoneId timeZone) {
+        return timeRangeClause(filter.getBeginDate() != null, filter.getEndDate() != null);
+    }
+
+    private static String timeRangeClause(boolean lowerBound, boolean upperBound) {
         String filterString = "";
-        if (filter.getBeginDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + JDBC_DATE_FORMAT.format(filter.getBeginDate().withZoneSameInstant(timeZone))
-                    + "'";
+        if (lowerBound) {
+            filterString += " WHERE TIME>?";
         }
-        if (filter.getEndDate() != null) {
+        if (upperBound) {
             filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME<'" + JDBC_DATE_FORMAT.format(filter.getEndDate().withZoneSameInstant(timeZone))
-                    + "'";
+            filterString += " TIME<?";
         }
         return filterString;
     }
 
+    /**
+     * Returns the parameters for the clause returned by {@link #resolveTimeFilter(FilterCriteria, ZoneId)}.
+     */
+    protected Object[] resolveTimeFilterParams(FilterCriteria filter, ZoneId timeZone) {
+        ZonedDateTime beginDate = filter.getBeginDate();
+        ZonedDateTime endDate = filter.getEndDate();
+        List<Object> params = new ArrayList<>(2);
+        if (beginDate != null) {
+            params.add(toTimeParameter(beginDate, timeZone));
+        }
+        if (endDate != null) {
+            params.add(toTimeParameter(endDate, timeZone));
+        }
+        return params.toArray();
+    }
+
+    /**
+     * Converts a filter date to the value bound for the TIME column. The timestamp holds the local time in the
+     * configured time zone, truncated to seconds, so the drivers send the same wall clock time the literal
+     * 'yyyy-MM-dd HH:mm:ss' used before, independent of the time zone of the JVM. Dialects that do not store the
+     * time as a timestamp override this.
+     */
+    protected Object toTimeParameter(ZonedDateTime date, ZoneId timeZone) {
+        return java.sql.Timestamp
+                .valueOf(date.withZoneSameInstant(timeZone).toLocalDateTime().truncatedTo(ChronoUnit.SECONDS));
+    }
+
     private String updateItemTableNamesProvider(List<ItemVO> namesList) {
         logger.debug("JDBC::updateItemTableNamesProvider namesList.size = {}", namesList.size());
         String queryString = "";
@@ -527,9 +671,116 @@ public class JdbcBaseDAO {
         return vo;
     }
 
+    /**
+     * Builds the insert statement of an item table from the sqlInsertItemValue template. Dialects whose template has
+     * additional placeholders override this.
+     *
+     * @param vo the value to store, providing the table name and the database type of the value
+     * @param timeValue SQL for the time of the value, the database's current time or a parameter
+     */
+    protected String insertItemValueSql(ItemVO vo, String timeValue) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), timeValue });
+    }
+
+    /**
+     * SQL for the time parameter of {@link #insertItemValueSql(ItemVO, String)}.
+     */
+    protected String insertTimeParameter() {
+        return "?";
+    }
+
+    /**
+     * Parameters of one row for the SQL returned by {@link #insertItemValueSql(ItemVO, String)}: the time, if it is
+     * bound, followed by the value sqlInsertItemValueCount times. Dialects that change sqlInsertItemValue declare its
+     * number of value placeholders along with it.
+     */
+    protected Object[] insertItemValueParams(ItemVO vo, @Nullable Object time) {
+        List<Object> params = new ArrayList<>(sqlInsertItemValueCount + 1);
+        if (time != null) {
+            params.add(time);
+        }
+        for (int i = 0; i < sqlInsertItemValueCount; i++) {
+            params.add(vo.getValue());
+        }
+        return params.toArray();
+    }
+
+    /**
+     * SQL used by {@link #doStoreItemValues(List)}. The time of the values is always bound as a parameter, as
+     * batched values are written some time after they have been received.
+     */
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return getTableSql(vo, STATEMENT_INSERT_WITH_TIME,
+                () -> insertItemValueSql(vo, insertTimeParameter()));
+    }
+
+    /**
+     * Parameters of one row for the SQL returned by {@link #storeItemValuesSqlProvider(ItemVO)}.
+     */
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return insertItemValueParams(vo, new java.sql.Timestamp(vo.getTime().getTime()));
+    }
+
+    /**
+     * Returns the SQL and parameters for one page of a paged history query.
+     *
+     * @param lastTime time of the last value of the previous page, as returned by the database, or null for the
+     *            first page
+     */
+    protected String histItemPageQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
+            String simpleName, ZoneId timeZone, int pageSize, @Nullable Object lastTime, List<Object> params) {
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        ZonedDateTime beginDate = filter.getBeginDate();
+        ZonedDateTime endDate = filter.getEndDate();
+        // the page continues after the last time of the previous page, in the direction of the ordering
+        @Nullable Object lowerBound = ascending && lastTime != null ? lastTime
+                : beginDate != null ? toTimeParameter(beginDate, timeZone) : null;
+        @Nullable Object upperBound = !ascending && lastTime != null ? lastTime
+                : endDate != null ? toTimeParameter(endDate, timeZone) : null;
+        if (lowerBound != null) {
+            params.add(lowerBound);
+        }
+        if (upperBound != null) {
+            params.add(upperBound);
+        }
+        FilterCriteria pageFilter = new FilterCriteria().setOrdering(filter.getOrdering()).setPageSize(pageSize)
+                .setPageNumber(0);
+        return histItemQueryProvider(timeRangeClause(lowerBound != null, upperBound != null), pageFilter,
+                numberDecimalcount, table, simpleName);
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
+    /**
+     * Returns a statement for an item table, building it only the first time it is requested. Reusing the same SQL
+     * text for every execution avoids replacing the template placeholders over and over again, and allows the driver
+     * and database to reuse their prepared statements.
+     *
+     * The statements are cached per item table and column type, as the type of a table's value column is part of the
+     * statement for some databases.
+     *
+     * @param vo the value, identifying the item table and its column type
+     * @param statement name identifying the statement
+     * @param sqlBuilder builds the statement from its template
+     * @return the SQL of the statement
+     */
+    protected String getTableSql(ItemVO vo, String statement, Supplier<String> sqlBuilder) {
+        Map<String, String> statements = tableSqlCache.get(vo.getTableName());
+        if (statements == null) {
+            statements = tableSqlCache.computeIfAbsent(vo.getTableName(), t -> new ConcurrentHashMap<>());
+        }
+        String key = statement + ":" + vo.getDbType();
+        String sql = statements.get(key);
+        if (sql == null) {
+            sql = sqlBuilder.get();
+            statements.put(key, sql);
+        }
+        return sql;
+    }
+
     protected State objectAsState(Item item, @Nullable Unit<? extends Quantity<?>> unit, Object v) {
         logger.debug(
                 "JDBC::ItemResultHandler::handleResult getState value = '{}', unit = '{}', getClass = '{}', clazz = '{}'",
@@ -563,12 +814,28 @@ public class JdbcBaseDAO {
         }
     }
 
+    /**
+     * Converts a time read from the database. Besides {@link java.sql.Timestamp}, drivers return strings (SQLite) or
+     * java.time types (e.g. LocalDateTime for DATETIME columns with MySQL Connector/J 8).
+     *
+     * @throws IllegalArgumentException if the value is of an unsupported type
+     */
     protected ZonedDateTime objectAsDate(Object v) {
         if (v instanceof java.lang.String) {
             return ZonedDateTime.ofInstant(java.sql.Timestamp.valueOf(v.toString()).toInstant(),
                     ZoneId.systemDefault());
+        } else if (v instanceof java.sql.Timestamp) {
+            return ZonedDateTime.ofInstant(((java.sql.Timestamp) v).toInstant(), ZoneId.systemDefault());
+        } else if (v instanceof Date) {
+            return ZonedDateTime.ofInstant(Instant.ofEpochMilli(((Date) v).getTime()), ZoneId.systemDefault());
+        } else if (v instanceof LocalDateTime) {
+            return ((LocalDateTime) v).atZone(ZoneId.systemDefault());
+        } else if (v instanceof OffsetDateTime) {
+            return ((OffsetDateTime) v).atZoneSameInstant(ZoneId.systemDefault());
+        } else if (v instanceof ZonedDateTime) {
+            return ((ZonedDateTime) v).withZoneSameInstant(ZoneId.systemDefault());
         }
-        return ZonedDateTime.ofInstant(((java.sql.Timestamp) v).toInstant(), ZoneId.systemDefault());
+        throw new IllegalArgumentException("Unsupported time type " + v.getClass().getName());
     }
 
     protected Long objectAsLong(Object v) {
@@ -634,4 +901,74 @@ public class JdbcBaseDAO {
     public String getDataType(Item item) {
         return sqlTypes.get(getItemType(item));
     }
+
+    /**
+     * Number of rows read at once by {@link #doGetHistItemFilterQueryPaged}, 0 if the dialect does not support paged
+     * queries.
+     */
+    public int getQueryPageSize() {
+        return queryPageSize;
+    }
+
+    /**
+     * Iterates over the values of a paged history query, reading the next page when the current one is exhausted.
+     */
+    private class HistoricItemPageIterator implements Iterator<HistoricItem> {
+        private final Item item;
+        private final @Nullable Unit<? extends Quantity<?>> unit;
+        private final FilterCriteria filter;
+        private final int numberDecimalcount;
+        private final String table;
+        private final String name;
+        private final ZoneId timeZone;
+        private final int pageSize = getQueryPageSize();
+
+        private List<Object[]> page = List.of();
+        private int index = 0;
+        private boolean lastPage = false;
+        private @Nullable Object lastTime = null;
+
+        private HistoricItemPageIterator(Item item, FilterCriteria filter, int numberDecimalcount, String table,
+                String name, ZoneId timeZone) {
+            this.item = item;
+            // we already retrieve the unit here once as it is a very costly operation
+            this.unit = item instanceof NumberItem ? ((NumberItem) item).getUnit() : null;
+            this.filter = filter;
+            this.numberDecimalcount = numberDecimalcount;
+            this.table = table;
+            this.name = name;
+            this.timeZone = timeZone;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (index < page.size()) {
+                return true;
+            }
+            if (lastPage) {
+                return false;
+            }
+            List<Object> params = new ArrayList<>(2);
+            String sql = histItemPageQueryProvider(filter, numberDecimalcount, table, name, timeZone, pageSize,
+                    lastTime, params);
+            logger.debug("JDBC::doGetHistItemFilterQueryPaged sql={} params={}", sql, params);
+            List<Object[]> rows = Yank.queryObjectArrays(sql, params.toArray());
+            page = rows == null ? List.of() : rows;
+            index = 0;
+            lastPage = page.size() < pageSize;
+            if (!page.isEmpty()) {
+                lastTime = page.get(page.size() - 1)[0];
+            }
+            return !page.isEmpty();
+        }
+
+        @Override
+        public HistoricItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] o = page.get(index++);
+            return new JdbcHistoricItem(item.getName(), objectAsState(item, unit, o[1]), objectAsDate(o[0]));
+        }
+    }
 }
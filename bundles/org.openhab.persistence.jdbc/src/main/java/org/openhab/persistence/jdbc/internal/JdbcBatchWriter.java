@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.jdbc.dto.ItemVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JdbcBatchWriter} queues prepared item values and writes them to the database in batches, grouped by item
+ * table.
+ *
+ * Pending values are written as soon as the configured batch size is reached, and at the latest after the configured
+ * interval. The queue is bounded: when it is full, new values are either dropped or the storing thread is blocked
+ * until there is room again, depending on the {@link OverflowPolicy}.
+ *
+ * If a batch fails, e.g. because a single row violates a constraint, its values are written one by one, so only the
+ * failing rows are lost. Once {@link #stop()} has been called, {@link #add(ItemVO)} rejects new values, so the caller
+ * can write them directly instead of losing them.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcBatchWriter {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(JdbcBatchWriter.class);
+
+    private final Predicate<List<ItemVO>> tableWriter;
+    private final Predicate<ItemVO> rowWriter;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<ItemVO> queue;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong droppedSinceFlush = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+
+    // add() holds the read lock, stop() takes the write lock, so no value is added after the final flush
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private boolean stopped = false;
+
+    /**
+     * Creates and starts a batch writer.
+     *
+     * @param tableWriter writes a batch of values belonging to a single item table, returns false if the batch failed
+     * @param rowWriter writes a single value of a failed batch, returns false if it failed
+     * @param batchSize number of pending values triggering a write
+     * @param interval maximum time in milliseconds a value stays pending
+     * @param maxQueueSize maximum number of pending values
+     * @param overflowPolicy what to do with new values when the queue is full
+     */
+    public JdbcBatchWriter(Predicate<List<ItemVO>> tableWriter, Predicate<ItemVO> rowWriter, int batchSize,
+            long interval, int maxQueueSize, OverflowPolicy overflowPolicy) {
+        this.tableWriter = tableWriter;
+        this.rowWriter = rowWriter;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("jdbc-batch"));
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a value for writing.
+     *
+     * @param vo the value, as prepared by the DAO
+     * @return false if the writer has been stopped and the value has not been queued
+     */
+    public boolean add(ItemVO vo) {
+        stopLock.readLock().lock();
+        try {
+            if (stopped) {
+                return false;
+            }
+            if (!queue.offer(vo)) {
+                triggerFlush();
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    try {
+                        queue.put(vo);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped(vo);
+                        return true;
+                    }
+                } else {
+                    dropped(vo);
+                    return true;
+                }
+            }
+            if (queue.size() >= batchSize) {
+                triggerFlush();
+            }
+            return true;
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all pending values. Values of the same table are written as one batch; if a table received several
+     * values with the same timestamp, only the last one is written.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        List<ItemVO> pending = new ArrayList<>(queue.size());
+        queue.drainTo(pending);
+
+        long dropped = droppedSinceFlush.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("JDBC::flush: write queue was full, dropped {} values ({} in total)", dropped,
+                    droppedTotal.get());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long timerStart = System.currentTimeMillis();
+        Map<String, Map<Long, ItemVO>> tables = new LinkedHashMap<>();
+        for (ItemVO vo : pending) {
+            tables.computeIfAbsent(vo.getTableName(), t -> new LinkedHashMap<>()).put(vo.getTime().getTime(), vo);
+        }
+        for (Map.Entry<String, Map<Long, ItemVO>> table : tables.entrySet()) {
+            List<ItemVO> values = new ArrayList<>(table.getValue().values());
+            boolean written;
+            try {
+                written = tableWriter.test(values);
+            } catch (RuntimeException e) {
+                logger.debug("JDBC::flush: batch for table '{}' failed: {}", table.getKey(), e.getMessage());
+                written = false;
+            }
+            if (!written) {
+                writeRows(table.getKey(), values);
+            }
+        }
+        logger.debug("JDBC::flush: wrote {} values to {} tables in {} ms", pending.size(), tables.size(),
+                System.currentTimeMillis() - timerStart);
+    }
+
+    private void writeRows(String tableName, List<ItemVO> values) {
+        int failed = 0;
+        for (ItemVO vo : values) {
+            try {
+                if (!rowWriter.test(vo)) {
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                logger.debug("JDBC::flush: failed to write value to table '{}': {}", tableName, e.getMessage());
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            failedTotal.addAndGet(failed);
+            logger.warn("JDBC::flush: failed to write {} of {} values to table '{}'", failed, values.size(),
+                    tableName);
+        }
+    }
+
+    /**
+     * Stops the writer and writes all values still pending. Values added after this method has been called are
+     * rejected by {@link #add(ItemVO)}.
+     */
+    public void stop() {
+        stopLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("JDBC::stop: pending write did not finish within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    public long getFailedCount() {
+        return failedTotal.get();
+    }
+
+    private void triggerFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // writer is stopping, the remaining values are written by stop()
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void dropped(ItemVO vo) {
+        droppedTotal.incrementAndGet();
+        if (droppedSinceFlush.getAndIncrement() == 0) {
+            logger.warn("JDBC::store: write queue is full, dropping values (first was for table '{}')",
+                    vo.getTableName());
+        }
+    }
+}
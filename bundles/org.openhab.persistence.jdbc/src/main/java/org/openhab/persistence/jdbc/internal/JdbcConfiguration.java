@@ -60,6 +60,13 @@ public class JdbcConfiguration {
 
     private int errReconnectThreshold = 0;
 
+    private int batchSize = 0;
+    private long batchInterval = 1000;
+    private int batchQueueSize = 10000;
+    private JdbcBatchWriter.OverflowPolicy batchOverflowPolicy = JdbcBatchWriter.OverflowPolicy.BLOCK;
+
+    private boolean queryStreaming = false;
+
     public int timerCount = 0;
     public int time1000Statements = 0;
     public long timer1000 = 0;
@@ -173,6 +180,41 @@ public class JdbcConfiguration {
             logger.debug("JDBC::updateConfig: rebuildTableNames={}", rebuildTableNames);
         }
 
+        String bs = (String) configuration.get("batchSize");
+        if (bs != null && !bs.isBlank() && isNumericPattern.matcher(bs).matches()) {
+            batchSize = Integer.parseInt(bs);
+            logger.debug("JDBC::updateConfig: batchSize={}", batchSize);
+        }
+
+        String bi = (String) configuration.get("batchInterval");
+        if (bi != null && !bi.isBlank() && isNumericPattern.matcher(bi).matches()) {
+            batchInterval = Math.max(1, Long.parseLong(bi));
+            logger.debug("JDBC::updateConfig: batchInterval={}", batchInterval);
+        }
+
+        String bq = (String) configuration.get("batchQueueSize");
+        if (bq != null && !bq.isBlank() && isNumericPattern.matcher(bq).matches()) {
+            batchQueueSize = Math.max(1, Integer.parseInt(bq));
+            logger.debug("JDBC::updateConfig: batchQueueSize={}", batchQueueSize);
+        }
+
+        String bo = (String) configuration.get("batchOverflowPolicy");
+        if (bo != null && !bo.isBlank()) {
+            try {
+                batchOverflowPolicy = JdbcBatchWriter.OverflowPolicy.valueOf(bo.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("JDBC::updateConfig: unknown batchOverflowPolicy '{}', using '{}'", bo,
+                        batchOverflowPolicy);
+            }
+            logger.debug("JDBC::updateConfig: batchOverflowPolicy={}", batchOverflowPolicy);
+        }
+
+        String qs = (String) configuration.get("queryStreaming");
+        if (qs != null && !qs.isBlank()) {
+            queryStreaming = Boolean.parseBoolean(qs);
+            logger.debug("JDBC::updateConfig: queryStreaming={}", queryStreaming);
+        }
+
         // undocumented
         String ac = (String) configuration.get("maximumPoolSize");
         if (ac != null && !ac.isBlank()) {
@@ -358,6 +400,26 @@ public class JdbcConfiguration {
         return tableIdDigitCount;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatchInterval() {
+        return batchInterval;
+    }
+
+    public int getBatchQueueSize() {
+        return batchQueueSize;
+    }
+
+    public JdbcBatchWriter.OverflowPolicy getBatchOverflowPolicy() {
+        return batchOverflowPolicy;
+    }
+
+    public boolean getQueryStreaming() {
+        return queryStreaming;
+    }
+
     public JdbcBaseDAO getDBDAO() {
         return dBDAO;
     }
@@ -13,12 +13,15 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.sql.SQLInvalidAuthorizationSpecException;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -29,6 +32,7 @@ import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
 import org.openhab.persistence.jdbc.dto.ItemVO;
 import org.openhab.persistence.jdbc.dto.ItemsVO;
 import org.openhab.persistence.jdbc.dto.JdbcPersistenceItemInfo;
@@ -51,7 +55,14 @@ public class JdbcMapper {
     protected int errCnt;
     protected boolean initialized = false;
     protected JdbcConfiguration conf = null;
-    protected final Map<String, String> sqlTables = new HashMap<>();
+    // item name to table name, loaded once from the items table and updated when tables are created
+    protected volatile Map<String, String> sqlTables = new ConcurrentHashMap<>();
+    private final Object tableCreationLock = new Object();
+    protected volatile @Nullable JdbcBatchWriter batchWriter;
+    private static final long DATABASE_CLOCK_OFFSET_UPDATE_INTERVAL = 60000;
+    // difference between the time NOW() of the database returns and the local clock
+    private volatile long databaseClockOffset = 0;
+    private volatile long databaseClockOffsetUpdated = 0;
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
     private static final String ITEM_NAME_PATTERN = "[^a-zA-Z_0-9\\-]";
@@ -158,6 +169,16 @@ public class JdbcMapper {
             logger.error("JDBC::store: Unable to store item '{}'.", item.getName());
             return item;
         }
+        JdbcBatchWriter writer = batchWriter;
+        if (writer != null) {
+            // values without a date get the time they were received, on the clock NOW() of the database would use
+            ZonedDateTime time = date != null ? date
+                    : ZonedDateTime.ofInstant(Instant.now().plusMillis(databaseClockOffset), ZoneId.systemDefault());
+            if (writer.add(conf.getDBDAO().doPrepareItemValue(item, itemState, new ItemVO(tableName, null), time))) {
+                return item;
+            }
+            // the writer is stopping, store the value directly
+        }
         long timerStart = System.currentTimeMillis();
         if (date == null) {
             conf.getDBDAO().doStoreItemValue(item, itemState, new ItemVO(tableName, null));
@@ -169,12 +190,19 @@ public class JdbcMapper {
         return item;
     }
 
-    public List<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
+    public Iterable<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
             Item item) {
         logger.debug(
                 "JDBC::getHistItemFilterQuery filter='{}' numberDecimalcount='{}' table='{}' item='{}' itemName='{}'",
                 (filter != null), numberDecimalcount, table, item, item.getName());
         if (table != null) {
+            flushPendingItemValues();
+            if (conf.getQueryStreaming() && conf.getDBDAO().getQueryPageSize() > 0
+                    && filter.getPageSize() == Integer.MAX_VALUE) {
+                // values are read while iterating the result
+                return conf.getDBDAO().doGetHistItemFilterQueryPaged(item, filter, numberDecimalcount, table,
+                        item.getName(), timeZoneProvider.getTimeZone());
+            }
             long timerStart = System.currentTimeMillis();
             List<HistoricItem> result = conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount,
                     table, item.getName(), timeZoneProvider.getTimeZone());
@@ -192,6 +220,7 @@ public class JdbcMapper {
         logger.debug("JDBC::deleteItemValues filter='{}' table='{}' itemName='{}'", (filter != null), table,
                 filter.getItemName());
         if (table != null) {
+            flushPendingItemValues();
             long timerStart = System.currentTimeMillis();
             conf.getDBDAO().doDeleteItemValues(filter, table, timeZoneProvider.getTimeZone());
             logTime("deleteItemValues", timerStart, System.currentTimeMillis());
@@ -203,6 +232,58 @@ public class JdbcMapper {
         }
     }
 
+    /****************
+     * BATCH WRITES *
+     ****************/
+    protected void startBatchWriter() {
+        if (conf.getBatchSize() <= 0) {
+            return;
+        }
+        JdbcBaseDAO dao = conf.getDBDAO();
+        updateDatabaseClockOffset(dao);
+        batchWriter = new JdbcBatchWriter(vol -> {
+            long timerStart = System.currentTimeMillis();
+            boolean written = dao.doStoreItemValues(vol);
+            logTime("storeItemValues", timerStart, System.currentTimeMillis());
+            if (timerStart - databaseClockOffsetUpdated > DATABASE_CLOCK_OFFSET_UPDATE_INTERVAL) {
+                updateDatabaseClockOffset(dao);
+            }
+            return written;
+        }, dao::doStoreItemValue, conf.getBatchSize(), conf.getBatchInterval(), conf.getBatchQueueSize(),
+                conf.getBatchOverflowPolicy());
+        logger.debug("JDBC::startBatchWriter: batchSize={} batchInterval={} ms", conf.getBatchSize(),
+                conf.getBatchInterval());
+    }
+
+    protected void stopBatchWriter() {
+        JdbcBatchWriter writer = batchWriter;
+        if (writer != null) {
+            // writes the pending values, values stored meanwhile are rejected by the writer and stored directly
+            writer.stop();
+            batchWriter = null;
+        }
+    }
+
+    private void updateDatabaseClockOffset(JdbcBaseDAO dao) {
+        databaseClockOffsetUpdated = System.currentTimeMillis();
+        try {
+            Long offset = dao.doGetDatabaseClockOffset();
+            if (offset != null) {
+                databaseClockOffset = offset;
+                logger.debug("JDBC::updateDatabaseClockOffset: database clock offset is {} ms", offset);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("JDBC::updateDatabaseClockOffset: could not read the database time: {}", e.getMessage());
+        }
+    }
+
+    private void flushPendingItemValues() {
+        JdbcBatchWriter writer = batchWriter;
+        if (writer != null && writer.getPendingCount() > 0) {
+            writer.flush();
+        }
+    }
+
     /***********************
      * DATABASE CONNECTION *
      ***********************/
@@ -270,17 +351,20 @@ public class JdbcMapper {
         } else {
             // Reset the error counter
             errCnt = 0;
-            for (ItemsVO vo : getItemIDTableNames()) {
-                sqlTables.put(vo.getItemname(), getTableName(vo.getItemid(), vo.getItemname()));
+            // replace the index as a whole, entries from a previous configuration may not be valid anymore; tables
+            // created meanwhile are either read from the database or added to the new index
+            synchronized (tableCreationLock) {
+                Map<String, String> tables = new ConcurrentHashMap<>();
+                for (ItemsVO vo : getItemIDTableNames()) {
+                    tables.put(vo.getItemname(), getTableName(vo.getItemid(), vo.getItemname()));
+                }
+                sqlTables = tables;
+                logger.debug("JDBC::checkDBSchema: loaded {} item tables", tables.size());
             }
         }
     }
 
-    protected String getTable(Item item) {
-        int rowId = 0;
-        ItemsVO isvo;
-        ItemVO ivo;
-
+    protected @Nullable String getTable(Item item) {
         String itemName = item.getName();
         String tableName = sqlTables.get(itemName);
 
@@ -289,6 +373,23 @@ public class JdbcMapper {
             return tableName;
         }
 
+        // tables are only created for new items, serialize this so concurrent stores do not create an item twice
+        synchronized (tableCreationLock) {
+            tableName = sqlTables.get(itemName);
+            if (tableName != null) {
+                return tableName;
+            }
+            return createTable(item);
+        }
+    }
+
+    private @Nullable String createTable(Item item) {
+        int rowId = 0;
+        ItemsVO isvo;
+        ItemVO ivo;
+        String itemName = item.getName();
+        String tableName;
+
         logger.debug("JDBC::getTable: no table found for item '{}' in sqlTables", itemName);
 
         // Create a new entry in items table
@@ -298,6 +399,7 @@ public class JdbcMapper {
         rowId = isvo.getItemid();
         if (rowId == 0) {
             logger.error("JDBC::getTable: Creating table for item '{}' failed.", itemName);
+            return null;
         }
         // Create the table name
         logger.debug("JDBC::getTable: getTableName with rowId={} itemName={}", rowId, itemName);
@@ -318,17 +420,6 @@ public class JdbcMapper {
                 dataType);
         sqlTables.put(itemName, tableName);
 
-        // Check if the new entry is in the table list
-        // If it's not in the list, then there was an error and we need to do
-        // some tidying up
-        // The item needs to be removed from the index table to avoid duplicates
-        if (sqlTables.get(itemName) == null) {
-            logger.error("JDBC::getTable: Item '{}' was not added to the table - removing index", itemName);
-            isvo = new ItemsVO();
-            isvo.setItemname(itemName);
-            deleteItemsEntry(isvo);
-        }
-
         return tableName;
     }
 
@@ -13,6 +13,7 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -110,6 +111,7 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
         // closeConnection();
+        stopBatchWriter();
         initialized = false;
     }
 
@@ -213,10 +215,14 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
         }
 
         long timerStart = System.currentTimeMillis();
-        List<HistoricItem> items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
+        Iterable<HistoricItem> items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
         if (logger.isDebugEnabled()) {
-            logger.debug("JDBC: Query for item '{}' returned {} rows in {} ms", itemName, items.size(),
-                    System.currentTimeMillis() - timerStart);
+            if (items instanceof Collection) {
+                logger.debug("JDBC: Query for item '{}' returned {} rows in {} ms", itemName,
+                        ((Collection<?>) items).size(), System.currentTimeMillis() - timerStart);
+            } else {
+                logger.debug("JDBC: Query for item '{}' returned a paged result", itemName);
+            }
         }
 
         // Success
@@ -227,9 +233,12 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
     public void updateConfig(Map<Object, Object> configuration) {
         logger.debug("JDBC::updateConfig");
 
+        // write values still pending with the previous configuration
+        stopBatchWriter();
         conf = new JdbcConfiguration(configuration);
         if (conf.valid && checkDBAccessability()) {
             checkDBSchema();
+            startBatchWriter();
             // connection has been established ... initialization completed!
             initialized = true;
         } else {
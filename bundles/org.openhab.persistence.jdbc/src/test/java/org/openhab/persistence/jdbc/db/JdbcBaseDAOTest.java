@@ -15,11 +15,17 @@ package org.openhab.persistence.jdbc.db;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,6 +59,7 @@ import org.openhab.core.library.unit.SIUnits;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.dto.ItemVO;
 
 /**
  * Tests the {@link JdbcBaseDAO}.
@@ -154,9 +161,7 @@ public class JdbcBaseDAOTest {
         filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
 
         String sql = jdbcBaseDAO.histItemFilterQueryProvider(filter, 0, DB_TABLE_NAME, "TEST", UTC_ZONE_ID);
-        assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME + " WHERE TIME>'" //
-                + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'" //
-                + " AND TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "' ORDER BY time DESC"));
+        assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME + " WHERE TIME>? AND TIME<? ORDER BY time DESC"));
     }
 
     @Test
@@ -179,9 +184,7 @@ public class JdbcBaseDAOTest {
         filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
 
         String sql = jdbcBaseDAO.histItemFilterDeleteProvider(filter, DB_TABLE_NAME, UTC_ZONE_ID);
-        assertThat(sql, is("DELETE FROM " + DB_TABLE_NAME + " WHERE TIME>'" //
-                + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'" //
-                + " AND TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'"));
+        assertThat(sql, is("DELETE FROM " + DB_TABLE_NAME + " WHERE TIME>? AND TIME<?"));
     }
 
     @Test
@@ -195,7 +198,7 @@ public class JdbcBaseDAOTest {
         filter.setBeginDate(parseDateTimeString("2022-01-10T15:01:44"));
 
         String sql = jdbcBaseDAO.resolveTimeFilter(filter, UTC_ZONE_ID);
-        assertThat(sql, is(" WHERE TIME>'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'"));
+        assertThat(sql, is(" WHERE TIME>?"));
     }
 
     @Test
@@ -203,7 +206,7 @@ public class JdbcBaseDAOTest {
         filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
 
         String sql = jdbcBaseDAO.resolveTimeFilter(filter, UTC_ZONE_ID);
-        assertThat(sql, is(" WHERE TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'"));
+        assertThat(sql, is(" WHERE TIME<?"));
     }
 
     @Test
@@ -212,8 +215,107 @@ public class JdbcBaseDAOTest {
         filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
 
         String sql = jdbcBaseDAO.resolveTimeFilter(filter, UTC_ZONE_ID);
-        assertThat(sql, is(" WHERE TIME>'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'" //
-                + " AND TIME<'" + JdbcBaseDAO.JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'"));
+        assertThat(sql, is(" WHERE TIME>? AND TIME<?"));
+    }
+
+    @Test
+    public void testResolveTimeFilterParamsWithNoDatesReturnsNoParams() {
+        Object[] params = jdbcBaseDAO.resolveTimeFilterParams(filter, UTC_ZONE_ID);
+        assertThat(params.length, is(0));
+    }
+
+    @Test
+    public void testResolveTimeFilterParamsWithStartAndEndDateReturnsTimestampsInTimeZone() {
+        filter.setBeginDate(parseDateTimeString("2022-01-10T15:01:44"));
+        filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
+
+        Object[] params = jdbcBaseDAO.resolveTimeFilterParams(filter, ZoneId.of("Europe/Berlin"));
+        assertThat(params.length, is(2));
+        assertThat(params[0], is(Timestamp.valueOf("2022-01-10 16:01:44")));
+        assertThat(params[1], is(Timestamp.valueOf("2022-01-15 16:01:44")));
+    }
+
+    @Test
+    public void testResolveTimeFilterParamsMatchPreviousDateLiteralInAnyJvmTimeZone() {
+        ZonedDateTime date = ZonedDateTime.of(2022, 7, 1, 22, 30, 15, 987_000_000, UTC_ZONE_ID);
+        filter.setBeginDate(date);
+        ZoneId timeZone = ZoneId.of("America/New_York");
+        // the literal the time filter used before the times were bound as parameters
+        String literal = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").format(date.withZoneSameInstant(timeZone));
+
+        TimeZone jvmTimeZone = TimeZone.getDefault();
+        try {
+            for (String jvmZone : List.of("UTC", "Asia/Tokyo", "Europe/Berlin")) {
+                TimeZone.setDefault(TimeZone.getTimeZone(jvmZone));
+                Timestamp timestamp = (Timestamp) jdbcBaseDAO.resolveTimeFilterParams(filter, timeZone)[0];
+                assertThat(timestamp.toString(), is(literal + ".0"));
+            }
+        } finally {
+            TimeZone.setDefault(jvmTimeZone);
+        }
+    }
+
+    @Test
+    public void testHistItemPageQueryProviderFirstPageUsesFilterDates() {
+        filter.setOrdering(Ordering.ASCENDING);
+        filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
+        List<Object> params = new ArrayList<>();
+
+        String sql = jdbcBaseDAO.histItemPageQueryProvider(filter, 0, DB_TABLE_NAME, "TEST", UTC_ZONE_ID, 100, null,
+                params);
+        assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME + " WHERE TIME<? ORDER BY time ASC LIMIT 0,100"));
+        assertThat(params, is(List.of(Timestamp.valueOf("2022-01-15 15:01:44"))));
+    }
+
+    @Test
+    public void testHistItemPageQueryProviderNextPageContinuesAfterLastTime() {
+        filter.setOrdering(Ordering.ASCENDING);
+        filter.setBeginDate(parseDateTimeString("2022-01-10T15:01:44"));
+        filter.setEndDate(parseDateTimeString("2022-01-15T15:01:44"));
+        Timestamp lastTime = Timestamp.valueOf("2022-01-12 10:00:00.123");
+        List<Object> params = new ArrayList<>();
+
+        String sql = jdbcBaseDAO.histItemPageQueryProvider(filter, 0, DB_TABLE_NAME, "TEST", UTC_ZONE_ID, 100,
+                lastTime, params);
+        assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME
+                + " WHERE TIME>? AND TIME<? ORDER BY time ASC LIMIT 0,100"));
+        assertThat(params, is(List.of(lastTime, Timestamp.valueOf("2022-01-15 15:01:44"))));
+    }
+
+    @Test
+    public void testHistItemPageQueryProviderDescendingNextPageContinuesBeforeLastTime() {
+        Timestamp lastTime = Timestamp.valueOf("2022-01-12 10:00:00.123");
+        List<Object> params = new ArrayList<>();
+
+        String sql = jdbcBaseDAO.histItemPageQueryProvider(filter, 0, DB_TABLE_NAME, "TEST", UTC_ZONE_ID, 100,
+                lastTime, params);
+        assertThat(sql,
+                is("SELECT time, value FROM " + DB_TABLE_NAME + " WHERE TIME<? ORDER BY time DESC LIMIT 0,100"));
+        assertThat(params, is(List.of(lastTime)));
+    }
+
+    @Test
+    public void testInsertItemValueParamsBindValueForEveryPlaceholderOfDialect() {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValue(42.0);
+        Timestamp time = Timestamp.valueOf("2022-01-10 15:01:44");
+
+        // the default insert is an upsert, which binds the value twice
+        assertThat(jdbcBaseDAO.insertItemValueParams(vo, null), is(new Object[] { 42.0, 42.0 }));
+        assertThat(jdbcBaseDAO.insertItemValueParams(vo, time), is(new Object[] { time, 42.0, 42.0 }));
+        assertThat(new JdbcPostgresqlDAO().insertItemValueParams(vo, time), is(new Object[] { time, 42.0 }));
+    }
+
+    @Test
+    public void testObjectAsDateAcceptsJavaTimeTypes() {
+        ZonedDateTime expected = ZonedDateTime.of(2022, 1, 10, 15, 1, 44, 0, ZoneId.systemDefault());
+
+        assertThat(jdbcBaseDAO.objectAsDate(expected.toLocalDateTime()), is(expected));
+        assertThat(jdbcBaseDAO.objectAsDate(expected.toOffsetDateTime().withOffsetSameInstant(ZoneOffset.ofHours(5)))
+                .toInstant(), is(expected.toInstant()));
+        assertThat(jdbcBaseDAO.objectAsDate(Timestamp.valueOf(expected.toLocalDateTime())), is(expected));
+        assertThat(jdbcBaseDAO.objectAsDate("2022-01-10 15:01:44"), is(expected));
+        assertThrows(IllegalArgumentException.class, () -> jdbcBaseDAO.objectAsDate(Long.valueOf(0)));
     }
 
     private ZonedDateTime parseDateTimeString(String dts) {
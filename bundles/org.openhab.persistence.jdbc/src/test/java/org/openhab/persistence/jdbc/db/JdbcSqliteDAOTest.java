@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.db;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.persistence.jdbc.dto.ItemVO;
+
+/**
+ * Tests the time parameters of the {@link JdbcSqliteDAO} against an in-memory SQLite database, which stores the time
+ * as text.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcSqliteDAOTest {
+
+    private static final ZoneId UTC_ZONE_ID = ZoneId.of("UTC");
+    private static final String DB_TABLE_NAME = "testitem";
+
+    private final JdbcSqliteDAO jdbcSqliteDAO = new JdbcSqliteDAO();
+    private @NonNullByDefault({}) Connection connection;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + DB_TABLE_NAME
+                    + " (time TIMESTAMP NOT NULL, value DOUBLE, PRIMARY KEY(time))");
+            // the way tablePrimaryValue stores times
+            statement.execute("INSERT INTO " + DB_TABLE_NAME + " VALUES ('2022-01-10 15:00:00.000', 1)");
+            statement.execute("INSERT INTO " + DB_TABLE_NAME + " VALUES ('2022-01-10 16:00:00.500', 2)");
+            statement.execute("INSERT INTO " + DB_TABLE_NAME + " VALUES ('2022-01-10 17:00:00.000', 3)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private List<Object[]> query(String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(new Object[] { resultSet.getObject(1), resultSet.getObject(2) });
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static ZonedDateTime utc(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(UTC_ZONE_ID);
+    }
+
+    @Test
+    public void testTimeFilterParamsCompareWithStoredText() throws SQLException {
+        FilterCriteria filter = new FilterCriteria().setBeginDate(utc("2022-01-10T15:30:00"))
+                .setEndDate(utc("2022-01-10T16:30:00"));
+
+        Object[] params = jdbcSqliteDAO.resolveTimeFilterParams(filter, UTC_ZONE_ID);
+        List<Object[]> rows = query("SELECT time, value FROM " + DB_TABLE_NAME
+                + jdbcSqliteDAO.resolveTimeFilter(filter, UTC_ZONE_ID), params);
+
+        assertThat(params, is(new Object[] { "2022-01-10 15:30:00", "2022-01-10 16:30:00" }));
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0)[0], is("2022-01-10 16:00:00.500"));
+    }
+
+    @Test
+    public void testTimeFilterParamsAreConvertedToConfiguredTimeZone() throws SQLException {
+        // 16:30 in Berlin is 15:30 UTC
+        FilterCriteria filter = new FilterCriteria().setBeginDate(utc("2022-01-10T15:30:00"));
+
+        Object[] params = jdbcSqliteDAO.resolveTimeFilterParams(filter, ZoneId.of("Europe/Berlin"));
+        List<Object[]> rows = query("SELECT time, value FROM " + DB_TABLE_NAME
+                + jdbcSqliteDAO.resolveTimeFilter(filter, UTC_ZONE_ID), params);
+
+        assertThat(params, is(new Object[] { "2022-01-10 16:30:00" }));
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0)[0], is("2022-01-10 17:00:00.000"));
+    }
+
+    @Test
+    public void testPagedQueryContinuesAfterLastTime() throws SQLException {
+        FilterCriteria filter = new FilterCriteria().setOrdering(Ordering.ASCENDING)
+                .setBeginDate(utc("2022-01-10T15:00:00"));
+        List<Object> times = new ArrayList<>();
+        @Nullable Object lastTime = null;
+        while (true) {
+            List<Object> params = new ArrayList<>();
+            String sql = jdbcSqliteDAO.histItemPageQueryProvider(filter, 0, DB_TABLE_NAME, "TEST", UTC_ZONE_ID, 1,
+                    lastTime, params);
+            List<Object[]> page = query(sql, params.toArray());
+            if (page.isEmpty()) {
+                break;
+            }
+            lastTime = page.get(0)[0];
+            times.add(lastTime);
+        }
+
+        // the row at exactly 15:00:00.000 is after the literal '2022-01-10 15:00:00'
+        assertThat(times,
+                is(List.of("2022-01-10 15:00:00.000", "2022-01-10 16:00:00.500", "2022-01-10 17:00:00.000")));
+    }
+
+    @Test
+    public void testStoredValuesAreBoundWithTimeAsText() throws SQLException {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValueTypes("DOUBLE", Double.class);
+        vo.setValue(4.0);
+        LocalDateTime time = LocalDateTime.parse("2022-01-10T16:30:00.250");
+        vo.setTime(Date.from(time.atZone(ZoneId.systemDefault()).toInstant()));
+
+        try (PreparedStatement statement = connection
+                .prepareStatement(jdbcSqliteDAO.storeItemValuesSqlProvider(vo))) {
+            Object[] params = jdbcSqliteDAO.storeItemValuesParamsProvider(vo);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            statement.executeUpdate();
+        }
+
+        List<Object[]> rows = query("SELECT time, value FROM " + DB_TABLE_NAME + " WHERE TIME>? AND TIME<?",
+                "2022-01-10 16:00:01", "2022-01-10 17:00:00");
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0)[0], is("2022-01-10 16:30:00.250"));
+        assertThat(rows.get(0)[1], is(4.0));
+    }
+}
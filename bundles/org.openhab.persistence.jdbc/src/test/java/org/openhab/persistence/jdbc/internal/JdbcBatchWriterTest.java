@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.jdbc.dto.ItemVO;
+
+/**
+ * Tests the {@link JdbcBatchWriter}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcBatchWriterTest {
+
+    private static final long LONG_INTERVAL = 3600000;
+
+    private final List<List<ItemVO>> batches = new ArrayList<>();
+    private final List<ItemVO> rows = new ArrayList<>();
+    private boolean failBatches = false;
+    private @NonNullByDefault({}) JdbcBatchWriter writer;
+
+    @AfterEach
+    public void tearDown() {
+        writer.stop();
+    }
+
+    private void createWriter(int queueSize, JdbcBatchWriter.OverflowPolicy policy) {
+        writer = new JdbcBatchWriter(vol -> {
+            synchronized (batches) {
+                batches.add(vol);
+            }
+            return !failBatches;
+        }, vo -> {
+            synchronized (rows) {
+                rows.add(vo);
+            }
+            // simulates a duplicate key for the value at 2000
+            return vo.getTime().getTime() != 2000;
+        }, 1000, LONG_INTERVAL, queueSize, policy);
+    }
+
+    private static ItemVO value(String table, long time, Object value) {
+        ItemVO vo = new ItemVO(table, null);
+        vo.setTime(new Date(time));
+        vo.setValue(value);
+        return vo;
+    }
+
+    @Test
+    public void testValuesAreGroupedByTable() {
+        createWriter(100, JdbcBatchWriter.OverflowPolicy.BLOCK);
+        writer.add(value("item0001", 1000, 1));
+        writer.add(value("item0002", 1000, 2));
+        writer.add(value("item0001", 2000, 3));
+        assertThat(writer.getPendingCount(), is(3));
+
+        writer.flush();
+
+        assertThat(writer.getPendingCount(), is(0));
+        assertThat(batches.size(), is(2));
+        assertThat(batches.get(0).size(), is(2));
+        assertThat(batches.get(0).get(0).getTableName(), is("item0001"));
+        assertThat(batches.get(1).size(), is(1));
+        assertThat(batches.get(1).get(0).getTableName(), is("item0002"));
+    }
+
+    @Test
+    public void testLastValueWinsForSameTimestamp() {
+        createWriter(100, JdbcBatchWriter.OverflowPolicy.BLOCK);
+        writer.add(value("item0001", 1000, 1));
+        writer.add(value("item0001", 1000, 2));
+
+        writer.flush();
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(1));
+        assertThat(batches.get(0).get(0).getValue(), is(2));
+    }
+
+    @Test
+    public void testDropPolicyDiscardsValuesWhenQueueIsFull() {
+        createWriter(2, JdbcBatchWriter.OverflowPolicy.DROP);
+        // keep the writer thread busy, so the queue is not flushed in between
+        synchronized (writer) {
+            writer.add(value("item0001", 1000, 1));
+            writer.add(value("item0001", 2000, 2));
+            writer.add(value("item0001", 3000, 3));
+            assertThat(writer.getDroppedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void testPendingValuesAreWrittenOnStop() {
+        createWriter(100, JdbcBatchWriter.OverflowPolicy.BLOCK);
+        writer.add(value("item0001", 1000, 1));
+
+        writer.stop();
+
+        assertThat(batches.size(), is(1));
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenRowByRow() {
+        createWriter(100, JdbcBatchWriter.OverflowPolicy.BLOCK);
+        failBatches = true;
+        writer.add(value("item0001", 1000, 1));
+        writer.add(value("item0001", 2000, 2));
+        writer.add(value("item0001", 3000, 3));
+
+        writer.flush();
+
+        assertThat(batches.size(), is(1));
+        assertThat(rows.size(), is(3));
+        assertThat(writer.getFailedCount(), is(1L));
+    }
+
+    @Test
+    public void testValuesAreRejectedAfterStop() {
+        createWriter(100, JdbcBatchWriter.OverflowPolicy.BLOCK);
+        writer.add(value("item0001", 1000, 1));
+        writer.stop();
+
+        assertThat(writer.add(value("item0001", 3000, 2)), is(false));
+        assertThat(writer.getPendingCount(), is(0));
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(1));
+    }
+}
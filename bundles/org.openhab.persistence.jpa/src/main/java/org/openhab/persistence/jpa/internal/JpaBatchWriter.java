@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JpaBatchWriter} queues persistent items and hands them over to the database in batches.
+ *
+ * Pending items are written as soon as the configured batch size is reached, and at the latest after the configured
+ * interval. The queue is bounded, new items are dropped while it is full.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class JpaBatchWriter {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(JpaBatchWriter.class);
+
+    private final Consumer<List<JpaPersistentItem>> batchWriter;
+    private final int batchSize;
+    private final BlockingQueue<JpaPersistentItem> queue;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong droppedSinceFlush = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    /**
+     * Creates and starts a batch writer.
+     *
+     * @param batchWriter persists a batch of items in one transaction, always called from the same thread
+     * @param batchSize number of pending items triggering a write
+     * @param interval maximum time in milliseconds an item stays pending
+     * @param maxQueueSize maximum number of pending items
+     */
+    public JpaBatchWriter(Consumer<List<JpaPersistentItem>> batchWriter, int batchSize, long interval,
+            int maxQueueSize) {
+        this.batchWriter = batchWriter;
+        this.batchSize = batchSize;
+        this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("jpa-batch"));
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an item for writing.
+     *
+     * @param item the item
+     */
+    public void add(JpaPersistentItem item) {
+        if (!queue.offer(item)) {
+            triggerFlush();
+            droppedTotal.incrementAndGet();
+            if (droppedSinceFlush.getAndIncrement() == 0) {
+                logger.warn("Write queue is full, dropping items (first was '{}')", item.getName());
+            }
+            return;
+        }
+        if (queue.size() >= batchSize) {
+            triggerFlush();
+        }
+    }
+
+    /**
+     * Writes all pending items, at most batch size items per transaction.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        long dropped = droppedSinceFlush.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("Write queue was full, dropped {} items ({} in total)", dropped, droppedTotal.get());
+        }
+
+        long timerStart = System.currentTimeMillis();
+        int written = 0;
+        List<JpaPersistentItem> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                batchWriter.accept(batch);
+                written += batch.size();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to persist {} items: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+        if (written > 0) {
+            logger.debug("Persisted {} items in {} ms", written, System.currentTimeMillis() - timerStart);
+        }
+    }
+
+    /**
+     * Stops the writer and writes all items still pending.
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Pending write did not finish within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    private void triggerFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // writer is stopping, the remaining items are written by stop()
+                flushScheduled.set(false);
+            }
+        }
+    }
+}
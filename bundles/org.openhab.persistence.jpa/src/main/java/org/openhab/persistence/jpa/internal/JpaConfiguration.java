@@ -32,6 +32,15 @@ public class JpaConfiguration {
     private static final String CFG_USERNAME = "user";
     private static final String CFG_PASSWORD = "password";
     private static final String CFG_SYNCMAPPING = "syncmappings";
+    private static final String CFG_BATCH_SIZE = "batchSize";
+    private static final String CFG_BATCH_INTERVAL = "batchInterval";
+    private static final String CFG_MAX_QUEUE_SIZE = "maxQueueSize";
+    private static final String CFG_MAX_RESULTS = "maxResults";
+
+    private static final int DEFAULT_BATCH_SIZE = 0;
+    private static final int DEFAULT_BATCH_INTERVAL = 1000;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_MAX_RESULTS = 0;
 
     public static boolean isInitialized = false;
 
@@ -40,6 +49,10 @@ public class JpaConfiguration {
     public final String dbUserName;
     public final String dbPassword;
     public final String dbSyncMapping;
+    public final int batchSize;
+    public final int batchInterval;
+    public final int maxQueueSize;
+    public final int maxResults;
 
     public JpaConfiguration(final Map<String, Object> properties) {
         logger.debug("Update config...");
@@ -77,7 +90,35 @@ public class JpaConfiguration {
         }
         dbSyncMapping = (String) properties.get(CFG_SYNCMAPPING);
 
+        batchSize = getIntValue(properties, CFG_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        batchInterval = getIntValue(properties, CFG_BATCH_INTERVAL, DEFAULT_BATCH_INTERVAL);
+        maxQueueSize = Math.max(getIntValue(properties, CFG_MAX_QUEUE_SIZE, DEFAULT_MAX_QUEUE_SIZE), batchSize);
+        maxResults = getIntValue(properties, CFG_MAX_RESULTS, DEFAULT_MAX_RESULTS);
+        logger.debug("batchSize: {}, batchInterval: {}, maxQueueSize: {}, maxResults: {}", batchSize, batchInterval,
+                maxQueueSize, maxResults);
+
         isInitialized = true;
         logger.debug("Update config... done");
     }
+
+    /**
+     * @return true if stores are queued and written in batches
+     */
+    public boolean isBatchingEnabled() {
+        return batchSize > 0;
+    }
+
+    private int getIntValue(Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String && !((String) value).isBlank()) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid value '{}' for {} in jpa.cfg, using {}", value, key, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -57,6 +57,28 @@ import org.slf4j.LoggerFactory;
 @Component(service = { PersistenceService.class,
         QueryablePersistenceService.class }, configurationPid = "org.openhab.jpa", configurationPolicy = ConfigurationPolicy.REQUIRE)
 public class JpaPersistenceService implements QueryablePersistenceService {
+    private static final int FETCH_BATCH_SIZE = 1000;
+    private static final int STATEMENT_BATCH_LIMIT = 100;
+
+    // JPQL for every combination of begin date, end date and ordering, so the query strings and thus OpenJPA's
+    // compiled query and SQL caches are hit on every query
+    private static final String[] QUERIES = new String[8];
+
+    static {
+        for (int i = 0; i < QUERIES.length; i++) {
+            String queryString = "SELECT n FROM " + JpaPersistentItem.class.getSimpleName()
+                    + " n WHERE n.realName = :itemName";
+            if ((i & 1) != 0) {
+                queryString += " AND n.timestamp >= :beginDate";
+            }
+            if ((i & 2) != 0) {
+                queryString += " AND n.timestamp <= :endDate";
+            }
+            queryString += " ORDER BY n.timestamp " + ((i & 4) != 0 ? "ASC" : "DESC");
+            QUERIES[i] = queryString;
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(JpaPersistenceService.class);
 
     private final ItemRegistry itemRegistry;
@@ -65,6 +87,11 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 
     private @NonNullByDefault({}) JpaConfiguration config;
 
+    private @Nullable JpaBatchWriter batchWriter;
+
+    // only used by the batch writer thread
+    private @Nullable EntityManager batchEntityManager;
+
     @Activate
     public JpaPersistenceService(final @Reference ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
@@ -86,6 +113,10 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     public void activate(BundleContext context, Map<String, Object> properties) {
         logger.debug("Activating jpa persistence service");
         config = new JpaConfiguration(properties);
+        if (config.isBatchingEnabled()) {
+            batchWriter = new JpaBatchWriter(this::persistBatch, config.batchSize, config.batchInterval,
+                    config.maxQueueSize);
+        }
     }
 
     /**
@@ -94,6 +125,12 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     @Deactivate
     public void deactivate() {
         logger.debug("Deactivating jpa persistence service");
+        JpaBatchWriter writer = batchWriter;
+        if (writer != null) {
+            writer.stop();
+            batchWriter = null;
+        }
+        closeBatchEntityManager();
         closeEntityManagerFactory();
     }
 
@@ -142,6 +179,12 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         pItem.setRealName(item.getName());
         pItem.setTimestamp(new Date());
 
+        JpaBatchWriter writer = batchWriter;
+        if (writer != null) {
+            writer.add(pItem);
+            return;
+        }
+
         EntityManager em = getEntityManagerFactory().createEntityManager();
         try {
             logger.debug("Persisting item...");
@@ -160,6 +203,44 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         logger.debug("Storing item...done");
     }
 
+    /**
+     * Persists a batch of items in one transaction, using an entity manager which is kept open between batches.
+     * The persistence context is cleared after each batch, so it does not grow with the number of stored items.
+     *
+     * @param items the items to persist
+     */
+    private void persistBatch(List<JpaPersistentItem> items) {
+        EntityManager em = batchEntityManager;
+        if (em == null || !em.isOpen()) {
+            em = getEntityManagerFactory().createEntityManager();
+            batchEntityManager = em;
+        }
+        try {
+            em.getTransaction().begin();
+            for (JpaPersistentItem pItem : items) {
+                em.persist(pItem);
+            }
+            em.getTransaction().commit();
+            em.clear();
+            logger.debug("Persisted {} items in one transaction", items.size());
+        } catch (RuntimeException e) {
+            logger.error("Error on persisting {} items! Rolling back!", items.size(), e);
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            // start over with a fresh entity manager, the failed one may be in an undefined state
+            closeBatchEntityManager();
+        }
+    }
+
+    private void closeBatchEntityManager() {
+        EntityManager em = batchEntityManager;
+        batchEntityManager = null;
+        if (em != null && em.isOpen()) {
+            em.close();
+        }
+    }
+
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
         return Collections.emptySet();
@@ -177,29 +258,26 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         String itemName = filter.getItemName();
         Item item = getItemFromRegistry(itemName);
 
-        String sortOrder;
-        if (filter.getOrdering() == Ordering.ASCENDING) {
-            sortOrder = "ASC";
-        } else {
-            sortOrder = "DESC";
-        }
-
-        boolean hasBeginDate = false;
-        boolean hasEndDate = false;
-        String queryString = "SELECT n FROM " + JpaPersistentItem.class.getSimpleName()
-                + " n WHERE n.realName = :itemName";
-        if (filter.getBeginDate() != null) {
-            queryString += " AND n.timestamp >= :beginDate";
-            hasBeginDate = true;
-        }
-        if (filter.getEndDate() != null) {
-            queryString += " AND n.timestamp <= :endDate";
-            hasEndDate = true;
-        }
-        queryString += " ORDER BY n.timestamp " + sortOrder;
+        boolean hasBeginDate = filter.getBeginDate() != null;
+        boolean hasEndDate = filter.getEndDate() != null;
+        String queryString = QUERIES[(hasBeginDate ? 1 : 0) | (hasEndDate ? 2 : 0)
+                | (filter.getOrdering() == Ordering.ASCENDING ? 4 : 0)];
 
         logger.debug("The query: {}", queryString);
 
+        // maxResults caps the rows of all pages together, so pages keep their offsets and no rows are skipped
+        long firstResult = (long) filter.getPageNumber() * filter.getPageSize();
+        long maxResults = filter.getPageSize();
+        boolean limited = config.maxResults > 0 && config.maxResults < firstResult + maxResults;
+        if (limited) {
+            maxResults = Math.max(0, config.maxResults - firstResult);
+            if (maxResults == 0) {
+                logger.warn("Query result for item '{}' truncated to {} rows, see the maxResults option", itemName,
+                        config.maxResults);
+                return Collections.emptyList();
+            }
+        }
+
         EntityManager em = getEntityManagerFactory().createEntityManager();
         try {
             // In RESOURCE_LOCAL calls to EntityManager require a begin/commit
@@ -215,14 +293,21 @@ public class JpaPersistenceService implements QueryablePersistenceService {
                 query.setParameter("endDate", Date.from(filter.getEndDate().toInstant()));
             }
 
-            query.setFirstResult(filter.getPageNumber() * filter.getPageSize());
-            query.setMaxResults(filter.getPageSize());
+            query.setFirstResult((int) Math.min(firstResult, Integer.MAX_VALUE));
+            query.setMaxResults((int) maxResults);
+            // JDBC fetch size, so the driver does not buffer the whole result set; the result list itself is still
+            // built completely in memory, only maxResults bounds its size
+            query.setHint("openjpa.FetchPlan.FetchBatchSize", (int) Math.min(maxResults, FETCH_BATCH_SIZE));
             logger.debug("Creating query...done");
 
             logger.debug("Retrieving result list...");
             @SuppressWarnings("unchecked")
             List<JpaPersistentItem> result = query.getResultList();
             logger.debug("Retrieving result list...done");
+            if (limited && result.size() >= maxResults) {
+                logger.warn("Query result for item '{}' truncated to {} rows, see the maxResults option", itemName,
+                        config.maxResults);
+            }
 
             List<HistoricItem> historicList = JpaHistoricItem.fromResultList(result, item);
             logger.debug("{}", String.format("Convert to HistoricItem: %d", historicList.size()));
@@ -264,6 +349,9 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             logger.warn("You are settings openjpa.jdbc.SynchronizeMappings, I hope you know what you're doing!");
             properties.put("openjpa.jdbc.SynchronizeMappings", config.dbSyncMapping);
         }
+        // send the inserts of a batch transaction as JDBC statement batches and reuse the SQL of prepared queries
+        properties.put("openjpa.jdbc.DBDictionary", "batchLimit=" + STATEMENT_BATCH_LIMIT);
+        properties.put("openjpa.jdbc.QuerySQLCache", "true");
 
         EntityManagerFactory fac = Persistence.createEntityManagerFactory(getPersistenceUnitName(), properties);
         logger.debug("Creating EntityManagerFactory...done");
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jpa.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
+
+/**
+ * Tests the {@link JpaBatchWriter}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class JpaBatchWriterTest {
+
+    private static final long LONG_INTERVAL = 3600000;
+
+    private final List<List<JpaPersistentItem>> batches = new ArrayList<>();
+    private boolean failBatches = false;
+    private @NonNullByDefault({}) JpaBatchWriter writer;
+
+    @AfterEach
+    public void tearDown() {
+        writer.stop();
+    }
+
+    private void createWriter(int batchSize, long interval, int queueSize) {
+        writer = new JpaBatchWriter(items -> {
+            synchronized (batches) {
+                batches.add(new ArrayList<>(items));
+                batches.notifyAll();
+            }
+            if (failBatches) {
+                throw new IllegalStateException("database is gone");
+            }
+        }, batchSize, interval, queueSize);
+    }
+
+    private static JpaPersistentItem item(String name) {
+        JpaPersistentItem item = new JpaPersistentItem();
+        item.setName(name);
+        item.setRealName(name);
+        return item;
+    }
+
+    private void awaitBatches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        synchronized (batches) {
+            while (batches.size() < count && System.currentTimeMillis() < deadline) {
+                batches.wait(100);
+            }
+        }
+    }
+
+    @Test
+    public void testFlushWritesBatchesOfBatchSize() {
+        createWriter(2, LONG_INTERVAL, 100);
+        // keep the writer thread from flushing in between
+        synchronized (writer) {
+            for (int i = 0; i < 5; i++) {
+                writer.add(item("item" + i));
+            }
+            assertThat(writer.getPendingCount(), is(5));
+            writer.flush();
+        }
+
+        assertThat(writer.getPendingCount(), is(0));
+        assertThat(batches.size(), is(3));
+        assertThat(batches.get(0).size(), is(2));
+        assertThat(batches.get(1).size(), is(2));
+        assertThat(batches.get(2).size(), is(1));
+    }
+
+    @Test
+    public void testReachingBatchSizeTriggersWrite() throws InterruptedException {
+        createWriter(2, LONG_INTERVAL, 100);
+        writer.add(item("item1"));
+        writer.add(item("item2"));
+
+        awaitBatches(1);
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(2));
+    }
+
+    @Test
+    public void testPendingItemsAreWrittenAfterInterval() throws InterruptedException {
+        createWriter(100, 50, 100);
+        writer.add(item("item1"));
+
+        awaitBatches(1);
+
+        assertThat(batches.size(), is(1));
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testItemsAreDroppedWhenQueueIsFull() {
+        createWriter(100, LONG_INTERVAL, 2);
+        synchronized (writer) {
+            writer.add(item("item1"));
+            writer.add(item("item2"));
+            writer.add(item("item3"));
+
+            assertThat(writer.getPendingCount(), is(2));
+            assertThat(writer.getDroppedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void testFailedBatchDoesNotStopWriter() {
+        createWriter(1, LONG_INTERVAL, 100);
+        failBatches = true;
+        synchronized (writer) {
+            writer.add(item("item1"));
+            writer.add(item("item2"));
+            writer.flush();
+        }
+
+        assertThat(batches.size(), is(2));
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testPendingItemsAreWrittenOnStop() {
+        createWriter(100, LONG_INTERVAL, 100);
+        writer.add(item("item1"));
+        writer.add(item("item2"));
+
+        writer.stop();
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(2));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Groups the commits of stores: a commit happens {@code interval} milliseconds after the first uncommitted store, or
+ * as soon as {@code size} stores are uncommitted. An interval of 0 commits every store.
+ *
+ * {@link #close()} cancels the scheduled commit, waits for a running one and commits what is still pending, so the
+ * database can be closed right afterwards without a commit racing the close.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbCommitter {
+    private final ScheduledExecutorService scheduler;
+    private final Runnable commitAction;
+    // held while committing, so close() can wait for a running commit
+    private final Object commitLock = new Object();
+
+    private volatile long interval;
+    private volatile int size;
+    private int uncommitted;
+    private @Nullable ScheduledFuture<?> scheduledCommit;
+    private volatile boolean closed;
+
+    /**
+     * @param scheduler runs the commits
+     * @param commitAction commits the database
+     * @param interval maximum time in milliseconds a store stays uncommitted, 0 to commit every store
+     * @param size number of uncommitted stores triggering a commit
+     */
+    public MapDbCommitter(ScheduledExecutorService scheduler, Runnable commitAction, long interval, int size) {
+        this.scheduler = scheduler;
+        this.commitAction = commitAction;
+        setLimits(interval, size);
+    }
+
+    public void setLimits(long interval, int size) {
+        this.interval = interval;
+        this.size = Math.max(1, size);
+    }
+
+    /**
+     * Called after every store, schedules its commit.
+     */
+    public synchronized void stored() {
+        if (closed) {
+            return;
+        }
+        uncommitted++;
+        if (interval <= 0 || uncommitted >= size) {
+            scheduler.submit(this::commitPending);
+        } else if (scheduledCommit == null) {
+            scheduledCommit = scheduler.schedule(this::commitPending, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return number of stores not committed yet
+     */
+    public synchronized int getUncommittedCount() {
+        return uncommitted;
+    }
+
+    /**
+     * Stops scheduling commits and commits the pending stores. Stores reported afterwards are not committed.
+     */
+    public void close() {
+        ScheduledFuture<?> commit;
+        synchronized (this) {
+            closed = true;
+            commit = scheduledCommit;
+            scheduledCommit = null;
+        }
+        if (commit != null) {
+            commit.cancel(false);
+        }
+        synchronized (commitLock) {
+            // a commit which started before is finished now, later ones see the closed flag
+            commit();
+        }
+    }
+
+    private void commitPending() {
+        synchronized (commitLock) {
+            if (!closed) {
+                commit();
+            }
+        }
+    }
+
+    private void commit() {
+        int pending;
+        synchronized (this) {
+            scheduledCommit = null;
+            pending = uncommitted;
+            uncommitted = 0;
+        }
+        if (pending > 0) {
+            commitAction.run();
+        }
+    }
+}
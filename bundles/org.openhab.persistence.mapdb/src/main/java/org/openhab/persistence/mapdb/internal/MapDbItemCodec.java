@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import static java.util.Map.entry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.NextPreviousType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.PlayPauseType;
+import org.openhab.core.library.types.PointType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.RawType;
+import org.openhab.core.library.types.RewindFastforwardType;
+import org.openhab.core.library.types.StopMoveType;
+import org.openhab.core.library.types.StringListType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary encoding of a {@link MapDbItem}.
+ *
+ * A record holds a format version, the timestamp, the name and the state. The state type is written as a single byte
+ * code, the value is written as {@link State#toFullString()}. Only the core state types, which are the only ones items
+ * accept, can be encoded. Decoding never loads classes named by the database, unknown type codes are rejected.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodec {
+    private static final byte FORMAT_VERSION = 1;
+
+    // the codes are stored in the database: never change or reuse a code, new types get new codes
+    private static final Map<Class<? extends State>, Integer> TYPE_CODES = Map.ofEntries( //
+            entry(DecimalType.class, 1), //
+            entry(QuantityType.class, 2), //
+            entry(OnOffType.class, 3), //
+            entry(OpenClosedType.class, 4), //
+            entry(PercentType.class, 5), //
+            entry(HSBType.class, 6), //
+            entry(StringType.class, 7), //
+            entry(DateTimeType.class, 8), //
+            entry(PointType.class, 9), //
+            entry(UpDownType.class, 10), //
+            entry(StopMoveType.class, 11), //
+            entry(PlayPauseType.class, 12), //
+            entry(RewindFastforwardType.class, 13), //
+            entry(NextPreviousType.class, 14), //
+            entry(StringListType.class, 15), //
+            entry(RawType.class, 16));
+    private static final Map<Integer, Class<? extends State>> TYPES_BY_CODE = TYPE_CODES.entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey));
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapDbItemCodec.class);
+
+    private MapDbItemCodec() {
+    }
+
+    /**
+     * Encodes an item.
+     *
+     * @param item the item
+     * @return the encoded item
+     * @throws IllegalArgumentException if the state is not of a core state type
+     */
+    public static byte[] encode(MapDbItem item) {
+        State state = item.getState();
+        Integer typeCode = TYPE_CODES.get(state.getClass());
+        if (typeCode == null) {
+            throw new IllegalArgumentException("Unsupported state type " + state.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(item.getTimestamp().toInstant().toEpochMilli());
+            writeString(out, item.getName());
+            out.writeByte(typeCode);
+            writeString(out, state.toFullString());
+        } catch (IOException e) {
+            // cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static @Nullable MapDbItem decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                LOGGER.warn("Couldn't decode item: unknown format version {}", version);
+                return null;
+            }
+            long timestamp = in.readLong();
+            String name = readString(in);
+            int typeCode = in.readUnsignedByte();
+            Class<? extends State> type = TYPES_BY_CODE.get(typeCode);
+            if (type == null) {
+                LOGGER.warn("Couldn't decode item '{}': unknown state type code {}", name, typeCode);
+                return null;
+            }
+            String value = readString(in);
+            State state = TypeParser.parseState(List.of(type), value);
+            if (state == null) {
+                LOGGER.warn("Couldn't decode state '{}' of type {} for item '{}'", value, type.getName(), name);
+                return null;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setState(state);
+            item.setTimestamp(new Date(timestamp));
+            return item;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Couldn't decode item: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // DataOutputStream.writeUTF is limited to 64k, which is not enough for e.g. image or large string states
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
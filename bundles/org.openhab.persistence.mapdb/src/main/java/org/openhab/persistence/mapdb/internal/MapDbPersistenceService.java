@@ -24,7 +24,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,7 +45,9 @@ import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,11 +58,19 @@ import com.google.gson.GsonBuilder;
  * This is the implementation of the MapDB {@link PersistenceService}. To learn more about MapDB please visit their
  * <a href="http://www.mapdb.org/">website</a>.
  *
+ * States are stored in the compact binary format of {@link MapDbItemCodec}. Values written as JSON by earlier versions
+ * are still read and replaced with the binary format when the item is stored the next time.
+ *
+ * Stores are committed in groups by the {@link MapDbCommitter}: a commit happens {@code commitInterval} milliseconds
+ * after the first uncommitted store, or as soon as {@code commitSize} stores are uncommitted. A {@code commitInterval}
+ * of 0 commits every store.
+ *
  * @author Jens Viebig - Initial contribution
  * @author Martin Kühl - Port to 3.x
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb", configurationPolicy = ConfigurationPolicy.OPTIONAL)
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_ID = "mapdb";
@@ -69,21 +79,33 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
     private static final Path BACKUP_DIR = DB_DIR.resolve("backup");
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    private static final String CONFIG_COMMIT_INTERVAL = "commitInterval";
+    private static final String CONFIG_COMMIT_SIZE = "commitSize";
+    private static final long DEFAULT_COMMIT_INTERVAL = 1000;
+    private static final int DEFAULT_COMMIT_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
-    private final ExecutorService threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+    private final ScheduledExecutorService threadPool = ThreadPoolManager
+            .getScheduledPool(getClass().getSimpleName());
 
     /** holds the local instance of the MapDB database */
 
     private @NonNullByDefault({}) DB db;
-    private @NonNullByDefault({}) Map<String, String> map;
+    // values are byte[] in MapDbItemCodec format, or JSON strings written by earlier versions
+    private @NonNullByDefault({}) Map<String, Object> map;
+
+    private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private int commitSize = DEFAULT_COMMIT_SIZE;
+    private @NonNullByDefault({}) MapDbCommitter committer;
 
     private transient Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
 
     @Activate
-    public void activate() {
+    public void activate(final Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
+        modified(config);
 
         try {
             Files.createDirectories(DB_DIR);
@@ -97,6 +119,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         try {
             db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
             map = db.createTreeMap("itemStore").makeOrGet();
+            committer = createCommitter();
         } catch (RuntimeException re) {
             Throwable cause = re.getCause();
             if (cause instanceof ClassNotFoundException) {
@@ -130,6 +153,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
                 db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
                 map = db.createTreeMap("itemStore").makeOrGet();
+                committer = createCommitter();
             } else {
                 logger.warn("Failed to create or open the MapDB: {}", re.getMessage());
                 logger.warn("MapDB persistence service activation has failed.");
@@ -138,10 +162,37 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         logger.debug("MapDB persistence service is now activated");
     }
 
+    @Modified
+    protected void modified(final Map<String, Object> config) {
+        commitInterval = parseNumber(config.get(CONFIG_COMMIT_INTERVAL), DEFAULT_COMMIT_INTERVAL);
+        commitSize = (int) Math.max(1, parseNumber(config.get(CONFIG_COMMIT_SIZE), DEFAULT_COMMIT_SIZE));
+        logger.debug("Committing after {} ms or {} stores", commitInterval, commitSize);
+        if (committer != null) {
+            committer.setLimits(commitInterval, commitSize);
+        }
+    }
+
+    private long parseNumber(@Nullable Object value, long defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid number '{}', using {}", value, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
         if (db != null) {
+            // closing discards uncommitted changes, commit them and make sure no scheduled commit runs afterwards
+            if (committer != null) {
+                committer.close();
+            }
             db.close();
         }
     }
@@ -182,30 +233,38 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setName(localAlias);
         mItem.setState(state);
         mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(localAlias, json);
-        commit();
-        if (logger.isDebugEnabled()) {
-            logger.debug("Stored '{}' with state '{}' as '{}' in MapDB database", localAlias, state, json);
+        byte[] value;
+        try {
+            value = MapDbItemCodec.encode(mItem);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Couldn't store '{}': {}", localAlias, e.getMessage());
+            return;
         }
+        map.put(localAlias, value);
+        committer.stored();
+        logger.debug("Stored '{}' with state '{}' in MapDB database", localAlias, state);
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        Object value = map.get(filter.getItemName());
+        if (value == null) {
             return List.of();
         }
-        Optional<MapDbItem> item = deserialize(json);
+        Optional<MapDbItem> item = deserialize(value);
         return item.isPresent() ? List.of(item.get()) : List.of();
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    private Optional<MapDbItem> deserialize(Object value) {
+        if (value instanceof byte[]) {
+            return Optional.ofNullable(MapDbItemCodec.decode((byte[]) value));
+        } else {
+            return deserializeJson(value.toString());
+        }
     }
 
     @SuppressWarnings("null")
-    private Optional<MapDbItem> deserialize(String json) {
+    private Optional<MapDbItem> deserializeJson(String json) {
         MapDbItem item = mapper.<MapDbItem> fromJson(json, MapDbItem.class);
         if (item == null || !item.isValid()) {
             logger.warn("Deserialized invalid item: {}", item);
@@ -217,8 +276,9 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
-    private void commit() {
-        threadPool.submit(() -> db.commit());
+    private MapDbCommitter createCommitter() {
+        DB currentDb = db;
+        return new MapDbCommitter(threadPool, currentDb::commit, commitInterval, commitSize);
     }
 
     private static <T> Stream<T> streamOptional(Optional<T> opt) {
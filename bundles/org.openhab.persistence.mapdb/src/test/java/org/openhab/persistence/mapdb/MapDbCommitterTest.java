@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.mapdb.internal.MapDbCommitter;
+
+/**
+ * Tests the {@link MapDbCommitter}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbCommitterTest {
+    private static final long LONG_INTERVAL = 3600000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger commits = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private void awaitCommits(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (commits.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(commits.get(), is(expected));
+    }
+
+    @Test
+    public void commitsWhenSizeIsReached() throws InterruptedException {
+        MapDbCommitter committer = new MapDbCommitter(scheduler, commits::incrementAndGet, LONG_INTERVAL, 3);
+        committer.stored();
+        committer.stored();
+        assertThat(committer.getUncommittedCount(), is(2));
+
+        committer.stored();
+
+        awaitCommits(1);
+        assertThat(committer.getUncommittedCount(), is(0));
+    }
+
+    @Test
+    public void commitsAfterInterval() throws InterruptedException {
+        MapDbCommitter committer = new MapDbCommitter(scheduler, commits::incrementAndGet, 50, 1000);
+        committer.stored();
+        committer.stored();
+
+        awaitCommits(1);
+        assertThat(committer.getUncommittedCount(), is(0));
+    }
+
+    @Test
+    public void closeCommitsPendingStoresAndCancelsScheduledCommit() throws InterruptedException {
+        MapDbCommitter committer = new MapDbCommitter(scheduler, commits::incrementAndGet, 100, 1000);
+        committer.stored();
+
+        committer.close();
+        assertThat(commits.get(), is(1));
+
+        // neither the cancelled commit nor stores after closing commit the closed database
+        committer.stored();
+        Thread.sleep(300);
+        assertThat(commits.get(), is(1));
+    }
+
+    @Test
+    public void closeWaitsForRunningCommit() throws Exception {
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        MapDbCommitter committer = new MapDbCommitter(scheduler, () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            commitStarted.countDown();
+            try {
+                releaseCommit.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            commits.incrementAndGet();
+            running.decrementAndGet();
+        }, LONG_INTERVAL, 1);
+        committer.stored();
+        assertThat(commitStarted.await(5, TimeUnit.SECONDS), is(true));
+        // stored while the first commit runs, committed by close()
+        committer.stored();
+
+        CompletableFuture<Void> close = CompletableFuture.runAsync(committer::close);
+        try {
+            close.get(200, TimeUnit.MILLISECONDS);
+            throw new AssertionError("close() returned while a commit was running");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        releaseCommit.countDown();
+        close.get(5, TimeUnit.SECONDS);
+
+        assertThat(commits.get(), is(2));
+        assertThat(maxRunning.get(), is(1));
+    }
+}
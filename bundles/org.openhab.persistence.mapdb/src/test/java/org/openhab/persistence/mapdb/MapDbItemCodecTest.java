@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.PointType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.library.unit.SIUnits;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemCodec;
+
+/**
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodecTest {
+
+    @ParameterizedTest
+    @MethodSource
+    public void encodeDecodeRoundtripShouldRecreateTheItem(State state) {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(state);
+        item.setTimestamp(new Date(1234567890L));
+
+        MapDbItem actual = Objects.requireNonNull(MapDbItemCodec.decode(MapDbItemCodec.encode(item)));
+
+        assertThat(actual.getName(), is(equalTo("item")));
+        assertThat(actual.getState(), is(equalTo(state)));
+        assertThat(actual.getTimestamp(), is(equalTo(item.getTimestamp())));
+    }
+
+    public static Stream<State> encodeDecodeRoundtripShouldRecreateTheItem() {
+        return Stream.of(DecimalType.ZERO, new DecimalType(1.123), HSBType.fromRGB(11, 22, 33), OnOffType.ON,
+                OpenClosedType.CLOSED, PercentType.valueOf("99.999"), UpDownType.DOWN,
+                new QuantityType<>(new BigDecimal("21.23"), SIUnits.CELSIUS), StringType.valueOf("@@@###   @@@"),
+                StringType.valueOf(""), new PointType("52.5,13.4"));
+    }
+
+    @Test
+    public void encodingIsCompact() {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(OnOffType.ON);
+
+        // 1 version + 8 timestamp + 4+4 name + 1 type + 4+2 value
+        assertThat(MapDbItemCodec.encode(item).length, is(24));
+    }
+
+    @Test
+    public void typeCodesAreStable() {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(OnOffType.ON);
+        byte[] data = MapDbItemCodec.encode(item);
+
+        // the type code follows version, timestamp and name
+        assertThat(data[1 + 8 + 4 + 4], is((byte) 3));
+        item.setState(new PointType("52.5,13.4"));
+        assertThat(MapDbItemCodec.encode(item)[1 + 8 + 4 + 4], is((byte) 9));
+    }
+
+    @Test
+    public void unknownTypeCodeShouldReturnNull() {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(OnOffType.ON);
+        byte[] data = MapDbItemCodec.encode(item);
+
+        // code 0 was once followed by a class name to be loaded
+        data[1 + 8 + 4 + 4] = 0;
+        assertThat(MapDbItemCodec.decode(data), is(nullValue()));
+        data[1 + 8 + 4 + 4] = (byte) 200;
+        assertThat(MapDbItemCodec.decode(data), is(nullValue()));
+    }
+
+    @Test
+    public void encodingUnsupportedStateShouldFail() {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(UnDefType.UNDEF);
+
+        assertThrows(IllegalArgumentException.class, () -> MapDbItemCodec.encode(item));
+    }
+
+    @Test
+    public void decodingGarbageShouldReturnNull() {
+        assertThat(MapDbItemCodec.decode(new byte[] { 42 }), is(nullValue()));
+        assertThat(MapDbItemCodec.decode(new byte[0]), is(nullValue()));
+    }
+}
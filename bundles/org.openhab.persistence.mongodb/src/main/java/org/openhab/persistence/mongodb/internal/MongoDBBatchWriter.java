@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+/**
+ * Queues documents and inserts them as one unordered bulk operation per collection, as soon as the batch size is
+ * reached and at the latest after the batch interval.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MongoDBBatchWriter {
+    private final Logger logger = LoggerFactory.getLogger(MongoDBBatchWriter.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Function<String, @Nullable DBCollection> collectionProvider;
+    private final int batchSize;
+    private final ConcurrentLinkedQueue<PendingInsert> pendingInserts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledFuture<?> flushJob;
+
+    private static class PendingInsert {
+        private final String collectionName;
+        private final DBObject document;
+
+        private PendingInsert(String collectionName, DBObject document) {
+            this.collectionName = collectionName;
+            this.document = document;
+        }
+    }
+
+    /**
+     * Creates and starts a batch writer.
+     *
+     * @param scheduler runs the inserts
+     * @param collectionProvider returns the collection of the given name, or null if there is no connection
+     * @param batchSize number of queued documents triggering an insert
+     * @param batchInterval maximum time in milliseconds a document stays queued
+     */
+    public MongoDBBatchWriter(ScheduledExecutorService scheduler,
+            Function<String, @Nullable DBCollection> collectionProvider, int batchSize, long batchInterval) {
+        this.scheduler = scheduler;
+        this.collectionProvider = collectionProvider;
+        this.batchSize = batchSize;
+        this.flushJob = scheduler.scheduleWithFixedDelay(this::flush, batchInterval, batchInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a document for insertion.
+     *
+     * @param collectionName the collection the document is inserted into
+     * @param document the document
+     */
+    public void add(String collectionName, DBObject document) {
+        pendingInserts.add(new PendingInsert(collectionName, document));
+        if (pendingCount.incrementAndGet() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     * @return number of queued documents
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Inserts all queued documents, using one unordered bulk operation per collection. Unordered operations let the
+     * server continue with the other documents if one of them fails.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        Map<String, List<DBObject>> documentsByCollection = new LinkedHashMap<>();
+        PendingInsert pending;
+        while ((pending = pendingInserts.poll()) != null) {
+            pendingCount.decrementAndGet();
+            documentsByCollection.computeIfAbsent(pending.collectionName, c -> new ArrayList<>())
+                    .add(pending.document);
+        }
+        for (Map.Entry<String, List<DBObject>> entry : documentsByCollection.entrySet()) {
+            List<DBObject> documents = entry.getValue();
+            DBCollection collection = collectionProvider.apply(entry.getKey());
+            if (collection == null) {
+                logger.warn("mongodb: No connection to database. Discarding {} values for collection '{}'.",
+                        documents.size(), entry.getKey());
+                continue;
+            }
+            try {
+                BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+                documents.forEach(bulk::insert);
+                bulk.execute();
+                logger.debug("MongoDB inserted {} values into collection '{}'", documents.size(), entry.getKey());
+            } catch (MongoException e) {
+                logger.warn("Failed to insert {} values into collection '{}': {}", documents.size(), entry.getKey(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the scheduled inserts and inserts the queued documents. The caller makes sure no documents are added
+     * afterwards.
+     */
+    public void stop() {
+        flushJob.cancel(false);
+        flush();
+    }
+}
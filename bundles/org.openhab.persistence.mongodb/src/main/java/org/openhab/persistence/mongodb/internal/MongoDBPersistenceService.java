@@ -21,10 +21,15 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.bson.types.ObjectId;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -60,6 +65,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -69,6 +75,12 @@ import com.mongodb.MongoClientURI;
 /**
  * This is the implementation of the MongoDB {@link PersistenceService}.
  *
+ * If a batch size is configured, stored values are queued by the {@link MongoDBBatchWriter} and inserted as unordered
+ * bulk operation per collection, as soon as the batch size is reached and at the latest after the batch interval.
+ *
+ * Deactivation waits for stores in progress, inserts the queued values and rejects later stores, so no value is
+ * queued after the final insert.
+ *
  * @author Thorsten Hoeger - Initial contribution
  * @author Stephan Brunner - Query fixes, Cleanup
  */
@@ -83,19 +95,33 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     private static final String FIELD_TIMESTAMP = "timestamp";
     private static final String FIELD_VALUE = "value";
 
+    private static final long DEFAULT_BATCH_INTERVAL = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(MongoDBPersistenceService.class);
 
     private String url = "";
     private String db = "";
     private String collection = "";
     private boolean collectionPerItem;
+    private int batchSize;
+    private long batchInterval = DEFAULT_BATCH_INTERVAL;
+    private boolean timeSeries;
 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
+    // stores hold the read lock, deactivation takes the write lock to wait for them
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
 
     protected final ItemRegistry itemRegistry;
 
     private @Nullable MongoClient cl;
 
+    // collections which are known to exist with the item/timestamp index, reset on reconnect
+    private final Set<String> preparedCollections = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler = ThreadPoolManager
+            .getScheduledPool(getClass().getSimpleName());
+    private volatile @Nullable MongoDBBatchWriter batchWriter;
+
     @Activate
     public MongoDBPersistenceService(final @Reference ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
@@ -127,16 +153,56 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         collection = dbCollection == null ? "" : dbCollection;
         collectionPerItem = dbCollection == null || dbCollection.isBlank();
 
+        batchSize = (int) parseNumber(config.get("batchSize"), 0);
+        batchInterval = Math.max(100, parseNumber(config.get("batchInterval"), DEFAULT_BATCH_INTERVAL));
+        timeSeries = Boolean.parseBoolean(String.valueOf(config.get("timeSeries")));
+        logger.debug("MongoDB batch size {}, batch interval {} ms, time series collections {}", batchSize,
+                batchInterval, timeSeries);
+
         if (!tryConnectToDatabase()) {
             logger.warn("Failed to connect to MongoDB server. Trying to reconnect later.");
+        } else if (!collectionPerItem) {
+            // create the collection and its index up front instead of on the first store
+            connectToCollection(collection);
+        }
+
+        if (batchSize > 0) {
+            batchWriter = new MongoDBBatchWriter(scheduler,
+                    collectionName -> tryConnectToDatabase() ? connectToCollection(collectionName) : null, batchSize,
+                    batchInterval);
         }
 
         initialized = true;
     }
 
+    private long parseNumber(@Nullable Object value, long defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String && !((String) value).isBlank()) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid number '{}', using {}", value, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("MongoDB persistence bundle stopping. Disconnecting from database.");
+        // waits for running stores, later ones are rejected
+        storeLock.writeLock().lock();
+        try {
+            initialized = false;
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        MongoDBBatchWriter writer = batchWriter;
+        if (writer != null) {
+            writer.stop();
+            batchWriter = null;
+        }
         disconnectFromDatabase();
     }
 
@@ -157,12 +223,20 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             return;
         }
 
-        // If we've not initialized the bundle, then return
-        if (!initialized) {
-            logger.warn("MongoDB not initialized");
-            return;
+        storeLock.readLock().lock();
+        try {
+            // If we've not initialized the bundle, then return
+            if (!initialized) {
+                logger.warn("MongoDB not initialized");
+                return;
+            }
+            storeInitialized(item, alias);
+        } finally {
+            storeLock.readLock().unlock();
         }
+    }
 
+    private void storeInitialized(Item item, @Nullable String alias) {
         // Connect to mongodb server if we're not already connected
         // If we can't connect, log.
         if (!tryConnectToDatabase()) {
@@ -192,9 +266,16 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         obj.put(FIELD_REALNAME, realItemName);
         obj.put(FIELD_TIMESTAMP, new Date());
         obj.put(FIELD_VALUE, value);
-        collection.save(obj);
 
-        logger.debug("MongoDB save {}={}", name, value);
+        MongoDBBatchWriter writer = batchWriter;
+        if (writer != null) {
+            writer.add(collectionName, obj);
+            logger.debug("MongoDB queued {}={}", name, value);
+        } else {
+            // the document has a new id, so there is no need for the upsert of save()
+            collection.insert(obj);
+            logger.debug("MongoDB insert {}={}", name, value);
+        }
     }
 
     private Object convertValue(State state) {
@@ -296,11 +377,27 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
                 return null;
             }
 
-            DBCollection mongoCollection = db.getDB(this.db).getCollection(collectionName);
+            DB database = db.getDB(this.db);
+            if (preparedCollections.contains(collectionName)) {
+                return database.getCollection(collectionName);
+            }
+
+            DBCollection mongoCollection;
+            if (timeSeries && !database.collectionExists(collectionName)) {
+                // time series collections (MongoDB 5.0+) store the values of an item in compressed buckets
+                BasicDBObject timeSeriesOptions = new BasicDBObject("timeField", FIELD_TIMESTAMP)
+                        .append("metaField", FIELD_ITEM);
+                mongoCollection = database.createCollection(collectionName,
+                        new BasicDBObject("timeseries", timeSeriesOptions));
+                logger.debug("Created time series collection {}", collectionName);
+            } else {
+                mongoCollection = database.getCollection(collectionName);
+            }
 
             BasicDBObject idx = new BasicDBObject();
             idx.append(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, 1);
             mongoCollection.createIndex(idx);
+            preparedCollections.add(collectionName);
 
             return mongoCollection;
         } catch (Exception e) {
@@ -318,6 +415,7 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         }
 
         cl = null;
+        preparedCollections.clear();
     }
 
     @Override
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+/**
+ * Tests the {@link MongoDBBatchWriter}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class MongoDBBatchWriterTest {
+    private static final long LONG_INTERVAL = 3600000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, DBCollection> collections = new HashMap<>();
+    private final Map<String, BulkWriteOperation> bulks = new HashMap<>();
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private DBCollection collection(String name) {
+        DBCollection collection = mock(DBCollection.class);
+        BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+        when(collection.initializeUnorderedBulkOperation()).thenReturn(bulk);
+        collections.put(name, collection);
+        bulks.put(name, bulk);
+        return collection;
+    }
+
+    private MongoDBBatchWriter createWriter(int batchSize) {
+        return new MongoDBBatchWriter(scheduler, this::getCollection, batchSize, LONG_INTERVAL);
+    }
+
+    private @Nullable DBCollection getCollection(String name) {
+        return collections.get(name);
+    }
+
+    private static DBObject document(String item) {
+        return new BasicDBObject("item", item);
+    }
+
+    @Test
+    public void documentsAreInsertedAsUnorderedBulkPerCollection() {
+        collection("item1");
+        collection("item2");
+        MongoDBBatchWriter writer = createWriter(100);
+        DBObject first = document("item1");
+        DBObject second = document("item1");
+        DBObject third = document("item2");
+        writer.add("item1", first);
+        writer.add("item1", second);
+        writer.add("item2", third);
+        assertThat(writer.getPendingCount(), is(3));
+
+        writer.flush();
+
+        assertThat(writer.getPendingCount(), is(0));
+        verify(collections.get("item1"), times(1)).initializeUnorderedBulkOperation();
+        verify(bulks.get("item1")).insert(first);
+        verify(bulks.get("item1")).insert(second);
+        verify(bulks.get("item1"), times(1)).execute();
+        verify(bulks.get("item2")).insert(third);
+        verify(bulks.get("item2"), times(1)).execute();
+        verify(collections.get("item1"), never()).insert(any(DBObject.class));
+    }
+
+    @Test
+    public void reachingBatchSizeTriggersInsert() {
+        collection("item");
+        MongoDBBatchWriter writer = createWriter(2);
+        writer.add("item", document("item"));
+        writer.add("item", document("item"));
+
+        verify(bulks.get("item"), timeout(5000)).execute();
+    }
+
+    @Test
+    public void failedBulkDoesNotAffectOtherCollections() {
+        collection("item1");
+        collection("item2");
+        when(bulks.get("item1").execute()).thenThrow(new MongoException("duplicate key"));
+        MongoDBBatchWriter writer = createWriter(100);
+        writer.add("item1", document("item1"));
+        writer.add("item2", document("item2"));
+
+        writer.flush();
+
+        verify(bulks.get("item2")).execute();
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void documentsWithoutConnectionAreDiscarded() {
+        MongoDBBatchWriter writer = createWriter(100);
+        writer.add("item", document("item"));
+
+        writer.flush();
+
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void stopInsertsQueuedDocuments() {
+        collection("item");
+        MongoDBBatchWriter writer = createWriter(100);
+        writer.add("item", document("item"));
+
+        writer.stop();
+
+        verify(bulks.get("item")).execute();
+        assertThat(writer.getPendingCount(), is(0));
+    }
+}
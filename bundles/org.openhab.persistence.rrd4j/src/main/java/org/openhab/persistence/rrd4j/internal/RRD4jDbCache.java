@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link RRD4jDbCache} keeps a bounded number of {@link RrdDb} instances open, so that the database files do not
+ * have to be reopened on every store or query.
+ *
+ * Databases are reference counted while in use by {@link #acquire(String, Function)} / {@link #release(String)} and
+ * are only closed when they are unused: either because the cache exceeds its capacity (least recently used first) or
+ * because they have been idle for longer than the configured time. If all cached databases are in use, the capacity
+ * is exceeded temporarily instead of blocking the caller.
+ *
+ * Access to a single database can be serialized with the lock returned by {@link #getLock(String)}. Locks are striped,
+ * so different databases can be accessed in parallel. The lock must not be held while calling
+ * {@link #acquire(String, Function)}, {@link #release(String)} or {@link #closeAll()}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jDbCache {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(RRD4jDbCache.class);
+
+    private final int capacity;
+    private final long maxIdleMillis;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // access-ordered, so iteration starts with the least recently used database
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // number of running closeAll() calls, guarded by entries
+    private int draining = 0;
+
+    public RRD4jDbCache(int capacity, long maxIdleMillis) {
+        this.capacity = capacity;
+        this.maxIdleMillis = maxIdleMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the lock guarding the database with the given name.
+     *
+     * @param name the name of the database
+     * @return the lock object
+     */
+    public Object getLock(String name) {
+        return locks[(name.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /**
+     * Get an open database from the cache or open it with the given function. Every successful call must be followed
+     * by a call to {@link #release(String)}.
+     *
+     * @param name the name of the database
+     * @param opener function opening (or creating) the database if it is not cached, may return null
+     * @return the open database or null if it could not be opened
+     */
+    public @Nullable RrdDb acquire(String name, Function<String, @Nullable RrdDb> opener) {
+        while (true) {
+            synchronized (entries) {
+                if (!awaitNotDraining()) {
+                    return null;
+                }
+                CacheEntry entry = entries.get(name);
+                if (entry != null) {
+                    entry.refCount++;
+                    return entry.db;
+                }
+            }
+
+            RrdDb db;
+            // the stripe lock makes sure the same file is never opened and closed concurrently
+            synchronized (getLock(name)) {
+                synchronized (entries) {
+                    if (draining > 0) {
+                        // wait for closeAll() without holding the stripe lock, it needs it to close the databases
+                        continue;
+                    }
+                    CacheEntry entry = entries.get(name);
+                    if (entry != null) {
+                        entry.refCount++;
+                        return entry.db;
+                    }
+                }
+                db = opener.apply(name);
+                if (db == null) {
+                    return null;
+                }
+                synchronized (entries) {
+                    CacheEntry entry = new CacheEntry(db);
+                    entry.refCount++;
+                    entries.put(name, entry);
+                }
+            }
+            evictOverCapacity();
+            return db;
+        }
+    }
+
+    /**
+     * Release a database previously obtained by {@link #acquire(String, Function)}.
+     *
+     * @param name the name of the database
+     */
+    public void release(String name) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(name);
+            if (entry == null || entry.refCount == 0) {
+                logger.debug("Database '{}' released without being acquired", name);
+                return;
+            }
+            entry.refCount--;
+            entry.lastAccess = System.currentTimeMillis();
+            if (entry.refCount == 0 && draining > 0) {
+                entries.notifyAll();
+            }
+        }
+        evictOverCapacity();
+    }
+
+    /**
+     * Close all unused databases that have not been accessed for longer than the maximum idle time.
+     */
+    public void evictIdle() {
+        long threshold = System.currentTimeMillis() - maxIdleMillis;
+        List<Map.Entry<String, CacheEntry>> candidates = new ArrayList<>();
+        synchronized (entries) {
+            for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                CacheEntry entry = e.getValue();
+                if (entry.refCount == 0 && entry.lastAccess < threshold) {
+                    candidates.add(Map.entry(e.getKey(), entry));
+                }
+            }
+        }
+        candidates.forEach(e -> close(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * Close all databases. Databases that are in use are closed as soon as they have been released. Until all
+     * databases are closed, {@link #acquire(String, Function)} waits, so databases are reopened afterwards, e.g. with a
+     * different backend.
+     */
+    public void closeAll() {
+        synchronized (entries) {
+            draining++;
+        }
+        try {
+            while (true) {
+                List<Map.Entry<String, CacheEntry>> candidates = new ArrayList<>();
+                synchronized (entries) {
+                    while (entries.values().stream().anyMatch(entry -> entry.refCount > 0)) {
+                        entries.wait();
+                    }
+                    if (entries.isEmpty()) {
+                        break;
+                    }
+                    entries.forEach((name, entry) -> candidates.add(Map.entry(name, entry)));
+                }
+                candidates.forEach(e -> close(e.getKey(), e.getValue()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (entries) {
+                draining--;
+                entries.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Get the number of currently open databases.
+     *
+     * @return the number of cached databases
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evictOverCapacity() {
+        List<Map.Entry<String, CacheEntry>> candidates = new ArrayList<>();
+        synchronized (entries) {
+            int excess = entries.size() - capacity;
+            if (excess <= 0) {
+                return;
+            }
+            for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+                if (e.getValue().refCount == 0) {
+                    candidates.add(Map.entry(e.getKey(), e.getValue()));
+                    if (--excess == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        candidates.forEach(e -> close(e.getKey(), e.getValue()));
+    }
+
+    // must be called with the entries monitor held
+    private boolean awaitNotDraining() {
+        try {
+            while (draining > 0) {
+                entries.wait();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void close(String name, CacheEntry entry) {
+        synchronized (getLock(name)) {
+            synchronized (entries) {
+                if (entry.refCount > 0 || !entries.remove(name, entry)) {
+                    // in use again or already closed
+                    return;
+                }
+            }
+            try {
+                entry.db.close();
+                logger.trace("Closed rrd4j database '{}'", name);
+            } catch (IOException e) {
+                logger.debug("Error closing rrd4j database '{}': {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private static class CacheEntry {
+        private final RrdDb db;
+        private int refCount = 0;
+        private long lastAccess = System.currentTimeMillis();
+
+        public CacheEntry(RrdDb db) {
+            this.db = db;
+        }
+    }
+}
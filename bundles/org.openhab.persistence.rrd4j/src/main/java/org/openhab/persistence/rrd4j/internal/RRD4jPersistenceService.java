@@ -18,7 +18,6 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -67,12 +66,14 @@ import org.openhab.core.types.State;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
 import org.rrd4j.core.Sample;
@@ -87,10 +88,11 @@ import org.slf4j.LoggerFactory;
  * @author Kai Kreuzer - Initial contribution
  * @author Jan N. Klug - some improvements
  * @author Karel Goderis - remove TimerThread dependency
+ * @author davidoe - keep databases open in a bounded cache, per-item locking, write-behind mode
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class,
-        QueryablePersistenceService.class }, configurationPid = "org.openhab.rrd4j", configurationPolicy = ConfigurationPolicy.OPTIONAL)
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class,
+        RRD4jPersistenceService.class }, configurationPid = "org.openhab.rrd4j", configurationPolicy = ConfigurationPolicy.OPTIONAL)
 public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private static final String DEFAULT_OTHER = "default_other";
@@ -111,7 +113,26 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private final Logger logger = LoggerFactory.getLogger(RRD4jPersistenceService.class);
 
-    private final Map<String, ScheduledFuture<?>> scheduledJobs = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
+
+    private static final int DB_CACHE_CAPACITY = 1000;
+    private static final long DB_CACHE_MAX_IDLE_MINUTES = 10;
+
+    private final RRD4jDbCache dbCache = new RRD4jDbCache(DB_CACHE_CAPACITY,
+            TimeUnit.MINUTES.toMillis(DB_CACHE_MAX_IDLE_MINUTES));
+    private @Nullable ScheduledFuture<?> dbCacheCleanupJob;
+
+    private static final String CONFIG_BACKEND = "backend";
+    private static final String CONFIG_FLUSH_INTERVAL = "flushinterval";
+    private static final Set<String> SUPPORTED_BACKENDS = Set.of("FILE", "NIO", "SAFE");
+
+    // null means the rrd4j default backend
+    private volatile @Nullable RrdBackendFactory backendFactory;
+    // in seconds, 0 means samples are written synchronously
+    private volatile int flushInterval = 0;
+    private final Map<String, PendingSample> pendingSamples = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private @Nullable ScheduledFuture<?> flushJob;
 
     protected final ItemRegistry itemRegistry;
 
@@ -131,98 +152,167 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     }
 
     @Override
-    public synchronized void store(final Item item, @Nullable final String alias) {
+    public void store(final Item item, @Nullable final String alias) {
         if (!isSupportedItemType(item)) {
             logger.trace("Ignoring item '{}' since its type {} is not supported", item.getName(), item.getType());
             return;
         }
         final String name = alias == null ? item.getName() : alias;
+        Double value = getValue(item);
+        if (value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+
+        if (flushInterval > 0) {
+            // write-behind: only the latest value of each item is kept until the next flush
+            pendingSamples.put(name, new PendingSample(now, value));
+            if (flushInterval == 0) {
+                // write-behind was switched off concurrently and the last flush may have missed this sample
+                synchronized (flushLock) {
+                    writePendingSample(name);
+                }
+            }
+            return;
+        }
+
         RrdDb db = getDB(name);
-        if (db != null) {
-            ConsolFun function = getConsolidationFunction(db);
-            long now = System.currentTimeMillis() / 1000;
-            if (function != ConsolFun.AVERAGE) {
-                try {
-                    // we store the last value again, so that the value change
-                    // in the database is not interpolated, but
-                    // happens right at this spot
-                    if (now - 1 > db.getLastUpdateTime()) {
-                        // only do it if there is not already a value
-                        double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-                        if (!Double.isNaN(lastValue)) {
-                            Sample sample = db.createSample();
-                            sample.setTime(now - 1);
-                            sample.setValue(DATASOURCE_STATE, lastValue);
-                            sample.update();
-                            logger.debug("Stored '{}' as value '{}' in rrd4j database (again)", name, lastValue);
-                        }
-                    }
-                } catch (IOException e) {
-                    logger.debug("Error storing last value (again): {}", e.getMessage());
+        if (db == null) {
+            return;
+        }
+        try {
+            synchronized (dbCache.getLock(name)) {
+                storeSample(db, name, now, value);
+            }
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            if (message != null && message.contains("at least one second step is required")) {
+                // we try to store the value one second later
+                ScheduledFuture<?> job = scheduledJobs.remove(name);
+                if (job != null) {
+                    job.cancel(true);
                 }
+                job = scheduler.schedule(() -> store(item, name), 1, TimeUnit.SECONDS);
+                scheduledJobs.put(name, job);
+            } else {
+                logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
             }
-            try {
-                Sample sample = db.createSample();
-                sample.setTime(now);
-
-                Double value = null;
-
-                if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
-                    NumberItem nItem = (NumberItem) item;
-                    QuantityType<?> qState = (QuantityType<?>) item.getState();
-                    Unit<? extends Quantity<?>> unit = nItem.getUnit();
-                    if (unit != null) {
-                        QuantityType<?> convertedState = qState.toUnit(unit);
-                        if (convertedState != null) {
-                            value = convertedState.doubleValue();
-                        } else {
-                            logger.warn(
-                                    "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
-                                    qState, unit);
-                        }
-                    } else {
-                        value = qState.doubleValue();
-                    }
+        } catch (Exception e) {
+            logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+        } finally {
+            releaseDB(name);
+        }
+    }
+
+    private @Nullable Double getValue(Item item) {
+        if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
+            NumberItem nItem = (NumberItem) item;
+            QuantityType<?> qState = (QuantityType<?>) item.getState();
+            Unit<? extends Quantity<?>> unit = nItem.getUnit();
+            if (unit != null) {
+                QuantityType<?> convertedState = qState.toUnit(unit);
+                if (convertedState != null) {
+                    return convertedState.doubleValue();
                 } else {
-                    DecimalType state = item.getStateAs(DecimalType.class);
-                    if (state != null) {
-                        value = state.toBigDecimal().doubleValue();
-                    }
+                    logger.warn(
+                            "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
+                            qState, unit);
+                    return null;
                 }
-                if (value != null) {
-                    if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
-                                                                                          // adjusted by stepsize
-                        value = value * db.getRrdDef().getStep();
+            } else {
+                return qState.doubleValue();
+            }
+        } else {
+            DecimalType state = item.getStateAs(DecimalType.class);
+            if (state != null) {
+                return state.toBigDecimal().doubleValue();
+            }
+        }
+        return null;
+    }
+
+    private void storeSample(RrdDb db, String name, long time, double value) throws IOException {
+        ConsolFun function = getConsolidationFunction(db);
+        if (function != ConsolFun.AVERAGE) {
+            try {
+                // we store the last value again, so that the value change
+                // in the database is not interpolated, but
+                // happens right at this spot
+                if (time - 1 > db.getLastUpdateTime()) {
+                    // only do it if there is not already a value
+                    double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+                    if (!Double.isNaN(lastValue)) {
+                        Sample sample = db.createSample();
+                        sample.setTime(time - 1);
+                        sample.setValue(DATASOURCE_STATE, lastValue);
+                        sample.update();
+                        logger.debug("Stored '{}' as value '{}' in rrd4j database (again)", name, lastValue);
                     }
-                    sample.setValue(DATASOURCE_STATE, value);
-                    sample.update();
-                    logger.debug("Stored '{}' as value '{}' in rrd4j database", name, value);
                 }
-            } catch (IllegalArgumentException e) {
-                String message = e.getMessage();
-                if (message != null && message.contains("at least one second step is required")) {
-                    // we try to store the value one second later
-                    ScheduledFuture<?> job = scheduledJobs.get(name);
-                    if (job != null) {
-                        job.cancel(true);
-                        scheduledJobs.remove(name);
-                    }
-                    job = scheduler.schedule(() -> store(item, name), 1, TimeUnit.SECONDS);
-                    scheduledJobs.put(name, job);
-                } else {
-                    logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+            } catch (IOException e) {
+                logger.debug("Error storing last value (again): {}", e.getMessage());
+            }
+        }
+        Sample sample = db.createSample();
+        sample.setTime(time);
+        if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) {
+            // counter values must be adjusted by stepsize
+            value = value * db.getRrdDef().getStep();
+        }
+        sample.setValue(DATASOURCE_STATE, value);
+        sample.update();
+        logger.debug("Stored '{}' as value '{}' in rrd4j database", name, value);
+    }
+
+    /**
+     * Write all pending samples of the write-behind queue to their databases.
+     */
+    private void flushPendingSamples() {
+        synchronized (flushLock) {
+            if (pendingSamples.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            int count = 0;
+            for (String name : pendingSamples.keySet()) {
+                if (writePendingSample(name)) {
+                    count++;
                 }
-            } catch (Exception e) {
-                logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
             }
-            try {
-                db.close();
-            } catch (IOException e) {
-                logger.debug("Error closing rrd4j database: {}", e.getMessage());
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.debug("Flushed {} sample(s) to rrd4j databases in {} ms, {} sample(s) pending", count, duration,
+                    pendingSamples.size());
+            if (duration > TimeUnit.SECONDS.toMillis(flushInterval)) {
+                logger.warn("Flushing {} sample(s) took {} ms, which is longer than the flush interval of {} s", count,
+                        duration, flushInterval);
             }
         }
     }
 
+    private boolean writePendingSample(String name) {
+        PendingSample pending = pendingSamples.remove(name);
+        if (pending == null) {
+            return false;
+        }
+        RrdDb db = getDB(name);
+        if (db == null) {
+            return false;
+        }
+        try {
+            synchronized (dbCache.getLock(name)) {
+                // a value for this second may already have been written by a previous flush
+                long time = Math.max(pending.time, db.getLastUpdateTime() + 1);
+                storeSample(db, name, time, pending.value);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+            return false;
+        } finally {
+            releaseDB(name);
+        }
+    }
+
     @Override
     public void store(Item item) {
         store(item, null);
@@ -232,6 +322,13 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     public Iterable<HistoricItem> query(FilterCriteria filter) {
         String itemName = filter.getItemName();
 
+        if (pendingSamples.containsKey(itemName)) {
+            // make sure the query sees the latest value
+            synchronized (flushLock) {
+                writePendingSample(itemName);
+            }
+        }
+
         RrdDb db = getDB(itemName);
         if (db == null) {
             logger.debug("Could not find item '{}' in rrd4j database", itemName);
@@ -267,10 +364,15 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                         && filter.getPageNumber() == 0) {
                     if (filter.getEndDate() == null) {
                         // we are asked only for the most recent value!
-                        double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+                        double lastValue;
+                        long lastUpdate;
+                        synchronized (dbCache.getLock(itemName)) {
+                            lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+                            lastUpdate = db.getLastArchiveUpdateTime();
+                        }
                         if (!Double.isNaN(lastValue)) {
                             HistoricItem rrd4jItem = new RRD4jItem(itemName, mapToState(lastValue, item, unit),
-                                    ZonedDateTime.ofInstant(Instant.ofEpochMilli(db.getLastArchiveUpdateTime() * 1000),
+                                    ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastUpdate * 1000),
                                             ZoneId.systemDefault()));
                             return List.of(rrd4jItem);
                         } else {
@@ -287,8 +389,11 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                 start = filter.getBeginDate().toInstant().getEpochSecond();
             }
 
-            FetchRequest request = db.createFetchRequest(getConsolidationFunction(db), start, end, 1);
-            FetchData result = request.fetchData();
+            FetchData result;
+            synchronized (dbCache.getLock(itemName)) {
+                FetchRequest request = db.createFetchRequest(getConsolidationFunction(db), start, end, 1);
+                result = request.fetchData();
+            }
 
             List<HistoricItem> items = new ArrayList<>();
             long ts = result.getFirstTimestamp();
@@ -305,6 +410,41 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         } catch (IOException e) {
             logger.warn("Could not query rrd4j database for item '{}': {}", itemName, e.getMessage());
             return List.of();
+        } finally {
+            releaseDB(itemName);
+        }
+    }
+
+    /**
+     * Fetch the consolidated data of an item from its (cached) database. Unlike {@link #query(FilterCriteria)}, this
+     * does not create a database for an item that has not been persisted yet.
+     *
+     * @param itemName the name of the item
+     * @param start the start of the requested data in seconds since the epoch
+     * @param end the end of the requested data in seconds since the epoch
+     * @param resolution the requested resolution in seconds
+     * @return the fetched data or null if there is no database for the item
+     * @throws IOException if the database could not be read
+     */
+    public @Nullable FetchData fetchData(String itemName, long start, long end, long resolution) throws IOException {
+        if (pendingSamples.containsKey(itemName)) {
+            synchronized (flushLock) {
+                writePendingSample(itemName);
+            }
+        }
+        if (!new File(DB_FOLDER + File.separator + itemName + ".rrd").exists()) {
+            return null;
+        }
+        RrdDb db = getDB(itemName);
+        if (db == null) {
+            return null;
+        }
+        try {
+            synchronized (dbCache.getLock(itemName)) {
+                return db.createFetchRequest(getConsolidationFunction(db), start, end, resolution).fetchData();
+            }
+        } finally {
+            releaseDB(itemName);
         }
     }
 
@@ -313,13 +453,29 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         return Set.of();
     }
 
-    protected synchronized @Nullable RrdDb getDB(String alias) {
+    /**
+     * Get the (cached) database for the given alias, creating it if necessary. A database returned by this method must
+     * be released with {@link #releaseDB(String)} when it is no longer needed.
+     *
+     * @param alias the name or alias of the item
+     * @return the database or null if it could not be opened or created
+     */
+    protected @Nullable RrdDb getDB(String alias) {
+        return dbCache.acquire(alias, this::openDB);
+    }
+
+    protected void releaseDB(String alias) {
+        dbCache.release(alias);
+    }
+
+    private @Nullable RrdDb openDB(String alias) {
         RrdDb db = null;
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
         try {
             if (file.exists()) {
                 // recreate the RrdDb instance from the file
-                db = RrdDb.of(file.getAbsolutePath());
+                db = RrdDb.getBuilder().setPath(file.getAbsolutePath()).setBackendFactory(getBackendFactory())
+                        .build();
             } else {
                 File folder = new File(DB_FOLDER);
                 if (!folder.exists()) {
@@ -328,7 +484,7 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                 RrdDef rrdDef = getRrdDef(alias, file);
                 if (rrdDef != null) {
                     // create a new database file
-                    db = RrdDb.of(rrdDef);
+                    db = RrdDb.getBuilder().setRrdDef(rrdDef).setBackendFactory(getBackendFactory()).build();
                 } else {
                     logger.debug(
                             "Did not create rrd4j database for item '{}' since no rrd definition could be determined. This is likely due to an unsupported item type.",
@@ -344,6 +500,11 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         return db;
     }
 
+    private RrdBackendFactory getBackendFactory() {
+        RrdBackendFactory factory = backendFactory;
+        return factory != null ? factory : RrdBackendFactory.getDefaultFactory();
+    }
+
     private @Nullable RrdDefConfig getRrdDefConfig(String itemName) {
         RrdDefConfig useRdc = null;
         for (Map.Entry<String, RrdDefConfig> e : rrdDefs.entrySet()) {
@@ -441,10 +602,46 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     @Activate
     protected void activate(final Map<String, Object> config) {
         modified(config);
+        dbCacheCleanupJob = scheduler.scheduleWithFixedDelay(dbCache::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        ScheduledFuture<?> job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+        }
+        // samples stored from now on are written immediately, so none are left behind in the queue
+        flushInterval = 0;
+        flushPendingSamples();
+        job = dbCacheCleanupJob;
+        if (job != null) {
+            job.cancel(false);
+            dbCacheCleanupJob = null;
+        }
+        dbCache.closeAll();
     }
 
     @Modified
     protected void modified(final Map<String, Object> config) {
+        // write pending samples with the old settings
+        ScheduledFuture<?> job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+        }
+        flushPendingSamples();
+
+        configureStorage(config);
+        if (flushInterval > 0) {
+            flushJob = scheduler.scheduleWithFixedDelay(this::flushPendingSamples, flushInterval, flushInterval,
+                    TimeUnit.SECONDS);
+        } else {
+            // samples queued while the old settings were still in effect
+            flushPendingSamples();
+        }
+
         // clean existing definitions
         rrdDefs.clear();
 
@@ -496,8 +693,9 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         while (keys.hasNext()) {
             String key = keys.next();
 
-            if (key.equals("service.pid") || key.equals("component.name")) {
-                // ignore service.pid and name
+            if (key.equals("service.pid") || key.equals("component.name") || key.equalsIgnoreCase(CONFIG_BACKEND)
+                    || key.equalsIgnoreCase(CONFIG_FLUSH_INTERVAL)) {
+                // ignore service.pid and name, storage settings are handled separately
                 continue;
             }
 
@@ -552,6 +750,47 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private void configureStorage(final Map<String, Object> config) {
+        RrdBackendFactory oldFactory = backendFactory;
+        RrdBackendFactory newFactory = null;
+        String backend = getStorageConfig(config, CONFIG_BACKEND);
+        if (backend != null) {
+            String backendName = backend.toUpperCase(Locale.ROOT);
+            if (SUPPORTED_BACKENDS.contains(backendName)) {
+                newFactory = RrdBackendFactory.getFactory(backendName);
+                logger.debug("Using rrd4j backend '{}'", backendName);
+            } else {
+                logger.warn("Ignoring unsupported rrd4j backend '{}', supported are {}", backend, SUPPORTED_BACKENDS);
+            }
+        }
+        backendFactory = newFactory;
+        if (oldFactory != newFactory) {
+            // databases have to be reopened with the new backend, this waits until they are no longer in use
+            dbCache.closeAll();
+        }
+
+        int interval = 0;
+        String intervalValue = getStorageConfig(config, CONFIG_FLUSH_INTERVAL);
+        if (intervalValue != null) {
+            try {
+                interval = Math.max(0, Integer.parseInt(intervalValue));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring illegal flush interval '{}', samples are written immediately", intervalValue);
+            }
+        }
+        if (interval > 0) {
+            logger.info("Writing samples to rrd4j databases every {} s, samples of the last {} s are lost on a crash",
+                    interval, interval);
+        }
+        flushInterval = interval;
+    }
+
+    private @Nullable String getStorageConfig(final Map<String, Object> config, String key) {
+        return config.entrySet().stream().filter(e -> e.getKey().equalsIgnoreCase(key)).map(Map.Entry::getValue)
+                .filter(v -> v != null && !v.toString().isBlank()).map(v -> v.toString().trim()).findAny()
+                .orElse(null);
+    }
+
     private class RrdArchiveDef {
         public @Nullable ConsolFun fcn;
         public double xff;
@@ -693,6 +932,16 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private static class PendingSample {
+        public final long time;
+        public final double value;
+
+        public PendingSample(long time, double value) {
+            this.time = time;
+            this.value = value;
+        }
+    }
+
     @Override
     public List<PersistenceStrategy> getDefaultStrategies() {
         return List.of(PersistenceStrategy.Globals.RESTORE, PersistenceStrategy.Globals.CHANGE,
@@ -17,13 +17,23 @@ import static java.util.Map.entry;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import javax.imageio.ImageIO;
 import javax.servlet.Servlet;
@@ -31,9 +41,12 @@ import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.i18n.TimeZoneProvider;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -48,8 +61,7 @@ import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.http.HttpService;
 import org.osgi.service.http.NamespaceException;
-import org.rrd4j.ConsolFun;
-import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.FetchData;
 import org.rrd4j.graph.RrdGraph;
 import org.rrd4j.graph.RrdGraphConstants.FontTag;
 import org.rrd4j.graph.RrdGraphDef;
@@ -67,9 +79,14 @@ import org.slf4j.LoggerFactory;
  * <li>groups: A comma separated list of group names, whose members should be displayed
  * </ul>
  *
+ * Rendered charts are cached until a new sample may have been stored or the chart has moved by one pixel. This applies
+ * to the servlet and to {@link #createChart}. Concurrent requests for the same chart wait for a single rendering. The
+ * servlet serves charts with an ETag, so clients can revalidate them with If-None-Match.
+ *
  * @author Kai Kreuzer - Initial contribution
  * @author Chris Jackson - a few improvements
  * @author Jan N. Klug - a few improvements
+ * @author davidoe - cache rendered charts, fetch data in parallel
  *
  */
 @NonNullByDefault
@@ -103,16 +120,33 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
             entry("Y", Duration.ofDays(365))//
     );
 
+    private static final int CHART_CACHE_SIZE = 50;
+
+    private final ExecutorService threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+
+    // rendered (or rendering) charts by items, groups, period and size, least recently used charts are removed first
+    private final Map<String, CompletableFuture<CachedChart>> chartCache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CachedChart>> eldest) {
+            return size() > CHART_CACHE_SIZE;
+        }
+    };
+
     private final HttpService httpService;
     private final ItemUIRegistry itemUIRegistry;
     private final TimeZoneProvider timeZoneProvider;
+    private final RRD4jPersistenceService persistenceService;
 
     @Activate
     public RRD4jChartServlet(final @Reference HttpService httpService, final @Reference ItemUIRegistry itemUIRegistry,
-            final @Reference TimeZoneProvider timeZoneProvider) {
+            final @Reference TimeZoneProvider timeZoneProvider,
+            final @Reference RRD4jPersistenceService persistenceService) {
         this.httpService = httpService;
         this.itemUIRegistry = itemUIRegistry;
         this.timeZoneProvider = timeZoneProvider;
+        this.persistenceService = persistenceService;
     }
 
     @Activate
@@ -130,6 +164,9 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     @Deactivate
     protected void deactivate() {
         httpService.unregister(SERVLET_NAME);
+        synchronized (chartCache) {
+            chartCache.clear();
+        }
     }
 
     @Override
@@ -140,17 +177,13 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         int height = parseInt(req.getParameter("h"), DEFAULT_HEIGHT);
         String periodParam = req.getParameter("period");
         Duration period = periodParam == null ? DEFAULT_PERIOD : PERIODS.getOrDefault(periodParam, DEFAULT_PERIOD);
+        String items = req.getParameter("items");
+        String groups = req.getParameter("groups");
 
-        // Create the start and stop time
         ZonedDateTime timeEnd = ZonedDateTime.now(timeZoneProvider.getTimeZone());
-        ZonedDateTime timeBegin = timeEnd.minus(period);
-
+        CachedChart chart;
         try {
-            BufferedImage chart = createChart(null, null, timeBegin, timeEnd, height, width, req.getParameter("items"),
-                    req.getParameter("groups"), null, null);
-            // Set the content type to that provided by the chart provider
-            res.setContentType("image/" + getChartType());
-            ImageIO.write(chart, getChartType().toString(), res.getOutputStream());
+            chart = getChart(timeEnd.minus(period), timeEnd, height, width, items, groups);
         } catch (ItemNotFoundException e) {
             logger.debug("Item not found error while generating chart", e);
             throw new ServletException("Item not found error while generating chart: " + e.getMessage());
@@ -158,6 +191,116 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
             logger.debug("Illegal argument in chart", e);
             throw new ServletException("Illegal argument in chart: " + e.getMessage());
         }
+        byte[] image = chart.getImageBytes(getChartType().toString());
+
+        if (req instanceof HttpServletRequest && res instanceof HttpServletResponse) {
+            HttpServletResponse httpResponse = (HttpServletResponse) res;
+            String etag = chart.getETag(getChartType().toString());
+            httpResponse.setHeader("ETag", etag);
+            httpResponse.setHeader("Cache-Control",
+                    "max-age=" + Math.max(0, (chart.validUntil - System.currentTimeMillis()) / 1000));
+            if (matchesETag(((HttpServletRequest) req).getHeaders("If-None-Match"), etag)) {
+                httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        // Set the content type to that provided by the chart provider
+        res.setContentType("image/" + getChartType());
+        res.setContentLength(image.length);
+        res.getOutputStream().write(image);
+    }
+
+    /**
+     * Checks the If-None-Match header values of a request against an entity tag. The values may contain lists of
+     * tags and weak tags, which are compared weakly as required for If-None-Match.
+     *
+     * @param ifNoneMatch the values of the If-None-Match headers, may be null if headers cannot be accessed
+     * @param etag the strong entity tag of the response, including the quotes
+     * @return true if one of the tags matches or the header is a wildcard
+     */
+    private static boolean matchesETag(@Nullable Enumeration<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        while (ifNoneMatch.hasMoreElements()) {
+            for (String tag : ifNoneMatch.nextElement().split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a cached chart if it is still valid for the requested end time, otherwise renders it. Only one thread
+     * renders a chart at a time, concurrent requests for the same chart wait for its result.
+     */
+    private CachedChart getChart(ZonedDateTime timeBegin, ZonedDateTime timeEnd, int height, int width,
+            @Nullable String items, @Nullable String groups) throws ItemNotFoundException {
+        long period = timeEnd.toEpochSecond() - timeBegin.toEpochSecond();
+        String cacheKey = items + "|" + groups + "|" + period + "|" + width + "x" + height;
+        CompletableFuture<CachedChart> future;
+        CompletableFuture<CachedChart> rendering = null;
+        synchronized (chartCache) {
+            future = chartCache.get(cacheKey);
+            if (future == null || (future.isDone() && !isValid(future, timeEnd))) {
+                rendering = new CompletableFuture<>();
+                chartCache.put(cacheKey, rendering);
+                future = rendering;
+            }
+        }
+
+        if (rendering != null) {
+            try {
+                rendering.complete(createCachedChart(timeBegin, timeEnd, height, width, items, groups));
+            } catch (ItemNotFoundException | RuntimeException | Error e) {
+                // a failed chart is not cached, waiting requests must not block forever and get the same failure
+                synchronized (chartCache) {
+                    chartCache.remove(cacheKey, rendering);
+                }
+                rendering.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        CachedChart chart;
+        try {
+            chart = future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ItemNotFoundException) {
+                throw (ItemNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+        if (!chart.isValidFor(timeEnd)) {
+            // another thread rendered the chart for a different end time
+            return createCachedChart(timeBegin, timeEnd, height, width, items, groups);
+        }
+        return chart;
+    }
+
+    private boolean isValid(CompletableFuture<CachedChart> future, ZonedDateTime timeEnd) {
+        return !future.isCompletedExceptionally() && future.join().isValidFor(timeEnd);
+    }
+
+    private CachedChart createCachedChart(ZonedDateTime timeBegin, ZonedDateTime timeEnd, int height, int width,
+            @Nullable String items, @Nullable String groups) throws ItemNotFoundException {
+        ChartDefinition definition = createChartDefinition(timeBegin, timeEnd, height, width, items, groups);
+        BufferedImage image = renderChart(definition.graphDef);
+        long period = timeEnd.toEpochSecond() - timeBegin.toEpochSecond();
+        // the chart does not change before the next sample has been stored or the next pixel is reached
+        long step = Math.max(1, Math.max(definition.step, period / Math.max(width, 1)));
+        long validUntil = (timeEnd.toEpochSecond() / step + 1) * step * 1000;
+        return new CachedChart(image, timeEnd.toEpochSecond(), validUntil);
     }
 
     private int parseInt(@Nullable String s, int defaultValue) {
@@ -172,6 +315,35 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         }
     }
 
+    /**
+     * Fetches the data of the given items from their databases. If there is more than one item, the databases are
+     * read in parallel.
+     *
+     * @param items the items to fetch the data for
+     * @param start the start of the chart in seconds since the epoch
+     * @param end the end of the chart in seconds since the epoch
+     * @param resolution the resolution of the chart in seconds per pixel
+     * @return the fetched data in the order of the items, null for items whose database could not be read
+     */
+    private List<@Nullable FetchData> fetchData(List<Item> items, long start, long end, long resolution) {
+        if (items.size() == 1) {
+            return Collections.singletonList(fetchData(items.get(0), start, end, resolution));
+        }
+        List<CompletableFuture<@Nullable FetchData>> futures = items.stream()
+                .map(item -> CompletableFuture.supplyAsync(() -> fetchData(item, start, end, resolution), threadPool))
+                .collect(Collectors.toList());
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private @Nullable FetchData fetchData(Item item, long start, long end, long resolution) {
+        try {
+            return persistenceService.fetchData(item.getName(), start, end, resolution);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Could not fetch data for item '{}': {}", item.getName(), e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Adds a line for the item to the graph definition.
      * The color of the line is determined by the counter, it simply picks the according index from LINECOLORS (and
@@ -180,29 +352,21 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
      * @param graphDef the graph definition to fill
      * @param item the item to add a line for
      * @param counter defines the number of the datasource and is used to determine the line color
+     * @param data the data fetched from the database of the item
      */
-    protected void addLine(RrdGraphDef graphDef, Item item, int counter) {
+    protected void addLine(RrdGraphDef graphDef, Item item, int counter, FetchData data) {
         Color color = LINECOLORS[counter % LINECOLORS.length];
         String label = itemUIRegistry.getLabel(item.getName());
-        String rrdName = RRD4jPersistenceService.DB_FOLDER + File.separator + item.getName() + ".rrd";
-        ConsolFun consolFun;
         if (label != null && label.contains("[") && label.contains("]")) {
             label = label.substring(0, label.indexOf('['));
         }
-        try {
-            RrdDb db = RrdDb.of(rrdName);
-            consolFun = db.getRrdDef().getArcDefs()[0].getConsolFun();
-            db.close();
-        } catch (IOException e) {
-            consolFun = ConsolFun.MAX;
-        }
         if (item instanceof NumberItem) {
             // we only draw a line
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
+            graphDef.datasource(Integer.toString(counter), "state", data);
             graphDef.line(Integer.toString(counter), color, label, 2);
         } else {
             // we draw a line and fill the area beneath it with a transparent color
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
+            graphDef.datasource(Integer.toString(counter), "state", data);
             Color areaColor = AREACOLORS[counter % LINECOLORS.length];
 
             graphDef.area(Integer.toString(counter), areaColor);
@@ -240,7 +404,14 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     public BufferedImage createChart(@Nullable String service, @Nullable String theme, ZonedDateTime startTime,
             ZonedDateTime endTime, int height, int width, @Nullable String items, @Nullable String groups,
             @Nullable Integer dpi, @Nullable Boolean legend) throws ItemNotFoundException {
-        RrdGraphDef graphDef = new RrdGraphDef(startTime.toEpochSecond(), endTime.toEpochSecond());
+        return getChart(startTime, endTime, height, width, items, groups).image;
+    }
+
+    private ChartDefinition createChartDefinition(ZonedDateTime startTime, ZonedDateTime endTime, int height,
+            int width, @Nullable String items, @Nullable String groups) throws ItemNotFoundException {
+        long start = startTime.toEpochSecond();
+        long end = endTime.toEpochSecond();
+        RrdGraphDef graphDef = new RrdGraphDef(start, end);
         graphDef.setWidth(width);
         graphDef.setHeight(height);
         graphDef.setAntiAliasing(true);
@@ -249,14 +420,13 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         graphDef.setFont(FontTag.TITLE, new Font("SansSerif", Font.PLAIN, 15));
         graphDef.setFont(FontTag.DEFAULT, new Font("SansSerif", Font.PLAIN, 11));
 
-        int seriesCounter = 0;
+        List<Item> lineItems = new ArrayList<>();
 
         // Loop through all the items
         if (items != null) {
             String[] itemNames = items.split(",");
             for (String itemName : itemNames) {
-                Item item = itemUIRegistry.getItem(itemName);
-                addLine(graphDef, item, seriesCounter++);
+                lineItems.add(itemUIRegistry.getItem(itemName));
             }
         }
 
@@ -267,15 +437,28 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
                 Item item = itemUIRegistry.getItem(groupName);
                 if (item instanceof GroupItem) {
                     GroupItem groupItem = (GroupItem) item;
-                    for (Item member : groupItem.getMembers()) {
-                        addLine(graphDef, member, seriesCounter++);
-                    }
+                    lineItems.addAll(groupItem.getMembers());
                 } else {
                     throw new ItemNotFoundException("Item '" + item.getName() + "' defined in groups is not a group.");
                 }
             }
         }
 
+        long resolution = Math.max(1, (end - start) / Math.max(width, 1));
+        List<@Nullable FetchData> data = fetchData(lineItems, start, end, resolution);
+        long step = Long.MAX_VALUE;
+        for (int seriesCounter = 0; seriesCounter < lineItems.size(); seriesCounter++) {
+            FetchData itemData = data.get(seriesCounter);
+            if (itemData != null) {
+                addLine(graphDef, lineItems.get(seriesCounter), seriesCounter, itemData);
+                step = Math.min(step, itemData.getStep());
+            }
+        }
+
+        return new ChartDefinition(graphDef, step == Long.MAX_VALUE ? resolution : step);
+    }
+
+    private BufferedImage renderChart(RrdGraphDef graphDef) {
         // Write the chart as a PNG image
         try {
             RrdGraph graph = new RrdGraph(graphDef);
@@ -292,4 +475,60 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     public ImageType getChartType() {
         return ImageType.png;
     }
+
+    private static class ChartDefinition {
+        public final RrdGraphDef graphDef;
+        public final long step;
+
+        public ChartDefinition(RrdGraphDef graphDef, long step) {
+            this.graphDef = graphDef;
+            this.step = step;
+        }
+    }
+
+    private static class CachedChart {
+        public final BufferedImage image;
+        public final long end;
+        public final long validUntil;
+        private byte @Nullable [] imageBytes;
+        private @Nullable String etag;
+
+        public CachedChart(BufferedImage image, long end, long validUntil) {
+            this.image = image;
+            this.end = end;
+            this.validUntil = validUntil;
+        }
+
+        /**
+         * A chart rendered up to the end of the current pixel or step can be used for later end times in the same
+         * pixel or step, but not for earlier ones.
+         */
+        public boolean isValidFor(ZonedDateTime timeEnd) {
+            long requestedEnd = timeEnd.toEpochSecond();
+            return requestedEnd >= end && requestedEnd * 1000 < validUntil;
+        }
+
+        public synchronized byte[] getImageBytes(String format) throws IOException {
+            byte[] bytes = imageBytes;
+            if (bytes == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(image, format, out);
+                bytes = out.toByteArray();
+                imageBytes = bytes;
+            }
+            return bytes;
+        }
+
+        public synchronized String getETag(String format) throws IOException {
+            String tag = etag;
+            if (tag == null) {
+                byte[] bytes = getImageBytes(format);
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                tag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(bytes.length) + "\"";
+                etag = tag;
+            }
+            return tag;
+        }
+    }
 }
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdMemoryBackendFactory;
+
+/**
+ * Tests the {@link RRD4jDbCache} with in-memory databases.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jDbCacheTest {
+
+    private static final long LONG_IDLE = 3600000;
+
+    private final RrdMemoryBackendFactory backendFactory = new RrdMemoryBackendFactory();
+    private final Map<String, Integer> openCounts = new HashMap<>();
+    private final Function<String, @Nullable RrdDb> opener = this::open;
+
+    private synchronized @Nullable RrdDb open(String name) {
+        openCounts.merge(name, 1, Integer::sum);
+        RrdDef rrdDef = new RrdDef(name + "-" + openCounts.get(name), 60);
+        rrdDef.addDatasource("state", DsType.GAUGE, 120, Double.NaN, Double.NaN);
+        rrdDef.addArchive(ConsolFun.AVERAGE, 0.5, 1, 10);
+        try {
+            return RrdDb.getBuilder().setRrdDef(rrdDef).setBackendFactory(backendFactory).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized int openCount(String name) {
+        return openCounts.getOrDefault(name, 0);
+    }
+
+    private static RrdDb notNull(@Nullable RrdDb db) {
+        assertThat(db, is(notNullValue()));
+        return db;
+    }
+
+    @Test
+    public void acquireReusesOpenDatabaseAndCountsReferences() {
+        RRD4jDbCache cache = new RRD4jDbCache(10, LONG_IDLE);
+
+        RrdDb first = notNull(cache.acquire("item", opener));
+        RrdDb second = notNull(cache.acquire("item", opener));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(openCount("item"), is(1));
+
+        cache.release("item");
+        cache.release("item");
+        assertThat(first.isClosed(), is(false));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void releaseWithoutAcquireIsIgnored() {
+        RRD4jDbCache cache = new RRD4jDbCache(1, LONG_IDLE);
+        RrdDb db = notNull(cache.acquire("item", opener));
+        cache.release("item");
+
+        cache.release("item");
+        cache.release("unknown");
+
+        assertThat(db.isClosed(), is(false));
+        // the reference count did not become negative, so a closeAll() does not block
+        cache.closeAll();
+        assertThat(db.isClosed(), is(true));
+    }
+
+    @Test
+    public void failedOpenIsNotCached() {
+        RRD4jDbCache cache = new RRD4jDbCache(10, LONG_IDLE);
+
+        assertThat(cache.acquire("item", name -> null), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void leastRecentlyUsedUnreferencedDatabaseIsEvicted() {
+        RRD4jDbCache cache = new RRD4jDbCache(2, LONG_IDLE);
+        RrdDb a = notNull(cache.acquire("a", opener));
+        cache.release("a");
+        RrdDb b = notNull(cache.acquire("b", opener));
+        cache.release("b");
+        // touch a, so b is the least recently used one
+        cache.acquire("a", opener);
+        cache.release("a");
+
+        RrdDb c = notNull(cache.acquire("c", opener));
+
+        assertThat(b.isClosed(), is(true));
+        assertThat(a.isClosed(), is(false));
+        assertThat(c.isClosed(), is(false));
+        assertThat(cache.size(), is(2));
+        cache.release("c");
+    }
+
+    @Test
+    public void databasesInUseAreNotEvicted() {
+        RRD4jDbCache cache = new RRD4jDbCache(1, LONG_IDLE);
+        RrdDb a = notNull(cache.acquire("a", opener));
+        RrdDb b = notNull(cache.acquire("b", opener));
+
+        // capacity is exceeded temporarily instead of closing a database in use
+        assertThat(cache.size(), is(2));
+        assertThat(a.isClosed(), is(false));
+        assertThat(b.isClosed(), is(false));
+
+        cache.release("b");
+        assertThat(b.isClosed(), is(true));
+        assertThat(a.isClosed(), is(false));
+        assertThat(cache.size(), is(1));
+
+        cache.release("a");
+        assertThat(a.isClosed(), is(false));
+    }
+
+    @Test
+    public void idleDatabasesAreClosed() throws InterruptedException {
+        RRD4jDbCache cache = new RRD4jDbCache(10, 50);
+        RrdDb idle = notNull(cache.acquire("idle", opener));
+        cache.release("idle");
+        RrdDb held = notNull(cache.acquire("held", opener));
+
+        Thread.sleep(100);
+        cache.evictIdle();
+
+        assertThat(idle.isClosed(), is(true));
+        assertThat(held.isClosed(), is(false));
+        assertThat(cache.size(), is(1));
+        cache.release("held");
+    }
+
+    @Test
+    public void closeAllWaitsForHeldDatabase() throws Exception {
+        RRD4jDbCache cache = new RRD4jDbCache(10, LONG_IDLE);
+        RrdDb held = notNull(cache.acquire("held", opener));
+        RrdDb unused = notNull(cache.acquire("unused", opener));
+        cache.release("unused");
+
+        CompletableFuture<Void> closing = CompletableFuture.runAsync(cache::closeAll);
+        Thread.sleep(200);
+        assertThat(closing.isDone(), is(false));
+        assertThat(held.isClosed(), is(false));
+
+        // acquiring waits until the drain has finished
+        CompletableFuture<@Nullable RrdDb> reopening = CompletableFuture
+                .supplyAsync(() -> cache.acquire("held", opener));
+        Thread.sleep(200);
+        assertThat(reopening.isDone(), is(false));
+
+        cache.release("held");
+        closing.get(5, TimeUnit.SECONDS);
+        assertThat(held.isClosed(), is(true));
+        assertThat(unused.isClosed(), is(true));
+
+        RrdDb reopened = notNull(reopening.get(5, TimeUnit.SECONDS));
+        assertThat(reopened, is(not(sameInstance(held))));
+        assertThat(reopened.isClosed(), is(false));
+        assertThat(openCount("held"), is(2));
+        cache.release("held");
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdMemoryBackendFactory;
+
+/**
+ * Tests the write-behind queue of the {@link RRD4jPersistenceService}.
+ *
+ * The databases are kept in memory by overriding {@link RRD4jPersistenceService#getDB(String)}.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jWriteBehindTest {
+
+    private static final String ITEM_NAME = "WriteBehind";
+
+    private final TestService service = new TestService();
+    private boolean deactivated = false;
+
+    @AfterEach
+    public void tearDown() {
+        if (!deactivated) {
+            service.deactivate();
+        }
+    }
+
+    private void deactivate() {
+        service.deactivate();
+        deactivated = true;
+    }
+
+    private static NumberItem item(double value) {
+        NumberItem item = new NumberItem(ITEM_NAME);
+        item.setState(new DecimalType(value));
+        return item;
+    }
+
+    private double lastValue() throws IOException {
+        return service.db(ITEM_NAME).getLastDatasourceValue("state");
+    }
+
+    @Test
+    public void samplesAreWrittenImmediatelyWithoutFlushInterval() throws IOException {
+        service.modified(Map.of());
+
+        service.store(item(1));
+
+        assertThat(service.writes.get(), is(1));
+        assertThat(lastValue(), is(1.0));
+    }
+
+    @Test
+    public void onlyLatestPendingSampleIsWrittenOnDeactivate() throws IOException {
+        service.modified(Map.of("flushinterval", "3600"));
+
+        service.store(item(1));
+        service.store(item(2));
+        assertThat(service.writes.get(), is(0));
+
+        deactivate();
+
+        assertThat(service.writes.get(), is(1));
+        assertThat(lastValue(), is(2.0));
+    }
+
+    @Test
+    public void pendingSamplesAreWrittenByFlushJob() throws Exception {
+        service.modified(Map.of("flushinterval", "1"));
+
+        service.store(item(3));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.writes.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(service.writes.get(), is(1));
+        assertThat(lastValue(), is(3.0));
+    }
+
+    @Test
+    public void pendingSamplesAreWrittenWhenFlushIntervalIsRemoved() throws IOException {
+        service.modified(Map.of("flushinterval", "3600"));
+        service.store(item(4));
+
+        service.modified(Map.of());
+
+        assertThat(service.writes.get(), is(1));
+        assertThat(lastValue(), is(4.0));
+    }
+
+    @Test
+    public void samplesStoredAfterDeactivateAreNotQueued() throws IOException {
+        service.modified(Map.of("flushinterval", "3600"));
+        deactivate();
+
+        service.store(item(5));
+
+        assertThat(service.writes.get(), is(1));
+        assertThat(lastValue(), is(5.0));
+    }
+
+    private static class TestService extends RRD4jPersistenceService {
+
+        private final RrdMemoryBackendFactory backendFactory = new RrdMemoryBackendFactory();
+        private final Map<String, RrdDb> databases = new ConcurrentHashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+
+        TestService() {
+            super(mock(ItemRegistry.class));
+        }
+
+        RrdDb db(String alias) {
+            return databases.computeIfAbsent(alias, name -> {
+                RrdDef rrdDef = new RrdDef(name, 1);
+                rrdDef.addDatasource("state", DsType.GAUGE, 600, Double.NaN, Double.NaN);
+                rrdDef.addArchive(ConsolFun.AVERAGE, 0.5, 1, 3600);
+                try {
+                    return RrdDb.getBuilder().setRrdDef(rrdDef).setBackendFactory(backendFactory).build();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        @Override
+        protected @Nullable RrdDb getDB(String alias) {
+            writes.incrementAndGet();
+            return db(alias);
+        }
+
+        @Override
+        protected void releaseDB(String alias) {
+        }
+    }
+}
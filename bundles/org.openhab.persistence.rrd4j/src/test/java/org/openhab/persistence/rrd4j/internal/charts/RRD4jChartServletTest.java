@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal.charts;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.ui.items.ItemUIRegistry;
+import org.openhab.persistence.rrd4j.internal.RRD4jPersistenceService;
+import org.osgi.service.http.HttpService;
+
+/**
+ * Tests the chart cache and the ETag handling of the {@link RRD4jChartServlet}.
+ *
+ * The items have no data, so every chart is rendered without lines. Each rendering of a chart fetches the data of its
+ * items once, which is used to count the renderings.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jChartServletTest {
+
+    private final ItemUIRegistry itemUIRegistry = mock(ItemUIRegistry.class);
+    private final TimeZoneProvider timeZoneProvider = mock(TimeZoneProvider.class);
+    private final RRD4jPersistenceService persistenceService = mock(RRD4jPersistenceService.class);
+    private final RRD4jChartServlet servlet = new RRD4jChartServlet(mock(HttpService.class), itemUIRegistry,
+            timeZoneProvider, persistenceService);
+
+    private final ZonedDateTime end = ZonedDateTime.now(ZoneId.systemDefault());
+    private final ZonedDateTime begin = end.minusDays(1);
+
+    @BeforeEach
+    public void setUp() throws ItemNotFoundException {
+        when(timeZoneProvider.getTimeZone()).thenReturn(ZoneId.systemDefault());
+        when(itemUIRegistry.getItem(anyString())).thenAnswer(invocation -> new NumberItem(invocation.getArgument(0)));
+    }
+
+    private BufferedImage chart(String items) throws ItemNotFoundException {
+        return servlet.createChart(null, null, begin, end, 200, 400, items, null, null, null);
+    }
+
+    private void verifyRendered(String item, int times) throws IOException {
+        verify(persistenceService, times(times)).fetchData(eq(item), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void cachedChartIsReturned() throws Exception {
+        BufferedImage first = chart("Item");
+        BufferedImage second = chart("Item");
+
+        assertThat(second, is(sameInstance(first)));
+        verifyRendered("Item", 1);
+    }
+
+    @Test
+    public void leastRecentlyUsedChartIsEvicted() throws Exception {
+        for (int i = 0; i <= 50; i++) {
+            chart("Item" + i);
+        }
+
+        // 51 charts were rendered, the first one has been removed from the cache of 50 charts
+        chart("Item50");
+        verifyRendered("Item50", 1);
+        chart("Item0");
+        verifyRendered("Item0", 2);
+        // rendering the first chart again removed the second one
+        chart("Item1");
+        verifyRendered("Item1", 2);
+    }
+
+    @Test
+    public void failedChartIsNotCached() throws Exception {
+        when(itemUIRegistry.getItem("Missing")).thenThrow(new ItemNotFoundException("Missing"));
+
+        assertThrows(ItemNotFoundException.class, () -> chart("Missing"));
+        assertThrows(ItemNotFoundException.class, () -> chart("Missing"));
+
+        verify(itemUIRegistry, times(2)).getItem("Missing");
+    }
+
+    private HttpServletResponse request(List<String> ifNoneMatch) throws ServletException, IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("items")).thenReturn("Item");
+        when(request.getHeaders("If-None-Match")).thenReturn(Collections.enumeration(ifNoneMatch));
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        servlet.service(request, response);
+        return response;
+    }
+
+    private static String etag(HttpServletResponse response) {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), etag.capture());
+        return etag.getValue();
+    }
+
+    @Test
+    public void matchingETagIsAnsweredWithNotModified() throws Exception {
+        HttpServletResponse first = request(List.of());
+        String etag = etag(first);
+        verify(first, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(first).getOutputStream();
+
+        HttpServletResponse second = request(List.of("\"other\", W/" + etag));
+
+        assertThat(etag(second), is(etag));
+        verify(second).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(second, never()).getOutputStream();
+    }
+
+    @Test
+    public void differentETagIsAnsweredWithChart() throws Exception {
+        HttpServletResponse response = request(List.of("\"other\""));
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).getOutputStream();
+    }
+}
@@ -66,6 +66,11 @@ import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
  * json.toString() = {"a":3,"b":-6,"c":255}
  * </pre>
  *
+ * <p>
+ * The parser rule is compiled once, an instance can be reused and shared between threads. The compiled rule is
+ * immutable; the only state {@link JBBPParser} writes while parsing is its final stream byte counter, which is not
+ * used here and would be unreliable with concurrent conversions.
+ *
  * @author Pauli Anttila - Initial contribution
  *
  */
@@ -139,9 +144,10 @@ public class Bin2Json {
 
     private JsonObject convert(JBBPFieldStruct data) throws ConversionException {
         try {
-            LocalDateTime start = LocalDateTime.now();
+            final boolean trace = logger.isTraceEnabled();
+            LocalDateTime start = trace ? LocalDateTime.now() : null;
             final JsonObject json = convertToJSon(data);
-            if (logger.isTraceEnabled()) {
+            if (trace) {
                 Duration duration = Duration.between(start, LocalDateTime.now());
                 logger.trace("Conversion time={}, json={}", duration, json.toString());
             }
@@ -12,6 +12,10 @@
  */
 package org.openhab.transform.bin2json.internal;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
@@ -30,8 +34,21 @@ import org.slf4j.LoggerFactory;
 @Component(property = { "openhab.transform=BIN2JSON" })
 public class Bin2JsonTransformationService implements TransformationService {
 
+    private static final int MAX_CACHE_SIZE = 64;
+
     private Logger logger = LoggerFactory.getLogger(Bin2JsonTransformationService.class);
 
+    // compiled parsers by syntax, least recently used ones are evicted first
+    private final Map<String, Bin2Json> cache = Collections
+            .synchronizedMap(new LinkedHashMap<String, Bin2Json>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bin2Json> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            });
+
     /**
      * Transforms the input <code>source</code> by Java Binary Block Parser syntax.
      *
@@ -46,7 +63,7 @@ public class Bin2JsonTransformationService implements TransformationService {
         String result = "";
 
         try {
-            result = String.valueOf(new Bin2Json(syntax).convert(source));
+            result = String.valueOf(getBin2Json(syntax).convert(source));
             logger.debug("transformation resulted '{}'", result);
             return result;
         } catch (ConversionException e) {
@@ -56,4 +73,13 @@ public class Bin2JsonTransformationService implements TransformationService {
                     result);
         }
     }
+
+    private Bin2Json getBin2Json(String syntax) throws ConversionException {
+        Bin2Json bin2Json = cache.get(syntax);
+        if (bin2Json == null) {
+            bin2Json = new Bin2Json(syntax);
+            cache.put(syntax, bin2Json);
+        }
+        return bin2Json;
+    }
 }
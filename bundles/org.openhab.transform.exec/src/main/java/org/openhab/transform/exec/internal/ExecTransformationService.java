@@ -13,14 +13,19 @@
 package org.openhab.transform.exec.internal;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.io.net.exec.ExecUtil;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,26 +34,57 @@ import org.slf4j.LoggerFactory;
  * The implementation of {@link TransformationService} which transforms the
  * input by command line.
  *
+ * Commands prefixed with <code>worker:</code> are not started per value, they are kept running in a
+ * {@link ExecWorkerPool} and receive the values on stdin.
+ *
  * @author Pauli Anttila - Initial contribution
  * @author Jan N. Klug - added command whitelist service
  */
 @NonNullByDefault
-@Component(property = { "openhab.transform=EXEC" })
+@Component(configurationPid = "org.openhab.transform.exec", property = { "openhab.transform=EXEC",
+        Constants.SERVICE_PID + "=org.openhab.transform.exec" })
 public class ExecTransformationService implements TransformationService {
+    private static final String WORKER_PREFIX = "worker:";
+    private static final String CONFIG_WORKER_POOL_SIZE = "workerPoolSize";
+    private static final String CONFIG_WORKER_TIMEOUT = "workerTimeout";
+    private static final int DEFAULT_WORKER_POOL_SIZE = 1;
+    private static final long DEFAULT_WORKER_TIMEOUT = 5000;
+
     private final Logger logger = LoggerFactory.getLogger(ExecTransformationService.class);
     private final ExecTransformationWhitelistWatchService execTransformationWhitelistWatchService;
+    private final Map<String, ExecWorkerPool> workerPools = new ConcurrentHashMap<>();
+
+    private volatile int workerPoolSize = DEFAULT_WORKER_POOL_SIZE;
+    private volatile Duration workerTimeout = Duration.ofMillis(DEFAULT_WORKER_TIMEOUT);
 
     @Activate
     public ExecTransformationService(
-            @Reference ExecTransformationWhitelistWatchService execTransformationWhitelistWatchService) {
+            @Reference ExecTransformationWhitelistWatchService execTransformationWhitelistWatchService,
+            Map<String, Object> config) {
         this.execTransformationWhitelistWatchService = execTransformationWhitelistWatchService;
+        modified(config);
+    }
+
+    @Modified
+    protected void modified(Map<String, Object> config) {
+        workerPoolSize = Math.max(1, getIntValue(config, CONFIG_WORKER_POOL_SIZE, DEFAULT_WORKER_POOL_SIZE));
+        workerTimeout = Duration
+                .ofMillis(Math.max(1, getIntValue(config, CONFIG_WORKER_TIMEOUT, (int) DEFAULT_WORKER_TIMEOUT)));
+        // running workers keep their settings, so restart them
+        closeWorkerPools();
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        closeWorkerPools();
     }
 
     /**
      * Transforms the input <code>source</code> by the command line.
      *
      * @param commandLine the command to execute. Command line should contain %s string, which will be replaced by the
-     *            input data.
+     *            input data. A command line prefixed with <code>worker:</code> is kept running and receives the input
+     *            data on stdin instead.
      * @param source the input to transform
      */
     @Override
@@ -57,6 +93,10 @@ public class ExecTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'commandLine' and 'source' must not be null");
         }
 
+        if (commandLine.startsWith(WORKER_PREFIX)) {
+            return transformByWorker(commandLine.substring(WORKER_PREFIX.length()).trim(), source);
+        }
+
         if (!execTransformationWhitelistWatchService.isWhitelisted(commandLine)) {
             logger.warn("Tried to execute '{}', but it is not contained in whitelist.", commandLine);
             return null;
@@ -72,4 +112,50 @@ public class ExecTransformationService implements TransformationService {
 
         return result;
     }
+
+    private @Nullable String transformByWorker(String commandLine, String source) {
+        if (!execTransformationWhitelistWatchService.isWhitelisted(commandLine)) {
+            logger.warn("Tried to execute '{}', but it is not contained in whitelist.", commandLine);
+            // stop the workers of a command which was removed from the whitelist
+            ExecWorkerPool workerPool = workerPools.remove(commandLine);
+            if (workerPool != null) {
+                workerPool.close();
+            }
+            return null;
+        }
+        logger.debug("about to transform '{}' by the worker '{}'", source, commandLine);
+
+        long startTime = System.currentTimeMillis();
+
+        String result = workerPools
+                .computeIfAbsent(commandLine, key -> new ExecWorkerPool(key, workerPoolSize, workerTimeout))
+                .process(source);
+        logger.trace("worker execution elapsed {} ms", System.currentTimeMillis() - startTime);
+
+        return result;
+    }
+
+    private void closeWorkerPools() {
+        // remove each pool before closing it, so a pool created concurrently is neither lost nor closed unseen
+        for (String commandLine : workerPools.keySet()) {
+            ExecWorkerPool workerPool = workerPools.remove(commandLine);
+            if (workerPool != null) {
+                workerPool.close();
+            }
+        }
+    }
+
+    private static int getIntValue(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                // use the default
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.exec.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ExecWorkerPool} keeps a number of processes of one command running and hands values to them.
+ *
+ * A worker process reads one value per line from stdin and answers each with exactly one line on stdout. Line breaks
+ * in a value are replaced by spaces. A process that terminates is restarted by the next request, a process that does
+ * not answer in time is stopped, because a late answer would be taken for the answer of the next value.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class ExecWorkerPool {
+    private static final Pattern LINE_BREAK = Pattern.compile("\\R");
+    private static final Object END_OF_STREAM = new Object();
+    private static final ThreadFactory THREAD_FACTORY = new NamedThreadFactory("exec-worker", true);
+
+    private final Logger logger = LoggerFactory.getLogger(ExecWorkerPool.class);
+
+    private final String commandLine;
+    private final long timeoutMillis;
+    private final BlockingQueue<ExecWorker> idleWorkers;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pool. The processes are started when they are needed first.
+     *
+     * @param commandLine the command line of the worker processes
+     * @param size the maximum number of processes
+     * @param timeout the maximum time to wait for a free process and for its answer
+     */
+    public ExecWorkerPool(String commandLine, int size, Duration timeout) {
+        this.commandLine = commandLine;
+        this.timeoutMillis = timeout.toMillis();
+        this.idleWorkers = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            idleWorkers.add(new ExecWorker());
+        }
+    }
+
+    /**
+     * Hands a value to a worker process.
+     *
+     * @param input the value
+     * @return the answer of the process, or null if there was no answer in time or the pool is closed
+     */
+    public @Nullable String process(String input) {
+        if (closed) {
+            return null;
+        }
+        ExecWorker worker;
+        try {
+            worker = idleWorkers.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (worker == null) {
+            logger.warn("No process of '{}' became available within {} ms", commandLine, timeoutMillis);
+            return null;
+        }
+        try {
+            return worker.request(input);
+        } finally {
+            idleWorkers.add(worker);
+            // close() may have drained the idle workers just before this one was returned
+            if (closed && idleWorkers.remove(worker)) {
+                worker.stop();
+            }
+        }
+    }
+
+    /**
+     * Stops all processes. Processes which are busy are stopped when they have answered.
+     */
+    public void close() {
+        closed = true;
+        ExecWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.stop();
+        }
+    }
+
+    private class ExecWorker {
+        private @Nullable Process process;
+        private @Nullable Writer writer;
+        private BlockingQueue<Object> responses = new LinkedBlockingQueue<>();
+
+        @Nullable
+        String request(String input) {
+            try {
+                Writer currentWriter = start();
+                // discard anything the process wrote in addition to its answers
+                responses.clear();
+                currentWriter.write(LINE_BREAK.matcher(input).replaceAll(" "));
+                currentWriter.write('\n');
+                currentWriter.flush();
+                Object response = responses.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+                if (response instanceof String) {
+                    return (String) response;
+                } else if (response == null) {
+                    logger.warn("'{}' did not answer within {} ms, restarting it", commandLine, timeoutMillis);
+                } else {
+                    logger.warn("'{}' terminated, restarting it", commandLine);
+                }
+            } catch (IOException e) {
+                logger.warn("Communication with '{}' failed, restarting it: {}", commandLine, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stop();
+            return null;
+        }
+
+        private Writer start() throws IOException {
+            Process currentProcess = process;
+            Writer currentWriter = writer;
+            if (currentProcess != null && currentWriter != null && currentProcess.isAlive()) {
+                return currentWriter;
+            }
+            stop();
+
+            logger.debug("Starting worker process '{}'", commandLine);
+            Process newProcess = new ProcessBuilder(commandLine.split(" ")).redirectError(Redirect.DISCARD).start();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(newProcess.getInputStream(), StandardCharsets.UTF_8));
+            // every process gets its own queue, so the end of a stopped process is not taken for the next one
+            BlockingQueue<Object> newResponses = new LinkedBlockingQueue<>();
+            THREAD_FACTORY.newThread(() -> read(reader, newResponses)).start();
+
+            Writer newWriter = new OutputStreamWriter(newProcess.getOutputStream(), StandardCharsets.UTF_8);
+            process = newProcess;
+            writer = newWriter;
+            responses = newResponses;
+            return newWriter;
+        }
+
+        private void read(BufferedReader reader, BlockingQueue<Object> queue) {
+            try (BufferedReader in = reader) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    queue.add(line);
+                }
+            } catch (IOException e) {
+                // the process was stopped
+            }
+            queue.add(END_OF_STREAM);
+        }
+
+        void stop() {
+            Writer currentWriter = writer;
+            if (currentWriter != null) {
+                try {
+                    currentWriter.close();
+                } catch (IOException e) {
+                    // the process is stopped anyway
+                }
+            }
+            Process currentProcess = process;
+            if (currentProcess != null) {
+                currentProcess.destroy();
+            }
+            writer = null;
+            process = null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.exec.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the {@link ExecWorkerPool} with a shell script as worker process.
+ *
+ * The worker answers every line with its process id and the line, so the tests can tell whether a process was
+ * restarted.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+@DisabledOnOs(OS.WINDOWS)
+public class ExecWorkerPoolTest {
+
+    private static final String WORKER_SCRIPT = "while read -r line; do\n" //
+            + "  case \"$line\" in\n" //
+            + "    hang) sleep 5; echo \"$$ late\" ;;\n" //
+            + "    exit) exit 1 ;;\n" //
+            + "    slow) sleep 1; echo \"$$ $line\" ;;\n" //
+            + "    *) echo \"$$ $line\" ;;\n" //
+            + "  esac\n" //
+            + "done\n";
+
+    private @TempDir @NonNullByDefault({}) Path tempDir;
+    private @NonNullByDefault({}) String commandLine;
+    private @Nullable ExecWorkerPool pool;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path script = tempDir.resolve("worker.sh");
+        Files.writeString(script, WORKER_SCRIPT, StandardCharsets.UTF_8);
+        commandLine = "sh " + script.toAbsolutePath();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ExecWorkerPool currentPool = pool;
+        if (currentPool != null) {
+            currentPool.close();
+        }
+    }
+
+    private ExecWorkerPool createPool(int size, long timeoutMillis) {
+        ExecWorkerPool newPool = new ExecWorkerPool(commandLine, size, Duration.ofMillis(timeoutMillis));
+        pool = newPool;
+        return newPool;
+    }
+
+    private static String pid(@Nullable String answer) {
+        assertThat(answer, is(notNullValue()));
+        return answer.substring(0, answer.indexOf(' '));
+    }
+
+    private static String value(@Nullable String answer) {
+        assertThat(answer, is(notNullValue()));
+        return answer.substring(answer.indexOf(' ') + 1);
+    }
+
+    @Test
+    public void testProcessIsReusedForConsecutiveValues() {
+        ExecWorkerPool workerPool = createPool(1, 5000);
+
+        String first = workerPool.process("one");
+        String second = workerPool.process("two");
+
+        assertThat(value(first), is("one"));
+        assertThat(value(second), is("two"));
+        assertThat(pid(second), is(pid(first)));
+    }
+
+    @Test
+    public void testLineBreaksAreReplaced() {
+        ExecWorkerPool workerPool = createPool(1, 5000);
+
+        assertThat(value(workerPool.process("one\ntwo")), is("one two"));
+        assertThat(value(workerPool.process("three")), is("three"));
+    }
+
+    @Test
+    public void testTimeoutRestartsProcess() {
+        ExecWorkerPool workerPool = createPool(1, 500);
+        String before = workerPool.process("before");
+
+        assertThat(workerPool.process("hang"), is(nullValue()));
+
+        String after = workerPool.process("after");
+        assertThat(value(after), is("after"));
+        assertThat(pid(after), is(not(pid(before))));
+    }
+
+    @Test
+    public void testTerminatedProcessIsRestarted() {
+        ExecWorkerPool workerPool = createPool(1, 5000);
+        String before = workerPool.process("before");
+
+        long start = System.currentTimeMillis();
+        assertThat(workerPool.process("exit"), is(nullValue()));
+        // the end of the process is noticed without waiting for the timeout
+        assertThat(System.currentTimeMillis() - start < 5000, is(true));
+
+        String after = workerPool.process("after");
+        assertThat(value(after), is("after"));
+        assertThat(pid(after), is(not(pid(before))));
+    }
+
+    @Test
+    public void testCloseWhileBusyLetsRunningRequestFinish() throws Exception {
+        ExecWorkerPool workerPool = createPool(1, 5000);
+        // start the process, so the slow request below is not delayed by the process start
+        workerPool.process("start");
+
+        CompletableFuture<@Nullable String> busy = CompletableFuture.supplyAsync(() -> workerPool.process("slow"));
+        Thread.sleep(200);
+        workerPool.close();
+
+        assertThat(value(busy.get(5, TimeUnit.SECONDS)), is("slow"));
+        assertThat(workerPool.process("after close"), is(nullValue()));
+    }
+}
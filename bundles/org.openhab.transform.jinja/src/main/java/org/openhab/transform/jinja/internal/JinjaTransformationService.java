@@ -14,8 +14,10 @@ package org.openhab.transform.jinja.internal;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,12 +34,20 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hubspot.jinjava.Jinjava;
 import com.hubspot.jinjava.JinjavaConfig;
+import com.hubspot.jinjava.interpret.Context;
 import com.hubspot.jinjava.interpret.FatalTemplateErrorsException;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.interpret.TemplateError;
+import com.hubspot.jinjava.interpret.TemplateError.ErrorType;
+import com.hubspot.jinjava.tree.Node;
 
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by Jinja2 Expressions.
  *
+ * Templates are parsed once and the resulting node trees are rendered for every value. The value is only parsed as
+ * JSON if the template refers to <code>value_json</code>.
+ *
  * @author Jochen Klein - Initial contribution
  *
  */
@@ -45,11 +55,27 @@ import com.hubspot.jinjava.interpret.FatalTemplateErrorsException;
 @Component(property = { "openhab.transform=JINJA" })
 public class JinjaTransformationService implements TransformationService {
 
+    private static final int MAX_CACHE_SIZE = 256;
+    private static final String VALUE_JSON = "value_json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private final Logger logger = LoggerFactory.getLogger(JinjaTransformationService.class);
 
     private final JinjavaConfig config = JinjavaConfig.newBuilder().withFailOnUnknownTokens(true).build();
     private final Jinjava jinjava = new Jinjava(config);
 
+    // parsed templates by template string, least recently used ones are evicted first
+    private final Map<String, Node> cache = Collections
+            .synchronizedMap(new LinkedHashMap<String, Node>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            });
+
     /**
      * Transforms the input <code>value</code> by Jinja template.
      *
@@ -66,17 +92,25 @@ public class JinjaTransformationService implements TransformationService {
 
         bindings.put("value", value);
 
-        try {
-            JsonNode tree = new ObjectMapper().readTree(value);
-            bindings.put("value_json", toObject(tree));
-        } catch (IOException e) {
-            // ok, then value_json is null...
+        if (template.contains(VALUE_JSON)) {
+            try {
+                JsonNode tree = OBJECT_MAPPER.readTree(value);
+                bindings.put(VALUE_JSON, toObject(tree));
+            } catch (IOException e) {
+                // ok, then value_json is null...
+            }
         }
 
-        try {
-            transformationResult = jinjava.render(template, bindings);
-        } catch (FatalTemplateErrorsException e) {
-            throw new TransformationException("An error occurred while transformation. " + e.getMessage(), e);
+        Node node = getNode(template);
+        if (node != null) {
+            transformationResult = render(node, bindings);
+        } else {
+            // let Jinjava report the errors of a template which could not be parsed
+            try {
+                transformationResult = jinjava.render(template, bindings);
+            } catch (FatalTemplateErrorsException e) {
+                throw new TransformationException("An error occurred while transformation. " + e.getMessage(), e);
+            }
         }
 
         logger.debug("transformation resulted in '{}'", transformationResult);
@@ -84,6 +118,46 @@ public class JinjaTransformationService implements TransformationService {
         return transformationResult;
     }
 
+    /**
+     * @return the parsed template, or null if parsing the template produced errors
+     */
+    private @Nullable Node getNode(String template) {
+        Node node = cache.get(template);
+        if (node == null) {
+            JinjavaInterpreter interpreter = new JinjavaInterpreter(jinjava,
+                    new Context(jinjava.getGlobalContext(), Map.of(), config.getDisabled()), config);
+            node = interpreter.parse(template);
+            if (!interpreter.getErrors().isEmpty()) {
+                return null;
+            }
+            cache.put(template, node);
+        }
+        return node;
+    }
+
+    /**
+     * Renders a parsed template the same way {@link Jinjava#render(String, Map)} renders a template string.
+     */
+    private String render(Node node, Map<String, @Nullable Object> bindings) throws TransformationException {
+        JinjavaInterpreter interpreter = new JinjavaInterpreter(jinjava,
+                new Context(jinjava.getGlobalContext(), bindings, config.getDisabled()), config);
+        JinjavaInterpreter.pushCurrent(interpreter);
+        try {
+            String result = interpreter.render(node, true);
+            for (TemplateError error : interpreter.getErrors()) {
+                if (error.getSeverity() == ErrorType.FATAL) {
+                    throw new TransformationException("An error occurred while transformation. " + error);
+                }
+            }
+            return result;
+        } catch (RuntimeException e) {
+            throw new TransformationException("An error occurred while transformation. " + e.getMessage(), e);
+        } finally {
+            jinjava.getGlobalContext().reset();
+            JinjavaInterpreter.popCurrent();
+        }
+    }
+
     private static @Nullable Object toObject(JsonNode node) {
         switch (node.getNodeType()) {
             case ARRAY: {
@@ -115,4 +115,22 @@ public class JinjaTransformationServiceTest {
         // then map key is defined
         assertEquals("true", transformedResponse);
     }
+
+    @Test
+    public void testParsedTemplateIsRenderedWithNewValues() throws TransformationException {
+        String template = "{{ value_json.temperature }} {{ value }}";
+
+        assertEquals("4.7 {\"temperature\": 4.7}", processor.transform(template, "{\"temperature\": 4.7}"));
+        assertEquals("5.2 {\"temperature\": 5.2}", processor.transform(template, "{\"temperature\": 5.2}"));
+    }
+
+    @Test
+    public void testErrorsAreReportedOnEveryTransformation() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(TransformationException.class,
+                    () -> processor.transform("Hello {{ value_json.missing }}!", "{\"string\": \"world\"}"));
+            assertThrows(TransformationException.class,
+                    () -> processor.transform("Hello {{{ value_json.string }}!", "{\"string\": \"world\"}"));
+        }
+    }
 }
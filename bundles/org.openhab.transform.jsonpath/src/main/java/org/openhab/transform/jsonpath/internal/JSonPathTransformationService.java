@@ -12,7 +12,10 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -24,6 +27,7 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -41,8 +45,21 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(property = { "openhab.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    private static final int MAX_PATH_CACHE_SIZE = 256;
+    private static final int MAX_DOCUMENT_CACHE_SIZE = 16;
+    private static final long DOCUMENT_CACHE_TTL_MILLIS = 2000;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private final Configuration configuration = Configuration.defaultConfiguration();
+
+    // compiled paths by expression, least recently used ones are evicted first
+    private final Map<String, JsonPath> pathCache = Collections.synchronizedMap(new LruMap<>(MAX_PATH_CACHE_SIZE));
+
+    // recently parsed documents by source, so a payload read by several channels is parsed only once
+    private final Map<String, ParsedDocument> documentCache = Collections
+            .synchronizedMap(new LruMap<>(MAX_DOCUMENT_CACHE_SIZE));
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -60,7 +77,7 @@ public class JSonPathTransformationService implements TransformationService {
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = getPath(jsonPathExpression).read(getDocument(source), configuration);
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -76,6 +93,25 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private JsonPath getPath(String jsonPathExpression) {
+        JsonPath path = pathCache.get(jsonPathExpression);
+        if (path == null) {
+            path = JsonPath.compile(jsonPathExpression);
+            pathCache.put(jsonPathExpression, path);
+        }
+        return path;
+    }
+
+    private Object getDocument(String source) {
+        long now = System.currentTimeMillis();
+        ParsedDocument parsed = documentCache.get(source);
+        if (parsed == null || now - parsed.timestamp > DOCUMENT_CACHE_TTL_MILLIS) {
+            parsed = new ParsedDocument(configuration.jsonProvider().parse(source), now);
+            documentCache.put(source, parsed);
+        }
+        return parsed.document;
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -100,4 +136,33 @@ public class JSonPathTransformationService implements TransformationService {
     private String createStringList(List<?> list) {
         return list.stream().map(n -> "\"" + String.valueOf(n) + "\"").collect(Collectors.joining(", ", "[", "]"));
     }
+
+    /**
+     * A parsed JSON document. Documents are only read, never modified, so they can be shared between transformations.
+     */
+    private static class ParsedDocument {
+        private final Object document;
+        private final long timestamp;
+
+        ParsedDocument(Object document, long timestamp) {
+            this.document = document;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
 }
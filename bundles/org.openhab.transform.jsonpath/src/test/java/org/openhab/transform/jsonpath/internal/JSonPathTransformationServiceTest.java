@@ -127,4 +127,20 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSeveralPathsOnSameDocument() throws TransformationException {
+        final String json = "{\"temperature\":21.5,\"humidity\":48,\"battery\":97}";
+        assertEquals("21.5", processor.transform("$.temperature", json));
+        assertEquals("48", processor.transform("$.humidity", json));
+        assertEquals("97", processor.transform("$.battery", json));
+        assertEquals("21.5", processor.transform("$.temperature", json));
+    }
+
+    @Test
+    public void testSamePathOnChangingDocuments() throws TransformationException {
+        for (int i = 0; i < 50; i++) {
+            assertEquals(String.valueOf(i), processor.transform("$.value", "{\"value\":" + i + "}"));
+        }
+    }
 }
@@ -12,6 +12,9 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,6 +43,12 @@ public class RegExTransformationService implements TransformationService {
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    private static final int MAX_CACHE_SIZE = 256;
+
+    // compiled expressions by transformation function; when full, an arbitrary entry is evicted, the set of
+    // functions in use is normally far below the limit
+    private final Map<String, CompiledRegEx> cache = new ConcurrentHashMap<>();
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -48,25 +57,28 @@ public class RegExTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
 
-        String result = "";
+        CompiledRegEx compiled = cache.get(regExpression);
+        if (compiled == null) {
+            compiled = compile(regExpression);
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                Iterator<String> iterator = cache.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+            cache.put(regExpression, compiled);
+        }
 
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
+        String substitution = compiled.substitution;
+        if (substitution != null) {
             logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
-            } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
-            }
+            Matcher substMatcher = compiled.pattern.matcher(source.trim());
+            return compiled.global ? substMatcher.replaceAll(substitution) : substMatcher.replaceFirst(substitution);
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        String result = "";
+        Matcher matcher = compiled.pattern.matcher(source.trim());
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -94,4 +106,35 @@ public class RegExTransformationService implements TransformationService {
 
         return result;
     }
+
+    private CompiledRegEx compile(String regExpression) {
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+        if (substMatcher.matches()) {
+            String regex = substMatcher.group(1);
+            String substitution = substMatcher.group(2);
+            String options = substMatcher.group(3);
+            return new CompiledRegEx(Pattern.compile(regex), substitution, options.equals("g"));
+        }
+        return new CompiledRegEx(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL), null, false);
+    }
+
+    /**
+     * A transformation function with its regular expression compiled.
+     */
+    private static class CompiledRegEx {
+        private final Pattern pattern;
+        private final @Nullable String substitution;
+        private final boolean global;
+
+        /**
+         * @param pattern the compiled regular expression
+         * @param substitution the replacement of the substitution form, or null for the match form
+         * @param global whether all matches or only the first one are replaced
+         */
+        CompiledRegEx(Pattern pattern, @Nullable String substitution, boolean global) {
+            this.pattern = pattern;
+            this.substitution = substitution;
+            this.global = global;
+        }
+    }
 }
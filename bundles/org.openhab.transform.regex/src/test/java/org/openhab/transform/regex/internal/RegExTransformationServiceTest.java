@@ -75,4 +75,42 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testTransformByRegex_repeatedWithDifferentSources() throws TransformationException {
+        // method under test
+        String first = processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X12,Y54");
+        String second = processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "Z7");
+        String match = processor.transform("OP:(.*?),.*", "OP:SetMode,ARG:42");
+        String noMatch = processor.transform("OP:(.*?),.*", "NOP");
+
+        // Asserts
+        assertEquals("varX=12 varY=54 ", first);
+        assertEquals("varZ=7 ", second);
+        assertEquals("SetMode", match);
+        assertNull(noMatch);
+    }
+
+    @Test
+    public void testTransformByRegex_manyExpressions() throws TransformationException {
+        // more expressions than the cache holds
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i), processor.transform("v" + i + "=(.*)", "v" + i + "=" + i));
+        }
+    }
+
+    @Test
+    public void testTransformByRegex_evictedExpressions() throws TransformationException {
+        // fill the cache past its size of 256 expressions, so the first ones are evicted
+        for (int i = 0; i < 300; i++) {
+            assertEquals(String.valueOf(i), processor.transform("v" + i + "=(.*)", "v" + i + "=" + i));
+        }
+
+        // evicted or not, every expression is compiled again if needed and transforms as before
+        for (int i = 0; i < 300; i++) {
+            assertEquals("x" + i, processor.transform("v" + i + "=(.*)", "v" + i + "=x" + i));
+            assertNull(processor.transform("v" + i + "=(.*)", "w" + i + "=" + i));
+        }
+        assertEquals("varA=1 ", processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "A1"));
+    }
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.scale.internal;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A loaded scale file, compiled for fast lookup.
+ *
+ * The limits of all ranges split the number line into segments: the limits themselves and the open intervals in
+ * between. No range starts or ends inside a segment, so the first matching range (in file order) is the same for every
+ * value of a segment. It is resolved once per segment when the scale is loaded, a lookup is a binary search over the
+ * limits.
+ *
+ * @author davidoe - Initial contribution
+ */
+@NonNullByDefault
+public class ScaleTransform {
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    private final BigDecimal[] limits;
+    // label of segment 2 * i + 1 belongs to limits[i], segment 2 * i lies below it, null if no range matches
+    private final @Nullable String[] labels;
+    private final @Nullable String nonNumeric;
+    private final String format;
+
+    /**
+     * @param ranges the ranges in file order
+     * @param rangeLabels the label of each range
+     * @param nonNumeric the label for non numeric inputs, or null if there is none
+     * @param format the presentation format
+     */
+    public ScaleTransform(List<Range> ranges, List<String> rangeLabels, @Nullable String nonNumeric, String format) {
+        TreeSet<BigDecimal> sortedLimits = new TreeSet<>();
+        for (Range range : ranges) {
+            if (range.min != null) {
+                sortedLimits.add(range.min);
+            }
+            if (range.max != null) {
+                sortedLimits.add(range.max);
+            }
+        }
+        this.limits = sortedLimits.toArray(new BigDecimal[0]);
+        this.labels = new @Nullable String[2 * limits.length + 1];
+        for (int segment = 0; segment < labels.length; segment++) {
+            BigDecimal value = representative(segment);
+            for (int i = 0; i < ranges.size(); i++) {
+                if (ranges.get(i).contains(value)) {
+                    labels[segment] = rangeLabels.get(i);
+                    break;
+                }
+            }
+        }
+        this.nonNumeric = nonNumeric;
+        this.format = format;
+    }
+
+    /**
+     * @param value the value to look up
+     * @return the label of the first range containing the value, or null if there is none
+     */
+    public @Nullable String getLabel(BigDecimal value) {
+        int index = Arrays.binarySearch(limits, value);
+        return labels[index >= 0 ? 2 * index + 1 : -2 * (index + 1)];
+    }
+
+    public @Nullable String getNonNumeric() {
+        return nonNumeric;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    private BigDecimal representative(int segment) {
+        if (limits.length == 0) {
+            return BigDecimal.ZERO;
+        }
+        int index = segment / 2;
+        if (segment % 2 == 1) {
+            return limits[index];
+        } else if (index == 0) {
+            return limits[0].subtract(BigDecimal.ONE);
+        } else if (index == limits.length) {
+            return limits[index - 1].add(BigDecimal.ONE);
+        } else {
+            return limits[index - 1].add(limits[index]).divide(TWO);
+        }
+    }
+}
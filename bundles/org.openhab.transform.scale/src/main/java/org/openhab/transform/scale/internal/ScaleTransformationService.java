@@ -16,14 +16,14 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -51,7 +51,7 @@ import org.slf4j.LoggerFactory;
  */
 @Component(service = { TransformationService.class, ConfigOptionProvider.class }, property = {
         "openhab.transform=SCALE" })
-public class ScaleTransformationService extends AbstractFileTransformationService<Map<Range, String>>
+public class ScaleTransformationService extends AbstractFileTransformationService<ScaleTransform>
         implements ConfigOptionProvider {
 
     private final Logger logger = LoggerFactory.getLogger(ScaleTransformationService.class);
@@ -68,9 +68,6 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
     private static final String FORMAT_VALUE = "%value%";
     private static final String FORMAT_LABEL = "%label%";
 
-    /** Inaccessible range used to store presentation format ]0..0[ */
-    private static final Range FORMAT_RANGE = Range.range(BigDecimal.ZERO, false, BigDecimal.ZERO, false);
-
     /**
      * The implementation of {@link OrderedProperties} that let access
      * properties in the same order than presented in the source file
@@ -107,52 +104,117 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
      * The method transforms the input <code>source</code> by matching searching
      * the range where it fits i.e. [min..max]=value or ]min..max]=value
      *
-     * @param properties the list of properties defining all the available ranges
+     * @param data the compiled scale defining all the available ranges
      * @param source the input to transform
      * @return the transformed result or null if the transformation couldn't be completed for any reason.
      */
     @Override
-    protected @Nullable String internalTransform(Map<Range, String> data, String source)
-            throws TransformationException {
-        try {
-            final BigDecimal value = new BigDecimal(source);
+    protected @Nullable String internalTransform(ScaleTransform data, String source) throws TransformationException {
+        final BigDecimal value = parseNumber(source);
+        if (value != null) {
             return formatResult(data, source, value);
-        } catch (NumberFormatException e) {
-            // Scale can only be used with numeric inputs, so lets try to see if ever its a valid quantity type
-            try {
-                final QuantityType<?> quantity = new QuantityType<>(source);
-                return formatResult(data, source, quantity.toBigDecimal());
-            } catch (IllegalArgumentException e2) {
-                String nonNumeric = data.get(null);
-                if (nonNumeric != null) {
-                    return nonNumeric;
-                } else {
-                    throw new TransformationException(
-                            "Scale must be used with numeric inputs, valid quantity types or a 'NaN' entry.");
-                }
+        }
+        String nonNumeric = data.getNonNumeric();
+        if (nonNumeric != null) {
+            return nonNumeric;
+        } else {
+            throw new TransformationException(
+                    "Scale must be used with numeric inputs, valid quantity types or a 'NaN' entry.");
+        }
+    }
+
+    /**
+     * Parses a number or the value of a quantity type, without relying on exceptions for the common cases.
+     *
+     * @param source the input to parse, leading and trailing whitespace is ignored
+     * @return the value, or null if the input is neither a number nor a quantity type
+     */
+    static @Nullable BigDecimal parseNumber(String source) {
+        String trimmed = source.trim();
+        int numberLength = numberLength(trimmed);
+        try {
+            if (numberLength == 0) {
+                return null;
+            } else if (numberLength == trimmed.length()) {
+                return new BigDecimal(trimmed);
+            } else {
+                // Scale can only be used with numeric inputs, so lets try to see if ever its a valid quantity type
+                return new QuantityType<>(trimmed).toBigDecimal();
             }
+        } catch (IllegalArgumentException e) {
+            // number with an exponent out of range or an unknown unit
         }
+        return null;
     }
 
-    private String formatResult(Map<Range, String> data, String source, final BigDecimal value)
+    /**
+     * @return the length of the leading part of the input which is a number as accepted by {@link BigDecimal}, or 0
+     */
+    private static int numberLength(String source) {
+        int length = source.length();
+        int i = 0;
+        if (i < length && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && Character.isDigit(source.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && source.charAt(i) == '.') {
+            i++;
+            while (i < length && Character.isDigit(source.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return 0;
+        }
+        int end = i;
+        if (i < length && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && Character.isDigit(source.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits > 0) {
+                end = i;
+            }
+        }
+        return end;
+    }
+
+    private String formatResult(ScaleTransform data, String source, final BigDecimal value)
             throws TransformationException {
-        String format = data.get(FORMAT_RANGE);
+        String format = data.getFormat();
         String result = getScaleResult(data, source, value);
-        return format.replaceAll(FORMAT_VALUE, source).replaceAll(FORMAT_LABEL, result);
+        if (FORMAT_LABEL.equals(format)) {
+            return result;
+        }
+        return format.replace(FORMAT_VALUE, source).replace(FORMAT_LABEL, result);
     }
 
-    private String getScaleResult(Map<Range, String> data, String source, final BigDecimal value)
+    private String getScaleResult(ScaleTransform data, String source, final BigDecimal value)
             throws TransformationException {
-        return data.entrySet().stream().filter(entry -> entry.getKey() != null && entry.getKey().contains(value))
-                .findFirst().map(Map.Entry::getValue)
-                .orElseThrow(() -> new TransformationException("No matching range for '" + source + "'"));
+        String result = data.getLabel(value);
+        if (result == null) {
+            throw new TransformationException("No matching range for '" + source + "'");
+        }
+        return result;
     }
 
     @Override
-    protected Map<Range, String> internalLoadTransform(String filename) throws TransformationException {
+    protected ScaleTransform internalLoadTransform(String filename) throws TransformationException {
         try (FileReader reader = new FileReader(filename)) {
-            final Map<Range, String> data = new LinkedHashMap<>();
-            data.put(FORMAT_RANGE, FORMAT_LABEL);
+            final List<Range> ranges = new ArrayList<>();
+            final List<String> labels = new ArrayList<>();
+            String nonNumeric = null;
+            String format = FORMAT_LABEL;
             final OrderedProperties properties = new OrderedProperties();
             properties.load(reader);
 
@@ -172,15 +234,16 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                         final BigDecimal highValue = highLimit.isEmpty() ? null : new BigDecimal(highLimit);
                         final Range range = Range.range(lowValue, lowerInclusive, highValue, upperInclusive);
 
-                        data.put(range, value);
+                        ranges.add(range);
+                        labels.add(value);
                     } catch (NumberFormatException ex) {
                         throw new TransformationException("Error parsing bounds: " + lowLimit + ".." + highLimit);
                     }
                 } else {
                     if (NON_NUMBER.equals(entry)) {
-                        data.put(null, value);
+                        nonNumeric = value;
                     } else if (FORMAT.equals(entry)) {
-                        data.put(FORMAT_RANGE, value);
+                        format = value;
                     } else {
                         logger.warn("Scale transform file '{}' does not comply with syntax for entry : '{}', '{}'",
                                 filename, entry, value);
@@ -188,7 +251,7 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                 }
             }
 
-            return data;
+            return new ScaleTransform(ranges, labels, nonNumeric, format);
         } catch (final IOException ex) {
             throw new TransformationException("An error occurred while opening file.", ex);
         }
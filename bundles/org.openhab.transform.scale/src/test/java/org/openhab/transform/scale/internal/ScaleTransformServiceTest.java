@@ -14,6 +14,8 @@ package org.openhab.transform.scale.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Locale;
 
 import javax.measure.quantity.Dimensionless;
@@ -153,4 +155,44 @@ public class ScaleTransformServiceTest {
         String transformedResponse = processor.transform(existingscale, source);
         assertEquals("", transformedResponse);
     }
+
+    @Test
+    public void testOverlappingRangesKeepFileOrder() {
+        ScaleTransform scale = new ScaleTransform(
+                List.of(Range.closed(new BigDecimal(10), new BigDecimal(20)), Range.open(BigDecimal.ZERO,
+                        new BigDecimal(30)), Range.atLeast(new BigDecimal(15)), Range.lessThan(BigDecimal.ZERO)),
+                List.of("first", "second", "third", "negative"), null, "%label%");
+
+        assertEquals("negative", scale.getLabel(new BigDecimal(-5)));
+        assertNull(scale.getLabel(BigDecimal.ZERO));
+        assertEquals("second", scale.getLabel(new BigDecimal("9.99")));
+        assertEquals("first", scale.getLabel(new BigDecimal("10.0")));
+        assertEquals("first", scale.getLabel(new BigDecimal(15)));
+        assertEquals("first", scale.getLabel(new BigDecimal(20)));
+        assertEquals("second", scale.getLabel(new BigDecimal("20.5")));
+        assertEquals("third", scale.getLabel(new BigDecimal(30)));
+        assertEquals("third", scale.getLabel(new BigDecimal(1000)));
+    }
+
+    @Test
+    public void testParseNumber() {
+        assertEquals(new BigDecimal("-1.5E+3"), ScaleTransformationService.parseNumber("-1.5E+3"));
+        assertEquals(new BigDecimal(".5"), ScaleTransformationService.parseNumber(".5"));
+        assertEquals(0, new BigDecimal(992).compareTo(ScaleTransformationService.parseNumber("992 ppm")));
+        assertNull(ScaleTransformationService.parseNumber("-"));
+        assertNull(ScaleTransformationService.parseNumber("azerty"));
+    }
+
+    @Test
+    public void testParseNumberIgnoresSurroundingWhitespace() {
+        assertEquals(new BigDecimal("12.5"), ScaleTransformationService.parseNumber(" 12.5"));
+        assertEquals(new BigDecimal("12.5"), ScaleTransformationService.parseNumber("12.5\n"));
+        assertEquals(0, new BigDecimal(992).compareTo(ScaleTransformationService.parseNumber(" 992 ppm ")));
+        assertNull(ScaleTransformationService.parseNumber("  "));
+    }
+
+    @Test
+    public void testTransformNumberWithSurroundingWhitespace() throws TransformationException {
+        assertEquals("middle", processor.transform("scale/limits.scale", " 10 "));
+    }
 }
@@ -14,6 +14,13 @@ package org.openhab.transform.xpath.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openhab.core.transform.TransformationException;
@@ -38,4 +45,47 @@ public class XPathTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testCachedExpressionIsEvaluatedAgainstNewSource() throws TransformationException {
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+
+        String changedSource = source.replace("<temp_c data=\"8\"/>", "<temp_c data=\"9\"/>");
+        assertEquals("9", processor.transform("//current_conditions/temp_c/@data", changedSource));
+    }
+
+    @Test
+    public void testInvalidSourceDoesNotBreakFollowingTransformations() throws TransformationException {
+        assertThrows(TransformationException.class,
+                () -> processor.transform("//current_conditions/temp_c/@data", "<xml_api_reply>"));
+
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+    }
+
+    @Test
+    public void testConcurrentTransformations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String data = String.valueOf(i);
+                String threadSource = source.replace("<temp_c data=\"8\"/>", "<temp_c data=\"" + data + "\"/>");
+                results.add(
+                        executor.submit(() -> processor.transform("//current_conditions/temp_c/@data", threadSource)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(String.valueOf(i), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTransformAfterDeactivate() throws TransformationException {
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+        processor.deactivate();
+
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+    }
 }
@@ -15,9 +15,11 @@ package org.openhab.transform.xslt.internal;
 import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -35,6 +37,8 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
  *
+ * Compiled stylesheets are kept until the file is modified or removed.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
@@ -43,6 +47,11 @@ public class XsltTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    // compiled stylesheets by file path, Templates are thread-safe and can be shared
+    private final Map<String, CachedTemplates> cache = new ConcurrentHashMap<>();
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
@@ -60,12 +69,12 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
+        File file;
 
         try {
             String path = OpenHAB.getConfigFolder() + File.separator + TransformationService.TRANSFORM_FOLDER_NAME
                     + File.separator + filename;
-            xsl = new StreamSource(new File(path));
+            file = new File(path);
         } catch (Exception e) {
             String message = "opening file '" + filename + "' throws exception";
 
@@ -73,16 +82,13 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException(message, e);
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+        logger.debug("about to transform '{}' by the function '{}'", source, file);
 
         StringReader xml = new StringReader(source);
         StringWriter out = new StringWriter();
 
-        Transformer transformer;
-
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
+            getTemplates(file).newTransformer().transform(new StreamSource(xml), new StreamResult(out));
         } catch (Exception e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
@@ -92,4 +98,39 @@ public class XsltTransformationService implements TransformationService {
 
         return out.toString();
     }
+
+    private Templates getTemplates(File file) throws TransformerConfigurationException {
+        String path = file.getAbsolutePath();
+        // lastModified() is 0 for missing files, so they are never served from the cache
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CachedTemplates cached = cache.get(path);
+        if (cached != null && lastModified != 0 && cached.lastModified == lastModified && cached.length == length) {
+            return cached.templates;
+        }
+
+        Templates templates;
+        // TransformerFactory is not guaranteed to be thread-safe
+        synchronized (transformerFactory) {
+            templates = transformerFactory.newTemplates(new StreamSource(file));
+        }
+        if (lastModified != 0) {
+            cache.put(path, new CachedTemplates(templates, lastModified, length));
+        } else {
+            cache.remove(path);
+        }
+        return templates;
+    }
+
+    private static class CachedTemplates {
+        private final Templates templates;
+        private final long lastModified;
+        private final long length;
+
+        CachedTemplates(Templates templates, long lastModified, long length) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
 }
@@ -14,9 +14,17 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.OpenHAB;
 import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.TransformationService;
 
 /**
  * @author Thomas.Eichstaedt-Engelen
@@ -38,4 +46,37 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testModifiedStylesheetIsReloaded(@TempDir Path configFolder)
+            throws IOException, TransformationException {
+        Path transformFolder = Files
+                .createDirectories(configFolder.resolve(TransformationService.TRANSFORM_FOLDER_NAME));
+        Path stylesheet = transformFolder.resolve("temperature.xsl");
+        String previousConfigFolder = System.getProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT);
+        System.setProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT, configFolder.toString());
+        try {
+            Files.writeString(stylesheet, stylesheet("temp_c"));
+            assertEquals("8", processor.transform("temperature.xsl", source));
+            assertEquals("8", processor.transform("temperature.xsl", source));
+
+            Files.writeString(stylesheet, stylesheet("temp_f"));
+            // make sure the modification is noticed on file systems with a coarse timestamp resolution
+            Files.setLastModifiedTime(stylesheet, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            assertEquals("46", processor.transform("temperature.xsl", source));
+        } finally {
+            if (previousConfigFolder != null) {
+                System.setProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT, previousConfigFolder);
+            } else {
+                System.clearProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT);
+            }
+        }
+    }
+
+    private static String stylesheet(String element) {
+        return "<?xml version=\"1.0\"?><xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\""
+                + " version=\"1.0\"><xsl:output method=\"text\"/><xsl:template match=\"//current_conditions\">"
+                + "<xsl:value-of select=\"" + element + "/@data\"/></xsl:template>"
+                + "<xsl:template match=\"text()\"/></xsl:stylesheet>";
+    }
 }